@@ -0,0 +1,94 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.PartialAuthorizationRequest;
+import com.cedarpolicy.model.PartialAuthorizationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.policy.PolicySet;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end cost of authorization requests, including serializing the policies and entities,
+ * crossing into the native library and deserializing the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizationBenchmark {
+    @Param({"10", "100", "1000"})
+    private int policyCount;
+
+    @Param({"10", "1000"})
+    private int entityCount;
+
+    @Param({"1", "10"})
+    private int depth;
+
+    @Param({"JSON", "CBOR"})
+    private BasicAuthorizationEngine.WireFormat wireFormat;
+
+    private AuthorizationEngine engine;
+    private PolicySet policies;
+    private Set<Entity> entities;
+    private AuthorizationRequest request;
+    private PartialAuthorizationRequest partialRequest;
+
+    @Setup
+    public void setUp() {
+        engine = new BasicAuthorizationEngine(wireFormat);
+        policies = BenchmarkData.policies(policyCount);
+        entities = BenchmarkData.entities(entityCount, depth);
+        request = new AuthorizationRequest(BenchmarkData.principal(), BenchmarkData.VIEW,
+                BenchmarkData.resource(), new HashMap<>());
+        partialRequest = PartialAuthorizationRequest.builder()
+                .principal(BenchmarkData.principal())
+                .action(BenchmarkData.VIEW)
+                .emptyContext()
+                .build();
+    }
+
+    @Benchmark
+    public AuthorizationResponse isAuthorized() throws AuthException {
+        return engine.isAuthorized(request, policies, entities);
+    }
+
+    @Benchmark
+    public PartialAuthorizationResponse isAuthorizedPartial() throws AuthException {
+        return engine.isAuthorizedPartial(partialRequest, policies, entities);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.PrimString;
+import com.cedarpolicy.value.Value;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generated policies and entities shared by the benchmarks.
+ *
+ * <p>Users sit at the bottom of a chain of {@code depth} nested groups, so the ancestor closure
+ * the native library computes grows with the depth. Every policy is scoped to the outermost group
+ * and has a condition on the principal's attributes, so authorization has to consult both the
+ * hierarchy and the attributes for each policy whose scope matches.
+ */
+final class BenchmarkData {
+    static final String SCHEMA = "entity Group in [Group];\n"
+            + "entity User in [Group] { name: String, clearance: Long };\n"
+            + "entity Document;\n"
+            + "action view appliesTo { principal: User, resource: Document };\n";
+
+    static final EntityTypeName USER = EntityTypeName.parse("User").get();
+    static final EntityTypeName GROUP = EntityTypeName.parse("Group").get();
+    static final EntityTypeName DOCUMENT = EntityTypeName.parse("Document").get();
+    static final EntityUID VIEW = EntityUID.parse("Action::\"view\"").get();
+
+    private BenchmarkData() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static Schema schema() {
+        return new Schema(SCHEMA);
+    }
+
+    /** The principal of the generated requests, which is the first user. */
+    static EntityUID principal() {
+        return user(0);
+    }
+
+    /** The resource of the generated requests, which the first policy applies to. */
+    static EntityUID resource() {
+        return new EntityUID(DOCUMENT, "doc0");
+    }
+
+    static EntityUID user(int i) {
+        return new EntityUID(USER, "user" + i);
+    }
+
+    static EntityUID group(int level) {
+        return new EntityUID(GROUP, "level" + level);
+    }
+
+    /** The source of the {@code i}th policy, which applies to its own document. */
+    static String policySource(int i) {
+        return "permit(principal in Group::\"level0\", action == Action::\"view\", "
+                + "resource == Document::\"doc" + i + "\") "
+                + "when { principal.clearance >= " + (i % 10) + " && principal.name like \"user*\" };";
+    }
+
+    /** Policy text for {@code count} policies, as accepted by {@link PolicySet#parsePolicies(String)}. */
+    static String policyText(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(policySource(i)).append('\n');
+        }
+        return text.toString();
+    }
+
+    static PolicySet policies(int count) {
+        Set<Policy> policies = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            policies.add(new Policy(policySource(i), "policy" + i));
+        }
+        return new PolicySet(policies);
+    }
+
+    /** {@code count} users, all members of the innermost of {@code depth} nested groups. */
+    static Set<Entity> entities(int count, int depth) {
+        Set<Entity> entities = new HashSet<>();
+        for (int level = 0; level < depth; level++) {
+            Set<EntityUID> parents = level == 0 ? new HashSet<>() : Set.of(group(level - 1));
+            entities.add(new Entity(group(level), new HashMap<>(), parents));
+        }
+        for (int i = 0; i < count; i++) {
+            Map<String, Value> attrs = new HashMap<>();
+            attrs.put("name", new PrimString("user" + i));
+            attrs.put("clearance", new PrimLong(i % 10));
+            entities.add(new Entity(user(i), attrs, Set.of(group(depth - 1))));
+        }
+        return entities;
+    }
+
+    /** Entity uids in the textual form accepted by {@link EntityUID#parse(String)}. */
+    static List<String> uidStrings(int count) {
+        List<String> uids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uids.add(user(i).toString());
+        }
+        return uids;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.policy.PolicySet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fixed cost of a call into the native library: an authorization request with no policies and no
+ * entities, so nearly all of the time is spent on serialization, crossing into the native library
+ * and back, and any per-call bookkeeping on either side.
+ *
+ * <p>Each {@link BasicAuthorizationEngine.ExecutionMode} is measured in its own fork, selected with the
+ * {@value BasicAuthorizationEngine#EXECUTION_MODE_PROPERTY} system property before the engine is loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallOverheadBenchmark {
+    @Param({"POOL", "SPAWN", "INLINE"})
+    private String executionMode;
+
+    private AuthorizationEngine engine;
+    private AuthorizationRequest request;
+    private PolicySet policies;
+    private Set<Entity> entities;
+
+    @Setup
+    public void setUp() {
+        System.setProperty(BasicAuthorizationEngine.EXECUTION_MODE_PROPERTY, executionMode);
+        engine = new BasicAuthorizationEngine();
+        request = new AuthorizationRequest(BenchmarkData.principal(), BenchmarkData.VIEW,
+                BenchmarkData.resource(), new HashMap<>());
+        policies = new PolicySet();
+        entities = Collections.emptySet();
+    }
+
+    @Benchmark
+    public AuthorizationResponse emptyRequest() throws AuthException {
+        return engine.isAuthorized(request, policies, entities);
+    }
+}
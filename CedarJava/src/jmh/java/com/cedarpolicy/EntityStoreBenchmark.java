@@ -0,0 +1,86 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.PrimString;
+import com.cedarpolicy.value.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of updating one entity in an {@link EntityStore}. An update that needs no copy of the store
+ * costs about the same whatever the size of the store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityStoreBenchmark {
+    @Param({"1000", "200000"})
+    private int entityCount;
+
+    private EntityStore store;
+    private long clearance;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InternalException {
+        store = EntityStore.create(BenchmarkData.entities(entityCount, 3));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public long upsert() throws InternalException {
+        Map<String, Value> attrs = new HashMap<>();
+        attrs.put("name", new PrimString("user0"));
+        attrs.put("clearance", new PrimLong(clearance++ % 10));
+        store.upsert(new Entity(BenchmarkData.user(0), attrs, Set.of(BenchmarkData.group(2))));
+        return store.getVersion();
+    }
+
+    @Benchmark
+    public long removeAndUpsert() throws InternalException {
+        store.remove(BenchmarkData.user(1));
+        store.upsert(new Entity(BenchmarkData.user(1), new HashMap<>(), Set.of(BenchmarkData.group(2))));
+        return store.getVersion();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.value.EntityIdentifier;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of rendering an entity uid as text and of parsing it back, in Java and through the native
+ * library that did both for every uid before. Each invocation renders or parses {@value #UIDS}
+ * fresh uids, since a uid remembers its rendering, and the reported time is per uid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityUIDBenchmark {
+    private static final int UIDS = 100;
+
+    /** Whether the ids are plain or need escaping. */
+    @Param({"plain", "escaped"})
+    private String ids;
+
+    private EntityTypeName type;
+    private List<EntityIdentifier> identifiers;
+    private List<String> sources;
+    private MethodHandle nativeRepr;
+    private MethodHandle nativeParse;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        type = EntityTypeName.parse("App::User").get();
+        identifiers = new ArrayList<>(UIDS);
+        for (int i = 0; i < UIDS; i++) {
+            identifiers.add(new EntityIdentifier("plain".equals(ids) ? "user" + i : "user \"" + i + "\"\n"));
+        }
+        sources = new ArrayList<>(UIDS);
+        for (EntityIdentifier id : identifiers) {
+            sources.add(new EntityUID(type, id).toString());
+        }
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(EntityUID.class, MethodHandles.lookup());
+        nativeRepr = lookup.findStatic(EntityUID.class, "getEUIDRepr",
+                MethodType.methodType(String.class, EntityTypeName.class, EntityIdentifier.class));
+        nativeParse = lookup.findStatic(EntityUID.class, "parseEntityUID",
+                MethodType.methodType(Optional.class, String.class));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UIDS)
+    public void javaToString(Blackhole blackhole) {
+        for (EntityIdentifier id : identifiers) {
+            blackhole.consume(new EntityUID(type, id).toString());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UIDS)
+    public void nativeToString(Blackhole blackhole) throws Throwable {
+        for (EntityIdentifier id : identifiers) {
+            blackhole.consume((String) nativeRepr.invokeExact(type, id));
+        }
+    }
+
+    /** Plain uids are parsed in Java, while escaped ones still go to the native library. */
+    @Benchmark
+    @OperationsPerInvocation(UIDS)
+    public void javaParse(Blackhole blackhole) {
+        for (String source : sources) {
+            blackhole.consume(EntityUID.parse(source));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UIDS)
+    public void nativeParse(Blackhole blackhole) throws Throwable {
+        for (String source : sources) {
+            blackhole.consume((Optional<?>) nativeParse.invokeExact(source));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.exception.InvalidValueSerializationException;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.TemplateLink;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.serializer.SchemaSerializer;
+import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.CedarMap;
+import com.cedarpolicy.value.Decimal;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.IpAddress;
+import com.cedarpolicy.value.PrimBool;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.PrimString;
+import com.cedarpolicy.value.Unknown;
+import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The serializers as they were before they wrote straight to the generator, kept as the baseline of
+ * {@link SerializationBenchmark}. Nested values go back through Jackson's serializer lookup, and
+ * entity uids outside of values are converted to {@code JsonEUID} first.
+ */
+final class LegacySerializers {
+    private LegacySerializers() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /** Register the legacy serializers on a mapper, as {@code CedarJson} does with the current ones. */
+    static ObjectMapper register(ObjectMapper mapper) {
+        final SimpleModule module = new SimpleModule();
+        module.addSerializer(Entity.class, new EntitySerializer());
+        module.addSerializer(Schema.class, new SchemaSerializer());
+        module.addSerializer(TemplateLink.class, new TemplateLinkSerializer());
+        module.addSerializer(PolicySet.class, new PolicySetSerializer());
+        module.addSerializer(Value.class, new ValueSerializer());
+        mapper.registerModule(module);
+        mapper.registerModule(new Jdk8Module());
+        return mapper;
+    }
+
+    static final class ValueSerializer extends JsonSerializer<Value> {
+        private static final String ENTITY_ESCAPE_SEQ = "__entity";
+        private static final String EXTENSION_ESCAPE_SEQ = "__extn";
+
+        @Override
+        public void serialize(Value value, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
+                throws IOException {
+            if (value instanceof EntityUID) {
+                jsonGenerator.writeStartObject();
+                jsonGenerator.writeFieldName(ENTITY_ESCAPE_SEQ);
+                jsonGenerator.writeStartObject();
+                jsonGenerator.writeFieldName("id");
+                jsonGenerator.writeString(((EntityUID) value).getId().toString());
+                jsonGenerator.writeFieldName("type");
+                jsonGenerator.writeString(((EntityUID) value).getType().toString());
+                jsonGenerator.writeEndObject();
+                jsonGenerator.writeEndObject();
+            } else if (value instanceof PrimString) {
+                jsonGenerator.writeString(value.toString());
+            } else if (value instanceof PrimBool) {
+                jsonGenerator.writeBoolean(((PrimBool) value).getValue());
+            } else if (value instanceof PrimLong) {
+                jsonGenerator.writeNumber(((PrimLong) value).getValue());
+            } else if (value instanceof CedarList) {
+                jsonGenerator.writeStartArray();
+                for (Value item : (CedarList) value) {
+                    jsonGenerator.writeObject(item);
+                }
+                jsonGenerator.writeEndArray();
+            } else if (value instanceof CedarMap) {
+                jsonGenerator.writeStartObject();
+                for (Map.Entry<String, Value> entry : ((CedarMap) value).entrySet()) {
+                    jsonGenerator.writeObjectField(entry.getKey(), entry.getValue());
+                }
+                jsonGenerator.writeEndObject();
+            } else if (value instanceof IpAddress) {
+                writeExtension(jsonGenerator, "ip", value);
+            } else if (value instanceof Decimal) {
+                writeExtension(jsonGenerator, "decimal", value);
+            } else if (value instanceof Unknown) {
+                writeExtension(jsonGenerator, "unknown", value);
+            } else {
+                throw new InvalidValueSerializationException("Error serializing `Value`: " + value);
+            }
+        }
+
+        private static void writeExtension(JsonGenerator jsonGenerator, String fn, Value value) throws IOException {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeFieldName(EXTENSION_ESCAPE_SEQ);
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeFieldName("fn");
+            jsonGenerator.writeString(fn);
+            jsonGenerator.writeFieldName("arg");
+            jsonGenerator.writeString(value.toString());
+            jsonGenerator.writeEndObject();
+            jsonGenerator.writeEndObject();
+        }
+    }
+
+    static final class EntitySerializer extends JsonSerializer<Entity> {
+        @Override
+        public void serialize(Entity entity, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
+                throws IOException {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeObjectField("uid", entity.getEUID().asJson());
+            jsonGenerator.writeObjectField("attrs", entity.attrs);
+            jsonGenerator.writeObjectField("parents",
+                    entity.getParents().stream().map(EntityUID::asJson).collect(Collectors.toSet()));
+            jsonGenerator.writeObjectField("tags", entity.tags);
+            jsonGenerator.writeEndObject();
+        }
+    }
+
+    static final class PolicySetSerializer extends JsonSerializer<PolicySet> {
+        @Override
+        public void serialize(PolicySet policySet, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
+                throws IOException {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeObjectField("staticPolicies", policySet.getStaticPolicies());
+            jsonGenerator.writeObjectField("templates", policySet.getTemplates());
+            jsonGenerator.writeObjectField("templateLinks", policySet.templateLinks);
+            jsonGenerator.writeEndObject();
+        }
+    }
+
+    static final class TemplateLinkSerializer extends JsonSerializer<TemplateLink> {
+        @Override
+        public void serialize(TemplateLink link, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
+                throws IOException {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeObjectField("templateId", link.getTemplateId());
+            jsonGenerator.writeObjectField("newId", link.getResultPolicyId());
+            jsonGenerator.writeObjectField("values", link.getLinkValues().entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().asJson())));
+            jsonGenerator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.value.EntityUID;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Cost of parsing policies and entity uids from their textual forms. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+    @Param({"10", "100", "1000"})
+    private int policyCount;
+
+    private String policyText;
+    private List<String> uids;
+
+    @Setup
+    public void setUp() {
+        policyText = BenchmarkData.policyText(policyCount);
+        uids = BenchmarkData.uidStrings(100);
+    }
+
+    @Benchmark
+    public PolicySet parsePolicies() throws InternalException {
+        return PolicySet.parsePolicies(policyText);
+    }
+
+    @Benchmark
+    public PolicySet parsePoliciesParallel() throws InternalException {
+        return PolicySet.parsePoliciesParallel(policyText);
+    }
+
+    /** Parses 100 uids, so divide the reported time by 100 for the cost of one. */
+    @Benchmark
+    public void parseEntityUIDs(Blackhole blackhole) {
+        for (String uid : uids) {
+            Optional<EntityUID> parsed = EntityUID.parse(uid);
+            blackhole.consume(parsed);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.ValidationResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning native responses into Java objects. The {@code tree} benchmarks parse into a
+ * {@link JsonNode} first and bind that, as the engine used to; the {@code direct} benchmarks bind
+ * straight from the bytes as the engine does now. Run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseBenchmark {
+    /** Number of determining policies in the authorization response and errors in the validation response. */
+    @Param({"1", "100", "1000"})
+    private int count;
+
+    private byte[] authorizationResponse;
+    private byte[] validationResponse;
+
+    @Setup
+    public void setUp() {
+        StringBuilder reasons = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                reasons.append(',');
+                errors.append(',');
+            }
+            reasons.append("\"policy").append(i).append('"');
+            errors.append("{\"policyId\":\"policy").append(i).append("\",\"error\":{")
+                    .append("\"message\":\"for policy `policy").append(i)
+                    .append("`, attribute `clearance` on entity type `User` not found\",")
+                    .append("\"help\":\"did you mean `name`?\",\"code\":\"unsafe-attribute-access\",")
+                    .append("\"sourceLocations\":[{\"start\":92,\"end\":111}]}}");
+        }
+        authorizationResponse = ("{\"type\":\"success\",\"response\":{\"decision\":\"allow\","
+                + "\"diagnostics\":{\"reason\":[" + reasons + "],\"errors\":[]}},\"warnings\":[]}")
+                .getBytes(StandardCharsets.UTF_8);
+        validationResponse = ("{\"type\":\"success\",\"validationErrors\":[" + errors + "],"
+                + "\"validationWarnings\":[],\"otherWarnings\":[]}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public AuthorizationResponse authorizationTree() throws IOException {
+        JsonNode node = CedarJson.objectReader().readTree(authorizationResponse);
+        return CedarJson.objectReader().readValue(node, AuthorizationResponse.class);
+    }
+
+    @Benchmark
+    public AuthorizationResponse authorizationDirect() throws IOException {
+        return CedarJson.objectReader(AuthorizationResponse.class).readValue(authorizationResponse);
+    }
+
+    @Benchmark
+    public ValidationResponse validationTree() throws IOException {
+        JsonNode node = CedarJson.objectReader().readTree(validationResponse);
+        return CedarJson.objectReader().readValue(node, ValidationResponse.class);
+    }
+
+    @Benchmark
+    public ValidationResponse validationDirect() throws IOException {
+        return CedarJson.objectReader(ValidationResponse.class).readValue(validationResponse);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the Jackson serializers on their own, without the native call, using the same object
+ * mappers as the authorization engine for each wire format. The {@code LEGACY} serializers are
+ * those that went back through Jackson for every nested value, kept as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"10", "100", "1000"})
+    private int policyCount;
+
+    @Param({"10", "1000"})
+    private int entityCount;
+
+    @Param({"1", "10"})
+    private int depth;
+
+    @Param({"JSON", "CBOR"})
+    private BasicAuthorizationEngine.WireFormat wireFormat;
+
+    @Param({"DIRECT", "LEGACY"})
+    private String serializers;
+
+    private ObjectWriter writer;
+    private PolicySet policies;
+    private Set<Entity> entities;
+    private AuthorizationRequest request;
+
+    @Setup
+    public void setUp() {
+        final boolean cbor = wireFormat == BasicAuthorizationEngine.WireFormat.CBOR;
+        if ("LEGACY".equals(serializers)) {
+            writer = LegacySerializers.register(cbor ? new CBORMapper() : new ObjectMapper()).writer();
+        } else {
+            writer = cbor ? CedarJson.cborWriter() : CedarJson.objectWriter();
+        }
+        policies = BenchmarkData.policies(policyCount);
+        entities = BenchmarkData.entities(entityCount, depth);
+        request = new AuthorizationRequest(BenchmarkData.principal(), BenchmarkData.VIEW,
+                BenchmarkData.resource(), new HashMap<>());
+    }
+
+    @Benchmark
+    public byte[] serializePolicySet() throws JsonProcessingException {
+        return writer.writeValueAsBytes(policies);
+    }
+
+    @Benchmark
+    public byte[] serializeEntities() throws JsonProcessingException {
+        return writer.writeValueAsBytes(entities);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() throws JsonProcessingException {
+        return writer.writeValueAsBytes(request);
+    }
+}
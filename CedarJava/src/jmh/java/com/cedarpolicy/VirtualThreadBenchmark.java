@@ -0,0 +1,111 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+import com.cedarpolicy.BasicAuthorizationEngine.VirtualThreadPolicy;
+import com.cedarpolicy.BasicAuthorizationEngine.WireFormat;
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.policy.PolicySet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of authorization requests made concurrently from {@value #THREADS} virtual threads, each
+ * of which first waits {@code ioMillis} as if for I/O. With {@link VirtualThreadPolicy#PIN} the native
+ * calls hold on to the carrier threads, so virtual threads that are ready to run after their I/O wait
+ * for a carrier; with {@link VirtualThreadPolicy#OFFLOAD} the carriers stay free.
+ *
+ * <p>Needs Java 21 or later to run. Virtual threads are created through reflection so that the
+ * benchmarks still compile for Java 17.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    static final int THREADS = 10_000;
+
+    @Param({"PIN", "OFFLOAD"})
+    public VirtualThreadPolicy virtualThreadPolicy;
+
+    @Param({"0", "1"})
+    public int ioMillis;
+
+    private AuthorizationEngine engine;
+    private AuthorizationRequest request;
+    private PolicySet policies;
+    private Set<Entity> entities;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        engine = new BasicAuthorizationEngine(WireFormat.JSON, virtualThreadPolicy);
+        request = new AuthorizationRequest(BenchmarkData.principal(), BenchmarkData.VIEW,
+                BenchmarkData.resource(), new HashMap<>());
+        policies = BenchmarkData.policies(100);
+        entities = BenchmarkData.entities(10, 1);
+        executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(THREADS)
+    public int concurrentRequests() throws Exception {
+        List<Future<Boolean>> futures = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                if (ioMillis > 0) {
+                    Thread.sleep(ioMillis);
+                }
+                return engine.isAuthorized(request, policies, entities).success.orElseThrow().isAllowed();
+            }));
+        }
+        int allowed = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get()) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+}
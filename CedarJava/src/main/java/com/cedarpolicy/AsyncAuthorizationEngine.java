@@ -0,0 +1,105 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.ValidationRequest;
+import com.cedarpolicy.model.ValidationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A non-blocking counterpart of {@link AuthorizationEngine}. Each method returns immediately with a
+ * future that completes once Cedar has answered, so callers running on event loop threads never
+ * block on the native library.
+ *
+ * <p>The futures complete exceptionally with the {@link com.cedarpolicy.model.exception.AuthException}
+ * the corresponding {@link AuthorizationEngine} method would have thrown. Implementations may also
+ * refuse work when they are overloaded, in which case the future completes exceptionally with a
+ * {@link java.util.concurrent.RejectedExecutionException}.
+ */
+public interface AsyncAuthorizationEngine {
+    /**
+     * Asynchronously asks whether the given request is approved by the <code>policySet</code> and
+     * <code>entities</code> hierarchy given.
+     *
+     * @param request The request to evaluate
+     * @param policySet The policy set to evaluate against
+     * @param entities The entities to evaluate against
+     * @return A future for the result of the request evaluation
+     * @see AuthorizationEngine#isAuthorized(AuthorizationRequest, PolicySet, Set)
+     */
+    CompletableFuture<AuthorizationResponse> isAuthorizedAsync(AuthorizationRequest request, PolicySet policySet,
+                                                               Set<Entity> entities);
+
+    /**
+     * Asynchronously asks whether the given request is approved by the already parsed
+     * <code>preparedPolicySet</code> and <code>entities</code> hierarchy given.
+     *
+     * @param request The request to evaluate
+     * @param preparedPolicySet The prepared policy set to evaluate against
+     * @param entities The entities to evaluate against
+     * @return A future for the result of the request evaluation
+     * @see AuthorizationEngine#isAuthorized(AuthorizationRequest, PreparedPolicySet, Set)
+     */
+    CompletableFuture<AuthorizationResponse> isAuthorizedAsync(AuthorizationRequest request,
+                                                               PreparedPolicySet preparedPolicySet,
+                                                               Set<Entity> entities);
+
+    /**
+     * Asynchronously asks whether the given request is approved by the <code>policySet</code> and
+     * the entities in <code>entityStore</code> when the request is evaluated.
+     *
+     * @param request The request to evaluate
+     * @param policySet The policy set to evaluate against
+     * @param entityStore The entity store to evaluate against
+     * @return A future for the result of the request evaluation
+     * @see AuthorizationEngine#isAuthorized(AuthorizationRequest, PolicySet, EntityStore)
+     */
+    CompletableFuture<AuthorizationResponse> isAuthorizedAsync(AuthorizationRequest request, PolicySet policySet,
+                                                               EntityStore entityStore);
+
+    /**
+     * Asynchronously asks whether the given request is approved by the already parsed
+     * <code>preparedPolicySet</code> and the entities in <code>entityStore</code> when the request is
+     * evaluated.
+     *
+     * @param request The request to evaluate
+     * @param preparedPolicySet The prepared policy set to evaluate against
+     * @param entityStore The entity store to evaluate against
+     * @return A future for the result of the request evaluation
+     * @see AuthorizationEngine#isAuthorized(AuthorizationRequest, PreparedPolicySet, EntityStore)
+     */
+    CompletableFuture<AuthorizationResponse> isAuthorizedAsync(AuthorizationRequest request,
+                                                               PreparedPolicySet preparedPolicySet,
+                                                               EntityStore entityStore);
+
+    /**
+     * Asynchronously validates the policies of the given request against its schema.
+     *
+     * @param request The request containing the policies to validate and the schema to validate them
+     *     against
+     * @return A future for the result of validation
+     * @see AuthorizationEngine#validate(ValidationRequest)
+     */
+    CompletableFuture<ValidationResponse> validateAsync(ValidationRequest request);
+}
@@ -20,8 +20,12 @@ import com.cedarpolicy.model.*;
 import com.cedarpolicy.model.exception.AuthException;
 import com.cedarpolicy.model.exception.BadRequestException;
 import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
 import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -34,6 +38,10 @@ import java.util.Set;
  * <p>Note that Cedar does not have intrinsic limits on the sizes / number of policies. We could not
  * set such a limit as well as you, the user of the Cedar library. As such, it is your
  * responsibility to choose and enforce these limits.
+ *
+ * <p>The <code>AuthException</code>s thrown by these methods are about the request. An implementation
+ * that cannot run at all, such as one whose native library is missing or supports a different Cedar
+ * language version than {@link #getCedarLangVersion()}, fails when it is loaded instead.
  */
 public interface AuthorizationEngine {
     /**
@@ -51,6 +59,91 @@ public interface AuthorizationEngine {
      */
     AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet, Set<Entity> entities) throws AuthException;
 
+    /**
+     * Asks whether the given AuthorizationRequest <code>q</code> is approved by the already parsed
+     * <code>preparedPolicySet</code> and <code>entities</code> hierarchy given.
+     *
+     * @param request The request to evaluate
+     * @param preparedPolicySet The prepared policy set to evaluate against
+     * @param entities The entities to evaluate against
+     * @return The result of the request evaluation
+     * @throws IllegalStateException if the prepared policy set has been closed.
+     * @throws UnsupportedOperationException if this engine does not support prepared policy sets. The default
+     *     implementation always throws it.
+     * @throws AuthException On failure to make the authorization request. Note that errors inside the
+     *     authorization engine are included in the <code>errors</code> field on the
+     *     AuthorizationResponse.
+     */
+    default AuthorizationResponse isAuthorized(AuthorizationRequest request, PreparedPolicySet preparedPolicySet,
+                                               Set<Entity> entities) throws AuthException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support prepared policy sets");
+    }
+
+    /**
+     * Asks whether the given AuthorizationRequest <code>q</code> is approved by the <code>policySet</code> and
+     * the entities currently in <code>entityStore</code>.
+     *
+     * @param request The request to evaluate
+     * @param policySet The policy set to evaluate against
+     * @param entityStore The entity store to evaluate against
+     * @return The result of the request evaluation
+     * @throws IllegalStateException if the entity store has been closed.
+     * @throws UnsupportedOperationException if this engine does not support entity stores. The default
+     *     implementation always throws it.
+     * @throws AuthException On failure to make the authorization request. Note that errors inside the
+     *     authorization engine are included in the <code>errors</code> field on the
+     *     AuthorizationResponse.
+     */
+    default AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet,
+                                               EntityStore entityStore) throws AuthException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support entity stores");
+    }
+
+    /**
+     * Asks whether the given AuthorizationRequest <code>q</code> is approved by the already parsed
+     * <code>preparedPolicySet</code> and the entities currently in <code>entityStore</code>.
+     *
+     * @param request The request to evaluate
+     * @param preparedPolicySet The prepared policy set to evaluate against
+     * @param entityStore The entity store to evaluate against
+     * @return The result of the request evaluation
+     * @throws IllegalStateException if the prepared policy set or entity store has been closed.
+     * @throws UnsupportedOperationException if this engine does not support prepared policy sets with entity stores. The default
+     *     implementation always throws it.
+     * @throws AuthException On failure to make the authorization request. Note that errors inside the
+     *     authorization engine are included in the <code>errors</code> field on the
+     *     AuthorizationResponse.
+     */
+    default AuthorizationResponse isAuthorized(AuthorizationRequest request, PreparedPolicySet preparedPolicySet,
+                                               EntityStore entityStore) throws AuthException {
+        throw new UnsupportedOperationException(getClass().getName()
+                + " does not support prepared policy sets with entity stores");
+    }
+
+    /**
+     * Asks whether each of the given AuthorizationRequests is approved by the <code>policySet</code> and
+     * <code>entities</code> hierarchy given. This gives the same answers as calling
+     * {@link #isAuthorized(AuthorizationRequest, PolicySet, Set)} for each request, but the policies and
+     * entities are only converted and parsed once for the whole batch. The default implementation calls
+     * {@link #isAuthorized(AuthorizationRequest, PolicySet, Set)} for each request in turn.
+     *
+     * @param requests The requests to evaluate
+     * @param policySet The policy set to evaluate against
+     * @param entities The entities to evaluate against
+     * @return The result of evaluating each request, in the same order as <code>requests</code>
+     * @throws AuthException On failure to make the authorization requests. Note that errors inside the
+     *     authorization engine are included in the <code>errors</code> field on each
+     *     AuthorizationResponse.
+     */
+    default List<AuthorizationResponse> isAuthorizedBatch(List<AuthorizationRequest> requests, PolicySet policySet,
+                                                          Set<Entity> entities) throws AuthException {
+        List<AuthorizationResponse> responses = new ArrayList<>(requests.size());
+        for (AuthorizationRequest request : requests) {
+            responses.add(isAuthorized(request, policySet, entities));
+        }
+        return responses;
+    }
+
     /**
      * Asks whether the given AuthorizationRequest <code>q</code> is approved by the <code>policySet</code> and
      * <code>entities</code> given. If information required to answer is missing, residual policies are returned.
@@ -16,45 +16,360 @@
 
 package com.cedarpolicy;
 
+import static com.cedarpolicy.CedarJson.cborReader;
+import static com.cedarpolicy.CedarJson.cborWriter;
 import static com.cedarpolicy.CedarJson.objectReader;
 import static com.cedarpolicy.CedarJson.objectWriter;
 
 import java.io.IOException;
 
+import com.cedarpolicy.jfr.AuthorizationEvent;
+import com.cedarpolicy.jfr.EntityValidationEvent;
+import com.cedarpolicy.jfr.NativeCallEvent;
+import com.cedarpolicy.jfr.PartialAuthorizationEvent;
+import com.cedarpolicy.jfr.ValidationEvent;
 import com.cedarpolicy.loader.LibraryLoader;
+import com.cedarpolicy.metrics.CallMetrics;
+import com.cedarpolicy.metrics.CallStage;
+import com.cedarpolicy.metrics.EngineMetricsListener;
 import com.cedarpolicy.model.*;
 import com.cedarpolicy.model.exception.AuthException;
 import com.cedarpolicy.model.exception.BadRequestException;
 import com.cedarpolicy.model.exception.InternalException;
 import com.cedarpolicy.model.exception.MissingExperimentalFeatureException;
 import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
 import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
+import com.cedarpolicy.model.schema.PreparedSchema;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.Value;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-/** An authorization engine that is compiled in process. Communicated with via JNI. */
+/**
+ * An authorization engine that is compiled in process. Communicated with via JNI.
+ *
+ * <p>How native calls are executed is selected with the system property {@value #EXECUTION_MODE_PROPERTY}
+ * (see {@link ExecutionMode}). The size of the worker pool and the native stack size can be set with
+ * {@value #POOL_SIZE_PROPERTY} and {@value #STACK_SIZE_PROPERTY} (in bytes). The properties are read
+ * when this class is initialized, which fails if {@value #EXECUTION_MODE_PROPERTY} does not name a mode.
+ *
+ * <p>The native library is loaded, and its Cedar language version checked, when this class is initialized.
+ * If either fails, initializing this class throws an {@link ExceptionInInitializerError} caused by the
+ * {@link IllegalStateException} from {@link LibraryLoader#loadLibrary()}, and the failure is not retried.
+ *
+ * <p>A native call pins the virtual thread that makes it to its carrier thread until the call returns.
+ * Engines constructed with {@link VirtualThreadPolicy#OFFLOAD} instead make calls from virtual threads
+ * on a shared pool of platform threads, whose size is set with {@value #OFFLOAD_POOL_SIZE_PROPERTY}.
+ *
+ * <p>Engines constructed with an {@link EngineMetricsListener} report every completed call to it, with
+ * the time spent in each {@link CallStage}. The native stages are measured by the native library and the
+ * JNI transfer is what remains of the time between handing the request to the native library and getting
+ * the response back.
+ *
+ * <p>Every call that returns a response is also recorded as a JDK Flight Recorder event from
+ * {@link com.cedarpolicy.jfr} when a recording enables it.
+ */
 public final class BasicAuthorizationEngine implements AuthorizationEngine {
+    /** System property selecting the {@link ExecutionMode}. */
+    public static final String EXECUTION_MODE_PROPERTY = "cedar.jni.executionMode";
+    /** System property setting the number of native worker threads in {@link ExecutionMode#POOL} mode. */
+    public static final String POOL_SIZE_PROPERTY = "cedar.jni.poolSize";
+    /** System property setting the native stack size in bytes. */
+    public static final String STACK_SIZE_PROPERTY = "cedar.jni.stackSize";
+    /** System property setting the number of platform threads used by {@link VirtualThreadPolicy#OFFLOAD}. */
+    public static final String OFFLOAD_POOL_SIZE_PROPERTY = "cedar.jni.offloadPoolSize";
+
     static {
         LibraryLoader.loadLibrary();
+        final ExecutionMode mode = parseExecutionMode(System.getProperty(EXECUTION_MODE_PROPERTY));
+        configureExecutionJni(mode.name(), Integer.getInteger(POOL_SIZE_PROPERTY, 0),
+                Long.getLong(STACK_SIZE_PROPERTY, 0L));
+    }
+
+    /**
+     * How calls into the native library are executed. Cedar needs more stack than a Java thread may
+     * have, so by default calls do not run directly on the calling thread.
+     */
+    public enum ExecutionMode {
+        /** Run each call on a newly spawned native thread. */
+        SPAWN,
+        /** Run calls on a fixed pool of pre-spawned native threads. This is the default. */
+        POOL,
+        /** Run calls on the calling thread, switching to a new stack segment when the thread's stack runs low. */
+        INLINE
+    }
+
+    /**
+     * Get the execution mode currently used for native calls.
+     *
+     * @return the current execution mode
+     */
+    public static ExecutionMode getExecutionMode() {
+        return ExecutionMode.valueOf(getExecutionModeJni());
     }
 
+    /**
+     * Parse the value of the {@value #EXECUTION_MODE_PROPERTY} system property, ignoring case.
+     *
+     * @param value the value of the property, or null if it is not set
+     * @return the execution mode named by the value, or {@link ExecutionMode#POOL} if it is not set
+     * @throws IllegalArgumentException if the value does not name an execution mode
+     */
+    static ExecutionMode parseExecutionMode(String value) {
+        if (value == null) {
+            return ExecutionMode.POOL;
+        }
+        try {
+            return ExecutionMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value \"" + value + "\" for system property "
+                    + EXECUTION_MODE_PROPERTY + "; expected one of " + Arrays.toString(ExecutionMode.values()), e);
+        }
+    }
+
+    /**
+     * Change the execution mode used for native calls. This applies to all engines in the process
+     * and is only meant for tests; set the {@value #EXECUTION_MODE_PROPERTY} system property instead.
+     *
+     * @param mode the execution mode to use
+     */
+    static void setExecutionMode(ExecutionMode mode) {
+        if (mode == null) {
+            throw new NullPointerException("mode");
+        }
+        configureExecutionJni(mode.name(), 0, 0L);
+    }
+
+    /**
+     * How requests and responses are encoded when they are passed to and from the native library.
+     * Both encodings carry the same data, so the choice only affects performance.
+     */
+    public enum WireFormat {
+        /** JSON text encoded as UTF-8. This is the default. */
+        JSON,
+        /** CBOR, a binary encoding that is cheaper to produce and parse than JSON text. */
+        CBOR
+    }
+
+    /**
+     * What to do with native calls made from virtual threads. Calls made from platform threads are
+     * always made directly.
+     */
+    public enum VirtualThreadPolicy {
+        /** Make the call on the virtual thread, pinning its carrier thread until it returns. This is the default. */
+        PIN,
+        /**
+         * Make the call on a shared pool of platform threads and park the virtual thread until it
+         * returns, so the carrier thread can run other virtual threads in the meantime.
+         */
+        OFFLOAD
+    }
+
+    /** The number of native stages reported by the native library: parsing and evaluation. */
+    private static final int NATIVE_STAGES = 2;
+
+    private final WireFormat wireFormat;
+    private final VirtualThreadPolicy virtualThreadPolicy;
+    private final EngineMetricsListener metricsListener;
+
     /** Construct a basic authorization engine. */
     public BasicAuthorizationEngine() {
+        this(WireFormat.JSON);
+    }
+
+    /**
+     * Construct a basic authorization engine that talks to the native library in the given format.
+     *
+     * @param wireFormat the encoding of requests and responses
+     * @throws NullPointerException if the wire format is null
+     */
+    public BasicAuthorizationEngine(WireFormat wireFormat) {
+        this(wireFormat, VirtualThreadPolicy.PIN);
+    }
+
+    /**
+     * Construct a basic authorization engine that talks to the native library in the given format and
+     * handles calls from virtual threads according to the given policy.
+     *
+     * @param wireFormat the encoding of requests and responses
+     * @param virtualThreadPolicy what to do with native calls made from virtual threads
+     * @throws NullPointerException if the wire format or virtual thread policy is null
+     */
+    public BasicAuthorizationEngine(WireFormat wireFormat, VirtualThreadPolicy virtualThreadPolicy) {
+        this(wireFormat, virtualThreadPolicy, null);
+    }
+
+    /**
+     * Construct a basic authorization engine that reports the measurements of each call it makes.
+     *
+     * @param wireFormat the encoding of requests and responses
+     * @param virtualThreadPolicy what to do with native calls made from virtual threads
+     * @param metricsListener the listener told about each completed call, or null to measure nothing
+     * @throws NullPointerException if the wire format or virtual thread policy is null
+     */
+    public BasicAuthorizationEngine(WireFormat wireFormat, VirtualThreadPolicy virtualThreadPolicy,
+                                    EngineMetricsListener metricsListener) {
+        if (wireFormat == null) {
+            throw new NullPointerException("wireFormat");
+        }
+        if (virtualThreadPolicy == null) {
+            throw new NullPointerException("virtualThreadPolicy");
+        }
+        this.wireFormat = wireFormat;
+        this.virtualThreadPolicy = virtualThreadPolicy;
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Get the encoding this engine uses for requests and responses.
+     *
+     * @return the wire format
+     */
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * Get what this engine does with native calls made from virtual threads.
+     *
+     * @return the virtual thread policy
+     */
+    public VirtualThreadPolicy getVirtualThreadPolicy() {
+        return virtualThreadPolicy;
+    }
+
+    /**
+     * Get the listener this engine reports its calls to.
+     *
+     * @return the metrics listener, if there is one
+     */
+    public Optional<EngineMetricsListener> getMetricsListener() {
+        return Optional.ofNullable(metricsListener);
     }
 
     @Override
     public AuthorizationResponse isAuthorized(com.cedarpolicy.model.AuthorizationRequest q,
                                               PolicySet policySet, Set<Entity> entities) throws AuthException {
+        requireOpen(q.preparedSchema);
         final AuthorizationRequest request = new AuthorizationRequest(q, policySet, entities);
-        return call("AuthorizationOperation", AuthorizationResponse.class, request);
+        // The standard operation parses the schema itself, so a prepared schema needs the prepared operation
+        final String operation = q.preparedSchema.isPresent()
+                ? "PreparedAuthorizationOperation" : "AuthorizationOperation";
+        final AuthorizationEvent event = new AuthorizationEvent();
+        return commit(event, call(operation, AuthorizationResponse.class, request,
+                count(policySet), count(entities), event));
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(com.cedarpolicy.model.AuthorizationRequest q,
+                                              PreparedPolicySet preparedPolicySet, Set<Entity> entities)
+            throws AuthException {
+        requireOpen(preparedPolicySet);
+        requireOpen(q.preparedSchema);
+        final PreparedAuthorizationRequest request = new PreparedAuthorizationRequest(q, preparedPolicySet, entities);
+        final AuthorizationEvent event = new AuthorizationEvent();
+        return commit(event, call("PreparedAuthorizationOperation", AuthorizationResponse.class, request,
+                count(preparedPolicySet), count(entities), event));
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(com.cedarpolicy.model.AuthorizationRequest q,
+                                              PolicySet policySet, EntityStore entityStore) throws AuthException {
+        requireOpen(entityStore);
+        requireOpen(q.preparedSchema);
+        final PreparedAuthorizationRequest request = new PreparedAuthorizationRequest(q, policySet, entityStore);
+        final AuthorizationEvent event = new AuthorizationEvent();
+        return commit(event, call("PreparedAuthorizationOperation", AuthorizationResponse.class, request,
+                count(policySet), CallMetrics.UNKNOWN, event));
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(com.cedarpolicy.model.AuthorizationRequest q,
+                                              PreparedPolicySet preparedPolicySet, EntityStore entityStore)
+            throws AuthException {
+        requireOpen(preparedPolicySet);
+        requireOpen(entityStore);
+        requireOpen(q.preparedSchema);
+        final PreparedAuthorizationRequest request =
+                new PreparedAuthorizationRequest(q, preparedPolicySet, entityStore);
+        final AuthorizationEvent event = new AuthorizationEvent();
+        return commit(event, call("PreparedAuthorizationOperation", AuthorizationResponse.class, request,
+                count(preparedPolicySet), CallMetrics.UNKNOWN, event));
+    }
+
+    @Override
+    public List<AuthorizationResponse> isAuthorizedBatch(List<com.cedarpolicy.model.AuthorizationRequest> requests,
+                                                         PolicySet policySet, Set<Entity> entities)
+            throws AuthException {
+        final AuthorizationResponse[] responses = new AuthorizationResponse[requests.size()];
+        // The native side parses the entities once per batch, and they are parsed with the request schema,
+        // so requests are grouped by schema. Usually every request has the same one.
+        final List<BatchAuthorizationRequest> batches = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            final com.cedarpolicy.model.AuthorizationRequest q = requests.get(i);
+            requireOpen(q.preparedSchema);
+            BatchAuthorizationRequest batch = null;
+            for (BatchAuthorizationRequest candidate : batches) {
+                if (candidate.hasSchemaOf(q)) {
+                    batch = candidate;
+                    break;
+                }
+            }
+            if (batch == null) {
+                batch = new BatchAuthorizationRequest(q, policySet, entities);
+                batches.add(batch);
+            }
+            batch.add(i, q);
+        }
+        for (BatchAuthorizationRequest batch : batches) {
+            final AuthorizationEvent event = new AuthorizationEvent();
+            final AuthorizationResponse[] batchResponses =
+                    call("BatchAuthorizationOperation", AuthorizationResponse[].class, batch,
+                            count(policySet), count(entities), event);
+            if (batchResponses.length != batch.indices.size()) {
+                throw new AuthException("Expected " + batch.indices.size() + " responses but got "
+                        + batchResponses.length);
+            }
+            if (event.shouldCommit()) {
+                int allowed = 0;
+                for (AuthorizationResponse response : batchResponses) {
+                    if (response.success.map(AuthorizationSuccessResponse::isAllowed).orElse(false)) {
+                        allowed++;
+                    }
+                }
+                event.setSuccess(true);
+                event.setDecisions(batchResponses.length, allowed, null);
+                event.commit();
+            }
+            for (int j = 0; j < batchResponses.length; j++) {
+                responses[batch.indices.get(j)] = batchResponses[j];
+            }
+        }
+        return Arrays.asList(responses);
     }
 
     @Experimental(ExperimentalFeature.PARTIAL_EVALUATION)
@@ -63,7 +378,17 @@ public final class BasicAuthorizationEngine implements AuthorizationEngine {
                                                             PolicySet policySet, Set<Entity> entities) throws AuthException {
         try {
             final PartialAuthorizationRequest request = new PartialAuthorizationRequest(q, policySet, entities);
-            return call("AuthorizationPartialOperation", PartialAuthorizationResponse.class, request);
+            final PartialAuthorizationEvent event = new PartialAuthorizationEvent();
+            final PartialAuthorizationResponse response = call("AuthorizationPartialOperation",
+                    PartialAuthorizationResponse.class, request, count(policySet), count(entities), event);
+            if (event.shouldCommit()) {
+                event.setSuccess(response.success.isPresent());
+                response.success.ifPresent(success -> event.setOutcome(
+                        success.getDecision() != null ? success.getDecision().name() : null,
+                        success.getResiduals().size()));
+                event.commit();
+            }
+            return response;
         } catch (InternalException e) {
             if (e.getMessage().contains("AuthorizationPartialOperation")) {
                 throw new MissingExperimentalFeatureException(ExperimentalFeature.PARTIAL_EVALUATION);
@@ -75,12 +400,30 @@ public final class BasicAuthorizationEngine implements AuthorizationEngine {
 
     @Override
     public ValidationResponse validate(ValidationRequest q) throws AuthException {
-        return call("ValidateOperation", ValidationResponse.class, q);
+        requireOpen(q.getPreparedSchema());
+        final String operation = q.getPreparedSchema().isPresent() ? "PreparedValidateOperation" : "ValidateOperation";
+        final ValidationEvent event = new ValidationEvent();
+        final ValidationResponse response =
+                call(operation, ValidationResponse.class, q, count(q.getPolicySet()), 0, event);
+        if (event.shouldCommit()) {
+            event.setSuccess(response.success.isPresent());
+            event.setOutcome(response.validationPassed(),
+                    response.success.map(success -> success.validationErrors.size()).orElse(0));
+            event.commit();
+        }
+        return response;
     }
 
     @Override
     public void validateEntities(EntityValidationRequest q) throws AuthException {
-        EntityValidationResponse entityValidationResponse = call("ValidateEntities", EntityValidationResponse.class, q);
+        final EntityValidationEvent event = new EntityValidationEvent();
+        EntityValidationResponse entityValidationResponse = call("ValidateEntities", EntityValidationResponse.class, q,
+                0, CallMetrics.UNKNOWN, event);
+        if (event.shouldCommit()) {
+            event.setSuccess(entityValidationResponse.success || !entityValidationResponse.isInternal);
+            event.setOutcome(entityValidationResponse.success);
+            event.commit();
+        }
         if (!entityValidationResponse.success) {
             if (entityValidationResponse.isInternal) {
                 throw new InternalException(entityValidationResponse.errors.toArray(new String[0]));
@@ -90,24 +433,65 @@ public final class BasicAuthorizationEngine implements AuthorizationEngine {
         }
     }
 
-    private static <REQ, RESP> RESP call(String operation, Class<RESP> responseClass, REQ request)
-            throws AuthException {
+    /** Record a single authorization in its event, if the event is enabled, and return the response. */
+    private static AuthorizationResponse commit(AuthorizationEvent event, AuthorizationResponse response) {
+        if (event.shouldCommit()) {
+            event.setSuccess(response.success.isPresent());
+            final String decision = response.success.map(success -> success.getDecision().name()).orElse(null);
+            event.setDecisions(1, response.success.map(success -> success.isAllowed() ? 1 : 0).orElse(0), decision);
+            event.commit();
+        }
+        return response;
+    }
+
+    /**
+     * Make a native call, recording it in the given metrics listener and event. The caller commits the
+     * event, since only it knows how to describe the response.
+     */
+    private <REQ, RESP> RESP call(String operation, Class<RESP> responseClass, REQ request,
+                                  int policyCount, int entityCount, NativeCallEvent event) throws AuthException {
+        // The native library only measures itself when there is an array to report to
+        final long[] nativeNanos = metricsListener != null ? new long[NATIVE_STAGES] : null;
+        event.begin();
         try {
-            final String cedarJNIVersion = getCedarJNIVersion();
-            if (!cedarJNIVersion.equals(AuthorizationEngine.getCedarLangVersion())) {
-                throw new AuthException(
-                        "Error, Java Cedar Language version is "
-                                + AuthorizationEngine.getCedarLangVersion()
-                                + " but JNI Cedar Language version is "
-                                + cedarJNIVersion);
+            final long start = System.nanoTime();
+            final byte[] fullRequest;
+            if (wireFormat == WireFormat.CBOR) {
+                fullRequest = cborWriter().writeValueAsBytes(request);
+            } else {
+                // Encode the request POJO as UTF-8 JSON, which the native library reads as is
+                fullRequest = objectWriter().writeValueAsBytes(request);
             }
-            // Convert the request POJO to a JSON string
-            final String fullRequest = objectWriter().writeValueAsString(request);
+            final long serialized = System.nanoTime();
 
-            final String response = callCedarJNI(operation, fullRequest);
+            final byte[] response = callNative(operation, fullRequest, nativeNanos);
+            final long returned = System.nanoTime();
 
-            final JsonNode responseNode = objectReader().readTree(response);
-            return objectReader().readValue(responseNode, responseClass);
+            final RESP result;
+            if (wireFormat == WireFormat.CBOR) {
+                result = cborReader(responseClass).readValue(response);
+            } else {
+                result = objectReader(responseClass).readValue(response);
+            }
+            if (event.isEnabled()) {
+                event.setCall(operation, policyCount, entityCount, fullRequest.length, response.length);
+            }
+            if (metricsListener != null) {
+                final long decoding = nativeNanos[0];
+                final long evaluation = nativeNanos[1];
+                metricsListener.onCall(CallMetrics.builder(operation)
+                        .nanos(CallStage.SERIALIZATION, serialized - start)
+                        .nanos(CallStage.JNI_TRANSFER, Math.max(0, returned - serialized - decoding - evaluation))
+                        .nanos(CallStage.NATIVE_DECODING, decoding)
+                        .nanos(CallStage.NATIVE_EVALUATION, evaluation)
+                        .nanos(CallStage.DESERIALIZATION, System.nanoTime() - returned)
+                        .requestBytes(fullRequest.length)
+                        .responseBytes(response.length)
+                        .policyCount(policyCount)
+                        .entityCount(entityCount)
+                        .build());
+            }
+            return result;
         } catch (JsonProcessingException e) {
             throw new AuthException("JSON Serialization Error", e);
         } catch (IllegalArgumentException e) {
@@ -117,6 +501,107 @@ public final class BasicAuthorizationEngine implements AuthorizationEngine {
         }
     }
 
+    private byte[] callNative(String operation, byte[] request, long[] nativeNanos) throws AuthException {
+        if (virtualThreadPolicy != VirtualThreadPolicy.OFFLOAD || !VirtualThreads.isVirtual(Thread.currentThread())) {
+            return callNativeDirectly(operation, request, nativeNanos);
+        }
+        // Waiting on a future parks a virtual thread rather than pinning it
+        final Future<byte[]> response =
+                OffloadPool.EXECUTOR.submit(() -> callNativeDirectly(operation, request, nativeNanos));
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthException("Interrupted while waiting for the native call", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new AuthException("Native call failed", e.getCause());
+        }
+    }
+
+    private byte[] callNativeDirectly(String operation, byte[] request, long[] nativeNanos) {
+        return wireFormat == WireFormat.CBOR
+                ? callCedarCborJNI(operation, request, nativeNanos)
+                : callCedarJNI(operation, request, nativeNanos);
+    }
+
+    /*
+     * A closed handle would only be noticed while the request is serialized, where Jackson wraps the exception
+     * and call() reports it as an AuthException. Handles are checked up front to throw the documented exception.
+     */
+    private static void requireOpen(PreparedPolicySet preparedPolicySet) {
+        if (preparedPolicySet.isClosed()) {
+            throw new IllegalStateException("PreparedPolicySet has been closed");
+        }
+    }
+
+    private static void requireOpen(EntityStore entityStore) {
+        if (entityStore.isClosed()) {
+            throw new IllegalStateException("EntityStore has been closed");
+        }
+    }
+
+    private static void requireOpen(Optional<PreparedSchema> preparedSchema) {
+        if (preparedSchema.isPresent() && preparedSchema.get().isClosed()) {
+            throw new IllegalStateException("PreparedSchema has been closed");
+        }
+    }
+
+    private static int count(PolicySet policySet) {
+        return policySet != null ? policySet.getNumPolicies() : CallMetrics.UNKNOWN;
+    }
+
+    private static int count(PreparedPolicySet preparedPolicySet) {
+        return preparedPolicySet != null ? preparedPolicySet.getNumPolicies() : CallMetrics.UNKNOWN;
+    }
+
+    private static int count(Collection<?> entities) {
+        return entities != null ? entities.size() : CallMetrics.UNKNOWN;
+    }
+
+    /** The platform threads that make native calls for virtual threads, created on first use. */
+    private static final class OffloadPool {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Integer.getInteger(OFFLOAD_POOL_SIZE_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                new ThreadFactoryBuilder().setNameFormat("cedar-offload-%d").setDaemon(true).build());
+
+        private OffloadPool() {
+        }
+    }
+
+    /** Detection of virtual threads, which only exist from Java 21. */
+    private static final class VirtualThreads {
+        private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+        private VirtualThreads() {
+        }
+
+        private static MethodHandle findIsVirtual() {
+            try {
+                return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual",
+                        MethodType.methodType(boolean.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        static boolean isVirtual(Thread thread) {
+            if (IS_VIRTUAL == null) {
+                return false;
+            }
+            try {
+                return (boolean) IS_VIRTUAL.invokeExact(thread);
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+    }
+
     /**
      * The result of processing an EntityValidationRequest.
      */
@@ -156,16 +641,73 @@ public final class BasicAuthorizationEngine implements AuthorizationEngine {
         @JsonProperty private final Set<Entity> entities;
 
         AuthorizationRequest(com.cedarpolicy.model.AuthorizationRequest request, PolicySet policySet, Set<Entity> entities) {
-            super(
-                    request.principalEUID,
-                    request.actionEUID,
-                    request.resourceEUID,
-                    request.context,
-                    request.schema,
-                    request.enableRequestValidation);
+            super(request);
+            this.policies = policySet;
+            this.entities = entities;
+        }
+    }
+
+    /**
+     * A request for the prepared operation. Policies are either a {@link PolicySet} or a
+     * {@link PreparedPolicySet}, and entities are either a set of {@link Entity} or an {@link EntityStore}.
+     */
+    private static final class PreparedAuthorizationRequest extends com.cedarpolicy.model.AuthorizationRequest {
+        @JsonProperty private final Object policies;
+        @JsonProperty private final Object entities;
+
+        PreparedAuthorizationRequest(com.cedarpolicy.model.AuthorizationRequest request,
+                                     Object policies, Object entities) {
+            super(request);
+            this.policies = policies;
+            this.entities = entities;
+        }
+    }
+
+    /** Requests that share their policies, entities and schema, answered in a single native call. */
+    private static final class BatchAuthorizationRequest {
+        @JsonProperty private final List<BatchEntry> requests = new ArrayList<>();
+        @JsonProperty private final Optional<Schema> schema;
+        @JsonInclude(JsonInclude.Include.NON_ABSENT)
+        @JsonProperty private final Optional<PreparedSchema> preparedSchema;
+        @JsonProperty private final PolicySet policies;
+        @JsonProperty private final Set<Entity> entities;
+        /** Position of each request in the list passed to isAuthorizedBatch. */
+        private final List<Integer> indices = new ArrayList<>();
+
+        BatchAuthorizationRequest(com.cedarpolicy.model.AuthorizationRequest first,
+                                  PolicySet policySet, Set<Entity> entities) {
+            this.schema = first.schema;
+            this.preparedSchema = first.preparedSchema;
             this.policies = policySet;
             this.entities = entities;
         }
+
+        boolean hasSchemaOf(com.cedarpolicy.model.AuthorizationRequest request) {
+            return schema.orElse(null) == request.schema.orElse(null)
+                    && preparedSchema.orElse(null) == request.preparedSchema.orElse(null);
+        }
+
+        void add(int index, com.cedarpolicy.model.AuthorizationRequest request) {
+            indices.add(index);
+            requests.add(new BatchEntry(request));
+        }
+    }
+
+    /** One request of a batch, without the schema shared by the whole batch. */
+    private static final class BatchEntry {
+        @JsonProperty private final EntityUID principal;
+        @JsonProperty private final EntityUID action;
+        @JsonProperty private final EntityUID resource;
+        @JsonProperty private final Optional<Map<String, Value>> context;
+        @JsonProperty private final boolean validateRequest;
+
+        BatchEntry(com.cedarpolicy.model.AuthorizationRequest request) {
+            this.principal = request.principalEUID;
+            this.action = request.actionEUID;
+            this.resource = request.resourceEUID;
+            this.context = request.context;
+            this.validateRequest = request.enableRequestValidation;
+        }
     }
 
     @JsonInclude(JsonInclude.Include.NON_ABSENT)
@@ -190,15 +732,37 @@ public final class BasicAuthorizationEngine implements AuthorizationEngine {
      * Call out to the Rust implementation.
      *
      * @param call Call type ("AuthorizationOperation" or "ValidateOperation").
-     * @param input Request input in JSON format as a String
-     * @return The response (permit / deny for authorization, valid / invalid for validation)
+     * @param input Request input in JSON format, encoded as UTF-8
+     * @param nativeNanos Array that receives the nanoseconds spent decoding and answering the request, in
+     *     that order, or null if they are not needed. See {@link CallStage} for what each covers.
+     * @return The response (permit / deny for authorization, valid / invalid for validation) in JSON
+     *     format, encoded as UTF-8
+     */
+    private static native byte[] callCedarJNI(String call, byte[] input, long[] nativeNanos);
+
+    /**
+     * Call out to the Rust implementation with a request and response encoded as CBOR.
+     *
+     * @param call Call type, as for {@link #callCedarJNI(String, byte[], long[])}
+     * @param input Request input in CBOR format
+     * @param nativeNanos Array that receives the native timings, as for {@link #callCedarJNI(String, byte[], long[])}
+     * @return The response in CBOR format
+     */
+    private static native byte[] callCedarCborJNI(String call, byte[] input, long[] nativeNanos);
+
+    /**
+     * Select how native calls are executed. A pool size or stack size of 0 keeps the current setting.
+     *
+     * @param mode Name of the execution mode
+     * @param poolSize Number of native worker threads
+     * @param stackSize Native stack size in bytes
      */
-    private static native String callCedarJNI(String call, String input);
+    private static native void configureExecutionJni(String mode, int poolSize, long stackSize);
 
     /**
-     * Get the Cedar language major version supported by the JNI (e.g., "1.2")
+     * Get the name of the current execution mode.
      *
-     * @return The Cedar language version supported by the JNI
+     * @return The name of the execution mode
      */
-    private static native String getCedarJNIVersion();
+    private static native String getExecutionModeJni();
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.ValidationRequest;
+import com.cedarpolicy.model.ValidationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link AsyncAuthorizationEngine} that runs requests on a fixed number of threads, with a bounded
+ * queue of requests waiting for a thread.
+ *
+ * <p>When the queue is full, new requests are rejected straight away: their futures complete
+ * exceptionally with a {@link RejectedExecutionException} rather than blocking the caller. This lets
+ * servers shed load instead of piling up requests they cannot answer in time.
+ *
+ * <p>The engine owns its threads, so it should be closed when no longer needed. Requests that were
+ * accepted before the engine was closed are still answered.
+ */
+public final class BoundedAsyncAuthorizationEngine implements AsyncAuthorizationEngine, AutoCloseable {
+    private final AuthorizationEngine engine;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Construct an engine that answers requests with a {@link BasicAuthorizationEngine}.
+     *
+     * @param parallelism The number of requests answered at the same time
+     * @param queueCapacity The number of requests that may wait for a thread before new ones are rejected
+     * @throws IllegalArgumentException if the parallelism is not positive or the queue capacity is negative
+     */
+    public BoundedAsyncAuthorizationEngine(int parallelism, int queueCapacity) {
+        this(new BasicAuthorizationEngine(), parallelism, queueCapacity);
+    }
+
+    /**
+     * Construct an engine that answers requests with the given blocking engine.
+     *
+     * @param engine The engine that answers requests
+     * @param parallelism The number of requests answered at the same time
+     * @param queueCapacity The number of requests that may wait for a thread before new ones are rejected
+     * @throws IllegalArgumentException if the parallelism is not positive or the queue capacity is negative
+     * @throws NullPointerException if the engine is null
+     */
+    public BoundedAsyncAuthorizationEngine(AuthorizationEngine engine, int parallelism, int queueCapacity) {
+        if (engine == null) {
+            throw new NullPointerException("engine");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive but was " + parallelism);
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queueCapacity must not be negative but was " + queueCapacity);
+        }
+        this.engine = engine;
+        // A synchronous queue only accepts a request if a thread is idle and ready to take it
+        final BlockingQueue<Runnable> queue = queueCapacity == 0
+                ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, queue,
+                new ThreadFactoryBuilder().setNameFormat("cedar-async-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public CompletableFuture<AuthorizationResponse> isAuthorizedAsync(AuthorizationRequest request,
+                                                                      PolicySet policySet, Set<Entity> entities) {
+        return submit(() -> engine.isAuthorized(request, policySet, entities));
+    }
+
+    @Override
+    public CompletableFuture<AuthorizationResponse> isAuthorizedAsync(AuthorizationRequest request,
+                                                                      PreparedPolicySet preparedPolicySet,
+                                                                      Set<Entity> entities) {
+        return submit(() -> engine.isAuthorized(request, preparedPolicySet, entities));
+    }
+
+    @Override
+    public CompletableFuture<AuthorizationResponse> isAuthorizedAsync(AuthorizationRequest request,
+                                                                      PolicySet policySet,
+                                                                      EntityStore entityStore) {
+        return submit(() -> engine.isAuthorized(request, policySet, entityStore));
+    }
+
+    @Override
+    public CompletableFuture<AuthorizationResponse> isAuthorizedAsync(AuthorizationRequest request,
+                                                                      PreparedPolicySet preparedPolicySet,
+                                                                      EntityStore entityStore) {
+        return submit(() -> engine.isAuthorized(request, preparedPolicySet, entityStore));
+    }
+
+    @Override
+    public CompletableFuture<ValidationResponse> validateAsync(ValidationRequest request) {
+        return submit(() -> engine.validate(request));
+    }
+
+    /**
+     * Get the number of accepted requests that are waiting for a thread.
+     *
+     * @return the number of queued requests
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stop accepting requests. Requests that were already accepted are still answered, but new
+     * requests are rejected. Closing an already closed engine has no effect.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(EngineCall<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // Nobody is waiting for the answer to a cancelled request
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(call.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /** A call to the blocking engine. */
+    @FunctionalInterface
+    private interface EngineCall<T> {
+        T call() throws AuthException;
+    }
+}
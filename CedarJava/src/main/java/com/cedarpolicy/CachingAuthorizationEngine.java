@@ -0,0 +1,378 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.EntityValidationRequest;
+import com.cedarpolicy.model.PartialAuthorizationRequest;
+import com.cedarpolicy.model.PartialAuthorizationResponse;
+import com.cedarpolicy.model.ValidationRequest;
+import com.cedarpolicy.model.ValidationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.Value;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.HashCode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An authorization engine that remembers recent authorization decisions and answers repeated
+ * requests without calling Cedar again. Everything other than {@code isAuthorized} and
+ * {@code isAuthorizedBatch} is passed straight to the underlying engine.
+ *
+ * <p>A decision is reused only for a request with the same principal, action, resource, context,
+ * schema and request validation setting, made against the same version of the policies and
+ * entities. Versions are stamps that are cheap to compare, so a cache hit costs no more than
+ * looking up the request:
+ * <ul>
+ *   <li>A {@link PreparedPolicySet} cannot change, so it is its own version.</li>
+ *   <li>An {@link EntityStore} is versioned by its {@linkplain EntityStore#getVersion() version},
+ *       so updating the store invalidates the decisions made against it.</li>
+ *   <li>A {@link PolicySet} or set of entities can be modified at any time, so its version is
+ *       supplied by the caller through
+ *       {@link #isAuthorized(AuthorizationRequest, PolicySet, long, Set, long)} and the other
+ *       methods that take versions. Equal versions must mean equal content.</li>
+ * </ul>
+ *
+ * <p>The {@link AuthorizationEngine} methods that take a {@link PolicySet} or a set of entities
+ * without a version are passed to the underlying engine without caching, as there is no cheap way
+ * to tell whether their content changed. Schemas are compared by content, which is read once per
+ * {@link Schema} instance, and prepared schemas by identity. Keys never keep policy sets, entity
+ * sets, schemas or native handles reachable.
+ *
+ * <p>Only successful responses are cached, so a failed request is retried the next time it is made.
+ * Decisions are evicted once the cache is full, least recently used first, and expire a fixed time
+ * after they were made. Instances are safe to share between threads.
+ */
+public final class CachingAuthorizationEngine implements AuthorizationEngine {
+    private final AuthorizationEngine engine;
+    private final Cache<CacheKey, AuthorizationResponse> cache;
+    /** A token for each native handle, so that keys can identify a handle without referring to it */
+    private final LoadingCache<Object, Object> handleTokens =
+            CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(handle -> new Object()));
+    /** Digests of the schemas seen so far, which are immutable */
+    private final LoadingCache<Schema, HashCode> schemaDigests =
+            CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(Fingerprint::of));
+
+    /**
+     * Construct a caching engine in front of another engine.
+     *
+     * @param engine The engine that answers requests that are not in the cache
+     * @param maximumSize The maximum number of decisions to keep
+     * @param timeToLive How long a decision is kept after it was made
+     * @throws IllegalArgumentException if the maximum size or time to live is negative
+     * @throws NullPointerException if the engine or time to live is null
+     */
+    public CachingAuthorizationEngine(AuthorizationEngine engine, long maximumSize, Duration timeToLive) {
+        this.engine = Objects.requireNonNull(engine, "engine");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The policies and entities have no version, so the request is not cached.
+     */
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet,
+                                              Set<Entity> entities) throws AuthException {
+        return engine.isAuthorized(request, policySet, entities);
+    }
+
+    /**
+     * Asks whether the given request is approved by a version of a policy set and set of entities,
+     * reusing the decision made for an earlier request against the same versions.
+     *
+     * @param request The request to evaluate
+     * @param policySet The policy set to evaluate against
+     * @param policyVersion The version of the policy set. Policy sets with the same version must
+     *     contain the same policies, templates and links.
+     * @param entities The entities to evaluate against
+     * @param entitiesVersion The version of the entities. Sets of entities with the same version
+     *     must contain the same entities.
+     * @return The result of the request evaluation
+     * @throws AuthException On failure to make the authorization request
+     */
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet, long policyVersion,
+                                              Set<Entity> entities, long entitiesVersion) throws AuthException {
+        return cached(key(request, policyVersion, entitiesVersion, 0L),
+                () -> engine.isAuthorized(request, policySet, entities));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The entities have no version, so the request is not cached.
+     */
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PreparedPolicySet preparedPolicySet,
+                                              Set<Entity> entities) throws AuthException {
+        return engine.isAuthorized(request, preparedPolicySet, entities);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The policies have no version, so the request is not cached.
+     */
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet,
+                                              EntityStore entityStore) throws AuthException {
+        return engine.isAuthorized(request, policySet, entityStore);
+    }
+
+    /**
+     * Asks whether the given request is approved by a version of a policy set and the entities
+     * currently in an entity store, reusing the decision made for an earlier request against the
+     * same policy version and store version.
+     *
+     * @param request The request to evaluate
+     * @param policySet The policy set to evaluate against
+     * @param policyVersion The version of the policy set. Policy sets with the same version must
+     *     contain the same policies, templates and links.
+     * @param entityStore The entity store to evaluate against
+     * @return The result of the request evaluation
+     * @throws AuthException On failure to make the authorization request
+     */
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet, long policyVersion,
+                                              EntityStore entityStore) throws AuthException {
+        // Read the version before making the request, so that an update made while the request
+        // is running can only cause a decision to be cached as older than it is, never newer
+        return cached(key(request, policyVersion, token(entityStore), entityStore.getVersion()),
+                () -> engine.isAuthorized(request, policySet, entityStore));
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PreparedPolicySet preparedPolicySet,
+                                              EntityStore entityStore) throws AuthException {
+        return cached(key(request, token(preparedPolicySet), token(entityStore), entityStore.getVersion()),
+                () -> engine.isAuthorized(request, preparedPolicySet, entityStore));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The policies and entities have no version, so the requests are not cached.
+     */
+    @Override
+    public List<AuthorizationResponse> isAuthorizedBatch(List<AuthorizationRequest> requests, PolicySet policySet,
+                                                         Set<Entity> entities) throws AuthException {
+        return engine.isAuthorizedBatch(requests, policySet, entities);
+    }
+
+    /**
+     * Asks whether each of the given requests is approved by a version of a policy set and set of
+     * entities. Requests whose decisions are cached are answered from the cache, and the rest are
+     * passed to the underlying engine as a single batch.
+     *
+     * @param requests The requests to evaluate
+     * @param policySet The policy set to evaluate against
+     * @param policyVersion The version of the policy set, as for
+     *     {@link #isAuthorized(AuthorizationRequest, PolicySet, long, Set, long)}
+     * @param entities The entities to evaluate against
+     * @param entitiesVersion The version of the entities, as for
+     *     {@link #isAuthorized(AuthorizationRequest, PolicySet, long, Set, long)}
+     * @return The result of evaluating each request, in the same order as <code>requests</code>
+     * @throws AuthException On failure to make the authorization requests
+     */
+    public List<AuthorizationResponse> isAuthorizedBatch(List<AuthorizationRequest> requests, PolicySet policySet,
+                                                         long policyVersion, Set<Entity> entities,
+                                                         long entitiesVersion) throws AuthException {
+        final List<AuthorizationResponse> responses = new ArrayList<>(requests.size());
+        final List<CacheKey> missingKeys = new ArrayList<>();
+        final List<AuthorizationRequest> missing = new ArrayList<>();
+        final List<Integer> missingIndices = new ArrayList<>();
+        for (AuthorizationRequest request : requests) {
+            final CacheKey key = key(request, policyVersion, entitiesVersion, 0L);
+            final AuthorizationResponse response = cache.getIfPresent(key);
+            if (response == null) {
+                missingKeys.add(key);
+                missing.add(request);
+                missingIndices.add(responses.size());
+            }
+            responses.add(response);
+        }
+        if (!missing.isEmpty()) {
+            final List<AuthorizationResponse> answered = engine.isAuthorizedBatch(missing, policySet, entities);
+            if (answered.size() != missing.size()) {
+                throw new AuthException("Expected " + missing.size() + " responses but got " + answered.size());
+            }
+            for (int i = 0; i < answered.size(); i++) {
+                remember(missingKeys.get(i), answered.get(i));
+                responses.set(missingIndices.get(i), answered.get(i));
+            }
+        }
+        return responses;
+    }
+
+    @Experimental(ExperimentalFeature.PARTIAL_EVALUATION)
+    @Override
+    public PartialAuthorizationResponse isAuthorizedPartial(PartialAuthorizationRequest request, PolicySet policySet,
+                                                            Set<Entity> entities) throws AuthException {
+        return engine.isAuthorizedPartial(request, policySet, entities);
+    }
+
+    @Override
+    public ValidationResponse validate(ValidationRequest request) throws AuthException {
+        return engine.validate(request);
+    }
+
+    @Override
+    public void validateEntities(EntityValidationRequest request) throws AuthException {
+        engine.validateEntities(request);
+    }
+
+    /**
+     * Get the hit and miss counts of the cache.
+     *
+     * @return statistics of the cache since it was created
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Get the number of decisions currently cached.
+     *
+     * @return the approximate number of cached decisions
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /** Forget all cached decisions. */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private CacheKey key(AuthorizationRequest request, Object policies, Object entities, long entitiesVersion) {
+        final Object schema = request.schema.map(schemaDigests::getUnchecked).orElse(null);
+        final Object preparedSchema = request.preparedSchema.map(this::token).orElse(null);
+        return new CacheKey(request, schema, preparedSchema, policies, entities, entitiesVersion);
+    }
+
+    private Object token(Object handle) {
+        return handleTokens.getUnchecked(handle);
+    }
+
+    private AuthorizationResponse cached(CacheKey key, EngineCall call) throws AuthException {
+        final AuthorizationResponse cachedResponse = cache.getIfPresent(key);
+        if (cachedResponse != null) {
+            return cachedResponse;
+        }
+        final AuthorizationResponse response = call.call();
+        remember(key, response);
+        return response;
+    }
+
+    /** Cache a response unless it is a failure, which may not happen again. */
+    private void remember(CacheKey key, AuthorizationResponse response) {
+        if (response.success.isPresent()) {
+            cache.put(key, response);
+        }
+    }
+
+    /** A call to the underlying engine. */
+    @FunctionalInterface
+    private interface EngineCall {
+        AuthorizationResponse call() throws AuthException;
+    }
+
+    /**
+     * Everything that determines an authorization decision. Schemas are represented by the digest of
+     * their content, policies and entities by their version, and native handles by their token.
+     */
+    private static final class CacheKey {
+        private final EntityUID principal;
+        private final EntityUID action;
+        private final EntityUID resource;
+        private final Optional<Map<String, Value>> context;
+        private final Object schema;
+        private final Object preparedSchema;
+        private final boolean enableRequestValidation;
+        private final Object policies;
+        private final Object entities;
+        private final long entitiesVersion;
+        private final int hash;
+
+        CacheKey(AuthorizationRequest request, Object schema, Object preparedSchema, Object policies, Object entities,
+                 long entitiesVersion) {
+            this.principal = request.principalEUID;
+            this.action = request.actionEUID;
+            this.resource = request.resourceEUID;
+            // Copy the context so later changes to the caller's map cannot change the key
+            this.context = request.context.map(c -> Collections.unmodifiableMap(new HashMap<>(c)));
+            this.schema = schema;
+            this.preparedSchema = preparedSchema;
+            this.enableRequestValidation = request.enableRequestValidation;
+            this.policies = policies;
+            this.entities = entities;
+            this.entitiesVersion = entitiesVersion;
+            this.hash = Objects.hash(principal, action, resource, context, schema, preparedSchema,
+                    enableRequestValidation, policies, entities, entitiesVersion);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) o;
+            return hash == other.hash
+                    && entitiesVersion == other.entitiesVersion
+                    && enableRequestValidation == other.enableRequestValidation
+                    && principal.equals(other.principal)
+                    && action.equals(other.action)
+                    && resource.equals(other.resource)
+                    && context.equals(other.context)
+                    && Objects.equals(schema, other.schema)
+                    && Objects.equals(preparedSchema, other.preparedSchema)
+                    && policies.equals(other.policies)
+                    && entities.equals(other.entities);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
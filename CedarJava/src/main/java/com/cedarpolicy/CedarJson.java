@@ -31,10 +31,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 final class CedarJson {
-    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper(new ObjectMapper());
+    private static final ObjectMapper CBOR_MAPPER = createObjectMapper(new CBORMapper());
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectReader> CBOR_READERS = new ConcurrentHashMap<>();
 
     private CedarJson() {
         throw new IllegalStateException("Utility class");
@@ -52,9 +59,39 @@ final class CedarJson {
         return OBJECT_MAPPER.reader();
     }
 
-    private static ObjectMapper createObjectMapper() {
-        final ObjectMapper mapper = new ObjectMapper();
+    /**
+     * Get a reader that binds JSON to the given type. Readers are cached, so the deserializer for
+     * the type is only looked up once.
+     *
+     * @param type the type to bind to
+     * @return a reader for the type
+     */
+    public static ObjectReader objectReader(Class<?> type) {
+        return READERS.computeIfAbsent(type, OBJECT_MAPPER::readerFor);
+    }
+
+    /**
+     * Get a writer that encodes values as CBOR, with the same structure as {@link #objectWriter()}
+     * gives them in JSON.
+     *
+     * @return a CBOR writer
+     */
+    public static ObjectWriter cborWriter() {
+        return CBOR_MAPPER.writer();
+    }
+
+    /**
+     * Get a reader that binds CBOR to the given type. Readers are cached like those of
+     * {@link #objectReader(Class)}.
+     *
+     * @param type the type to bind to
+     * @return a CBOR reader for the type
+     */
+    public static ObjectReader cborReader(Class<?> type) {
+        return CBOR_READERS.computeIfAbsent(type, CBOR_MAPPER::readerFor);
+    }
 
+    private static ObjectMapper createObjectMapper(ObjectMapper mapper) {
         final SimpleModule module = new SimpleModule();
         module.addSerializer(Entity.class, new EntitySerializer());
         module.addSerializer(Schema.class, new SchemaSerializer());
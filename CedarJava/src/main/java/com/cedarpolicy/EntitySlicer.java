@@ -0,0 +1,236 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.serializer.JsonEUID;
+import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.CedarMap;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Finds the entities an authorization request can reach, so that only those need to be sent to
+ * Cedar.
+ *
+ * <p>Evaluating a request can only look at the principal, action and resource, entities named in
+ * the context or in the policies, and entities reached from those through attributes and tags.
+ * Checking membership with {@code in} also needs the ancestors of each of these. The slice holds
+ * exactly those entities, so as long as attribute chains are followed at least as deep as the
+ * policies follow them, decisions, reasons and errors are the same as with every entity.
+ *
+ * <p>Ancestors are always followed in full, as they never cost an attribute access. Slicers are
+ * immutable and safe to share between threads.
+ *
+ * <p>A slice is only equivalent for requests without a schema. With a schema, Cedar checks every
+ * entity it is sent against the schema, so an entity outside the slice that does not conform makes
+ * the full request fail but not the sliced one.
+ */
+public final class EntitySlicer {
+    private final int maxDepth;
+
+    /** Construct a slicer that follows attribute references to any depth. */
+    public EntitySlicer() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Construct a slicer that follows chains of at most {@code maxDepth} attribute or tag
+     * references. A depth of 1 is enough for policies such as {@code principal.manager.level > 3},
+     * while a depth of 0 only keeps the roots of the request and their ancestors.
+     *
+     * @param maxDepth the longest chain of references to follow
+     * @throws IllegalArgumentException if the depth is negative
+     */
+    public EntitySlicer(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Get the longest chain of attribute or tag references the slicer follows.
+     *
+     * @return the maximum depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Find the entity literals in the policies and templates of a policy set, such as
+     * {@code Group::"admins"} in {@code principal in Group::"admins"}.
+     *
+     * @param policySet the policies to search
+     * @return the entities named in the policies, or empty if a policy could not be read, in which
+     *     case the policies may reach any entity
+     */
+    public static Optional<Set<EntityUID>> entityLiterals(PolicySet policySet) {
+        final Set<EntityUID> literals = new HashSet<>();
+        final List<Collection<Policy>> groups = Arrays.asList(policySet.policies, policySet.templates);
+        for (Collection<Policy> policies : groups) {
+            for (Policy policy : policies) {
+                try {
+                    collectLiterals(CedarJson.objectReader().readTree(policy.toJson()), literals);
+                } catch (InternalException | JsonProcessingException e) {
+                    return Optional.empty();
+                }
+            }
+        }
+        policySet.templateLinks.forEach(link -> literals.addAll(link.getLinkValues().values()));
+        return Optional.of(literals);
+    }
+
+    /**
+     * Find the entities a request against the given policies can reach.
+     *
+     * @param request the request
+     * @param entities all entities the request could be made against
+     * @param policySet the policies the request is made against
+     * @return the entities the request can reach, or all entities if the policies could not be read
+     */
+    public Set<Entity> slice(AuthorizationRequest request, Set<Entity> entities, PolicySet policySet) {
+        return entityLiterals(policySet)
+                .map(literals -> slice(Collections.singletonList(request), entities, literals))
+                .orElse(entities);
+    }
+
+    /**
+     * Find the entities any of a number of requests can reach, given the entities the policies name.
+     *
+     * @param requests the requests
+     * @param entities all entities the requests could be made against
+     * @param literals the entities named in the policies, as found by {@link #entityLiterals(PolicySet)}
+     * @return the entities the requests can reach
+     */
+    public Set<Entity> slice(List<AuthorizationRequest> requests, Set<Entity> entities, Set<EntityUID> literals) {
+        return slice(requests, index(entities), literals);
+    }
+
+    /**
+     * Index entities by uid, so that any number of slices can be taken from them without indexing
+     * them again.
+     *
+     * @param entities the entities
+     * @return the entities by uid
+     */
+    public static Map<EntityUID, Entity> index(Set<Entity> entities) {
+        final Map<EntityUID, Entity> byUid = new HashMap<>(entities.size() * 2);
+        for (Entity entity : entities) {
+            byUid.put(entity.getEUID(), entity);
+        }
+        return Collections.unmodifiableMap(byUid);
+    }
+
+    /**
+     * Find the entities any of a number of requests can reach, given entities indexed by
+     * {@link #index(Set)} and the entities the policies name.
+     *
+     * @param requests the requests
+     * @param byUid all entities the requests could be made against, by uid
+     * @param literals the entities named in the policies, as found by {@link #entityLiterals(PolicySet)}
+     * @return the entities the requests can reach
+     */
+    public Set<Entity> slice(List<AuthorizationRequest> requests, Map<EntityUID, Entity> byUid,
+                             Set<EntityUID> literals) {
+        final Set<EntityUID> roots = new HashSet<>(literals);
+        for (AuthorizationRequest request : requests) {
+            roots.add(request.principalEUID);
+            roots.add(request.actionEUID);
+            roots.add(request.resourceEUID);
+            request.context.ifPresent(context -> context.values().forEach(value -> collectUids(value, roots)));
+        }
+
+        // The smallest number of references needed to reach each entity. Following a parent costs
+        // nothing and following an attribute costs one, so parents go to the front of the queue
+        final Map<EntityUID, Integer> depths = new HashMap<>();
+        final Deque<EntityUID> pending = new ArrayDeque<>();
+        for (EntityUID root : roots) {
+            depths.put(root, 0);
+            pending.add(root);
+        }
+        final Set<Entity> slice = new HashSet<>();
+        final Set<EntityUID> referenced = new HashSet<>();
+        while (!pending.isEmpty()) {
+            final EntityUID uid = pending.poll();
+            final Entity entity = byUid.get(uid);
+            if (entity == null) {
+                continue;
+            }
+            slice.add(entity);
+            final int depth = depths.get(uid);
+            for (EntityUID parent : entity.getParents()) {
+                if (depths.getOrDefault(parent, Integer.MAX_VALUE) > depth) {
+                    depths.put(parent, depth);
+                    pending.addFirst(parent);
+                }
+            }
+            if (depth < maxDepth) {
+                referenced.clear();
+                entity.attrs.values().forEach(value -> collectUids(value, referenced));
+                entity.getTags().values().forEach(value -> collectUids(value, referenced));
+                for (EntityUID reference : referenced) {
+                    if (depths.getOrDefault(reference, Integer.MAX_VALUE) > depth + 1) {
+                        depths.put(reference, depth + 1);
+                        pending.addLast(reference);
+                    }
+                }
+            }
+        }
+        return slice;
+    }
+
+    private static void collectUids(Value value, Set<EntityUID> uids) {
+        if (value instanceof EntityUID) {
+            uids.add((EntityUID) value);
+        } else if (value instanceof CedarList) {
+            ((CedarList) value).forEach(element -> collectUids(element, uids));
+        } else if (value instanceof CedarMap) {
+            ((CedarMap) value).values().forEach(element -> collectUids(element, uids));
+        }
+    }
+
+    private static void collectLiterals(JsonNode node, Set<EntityUID> literals) {
+        if (node.isObject() && node.size() == 2 && node.path("type").isTextual() && node.path("id").isTextual()) {
+            EntityUID.parseFromJson(new JsonEUID(node.get("type").asText(), node.get("id").asText()))
+                    .ifPresent(literals::add);
+            return;
+        }
+        for (JsonNode child : node) {
+            collectLiterals(child, literals);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.schema.Schema;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * SHA-256 digests of the source of schemas, so that a digest can stand in for a schema in a cache
+ * key without keeping the schema alive. Every string is written with its length, so that different
+ * sources cannot be written as the same bytes.
+ */
+final class Fingerprint {
+    private static final HashFunction HASH = Hashing.sha256();
+
+    private Fingerprint() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Digest the source of a schema.
+     *
+     * @param schema the schema
+     * @return the digest of its source
+     */
+    static HashCode of(Schema schema) {
+        final Hasher hasher = HASH.newHasher();
+        putString(hasher, String.valueOf(schema.type));
+        putString(hasher, schema.schemaJson.map(Object::toString).orElse(null));
+        putString(hasher, schema.schemaText.orElse(null));
+        return hasher.hash();
+    }
+
+    private static void putString(Hasher hasher, String s) {
+        if (s == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(s.length()).putUnencodedChars(s);
+        }
+    }
+}
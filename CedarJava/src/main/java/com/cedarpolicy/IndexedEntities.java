@@ -0,0 +1,75 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.value.EntityUID;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A snapshot of a set of entities, indexed by uid. Engines that look entities up by uid take a
+ * snapshot that the caller builds once and reuses for as many requests as it likes.
+ *
+ * <p>The snapshot copies the set, so adding entities to or removing them from the original set
+ * afterwards does not change it. The entities themselves are not copied. Snapshots are immutable
+ * and safe to share between threads.
+ */
+public final class IndexedEntities {
+    private final Set<Entity> entities;
+    private final Map<EntityUID, Entity> byUid;
+
+    private IndexedEntities(Set<Entity> entities) {
+        final Map<EntityUID, Entity> index = new HashMap<>(entities.size() * 2);
+        for (Entity entity : entities) {
+            index.put(entity.getEUID(), entity);
+        }
+        this.entities = Collections.unmodifiableSet(new HashSet<>(entities));
+        this.byUid = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Take a snapshot of a set of entities.
+     *
+     * @param entities the entities
+     * @return a snapshot of the entities, indexed by uid
+     */
+    public static IndexedEntities of(Set<Entity> entities) {
+        return new IndexedEntities(entities);
+    }
+
+    /**
+     * Get the entities in the snapshot.
+     *
+     * @return an unmodifiable set of the entities
+     */
+    public Set<Entity> getEntities() {
+        return entities;
+    }
+
+    /**
+     * Get the entities in the snapshot by uid.
+     *
+     * @return an unmodifiable map from the uid of each entity to the entity
+     */
+    public Map<EntityUID, Entity> getByUid() {
+        return byUid;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.value.EntityUID;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A snapshot of a policy set together with the entities its policies name, as found by
+ * {@link EntitySlicer#entityLiterals(PolicySet)}. Engines that slice entities take a snapshot that
+ * the caller builds once and reuses for as many requests as it likes.
+ *
+ * <p>The snapshot copies the policy set, so changes made to the policy set afterwards are not seen
+ * and the literals always match the policies sent to Cedar. Snapshots are immutable and safe to
+ * share between threads.
+ */
+public final class PolicyLiterals {
+    private final PolicySet policySet;
+    private final Optional<Set<EntityUID>> literals;
+
+    private PolicyLiterals(PolicySet policySet) {
+        this.policySet = PolicyScopeIndex.copyOf(policySet);
+        this.literals = EntitySlicer.entityLiterals(this.policySet).map(Collections::unmodifiableSet);
+    }
+
+    /**
+     * Take a snapshot of a policy set and find the entities its policies name.
+     *
+     * @param policySet the policies
+     * @return a snapshot of the policies and their entity literals
+     */
+    public static PolicyLiterals of(PolicySet policySet) {
+        return new PolicyLiterals(policySet);
+    }
+
+    /**
+     * Get the copy of the policy set the snapshot was taken of.
+     *
+     * @return the policies, templates and links
+     */
+    public PolicySet getPolicySet() {
+        return policySet;
+    }
+
+    /**
+     * Get the entities named in the policies.
+     *
+     * @return the entities named in the policies, or empty if a policy could not be read, in which
+     *     case the policies may reach any entity
+     */
+    public Optional<Set<EntityUID>> getLiterals() {
+        return literals;
+    }
+}
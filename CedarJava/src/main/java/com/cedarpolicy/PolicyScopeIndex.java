@@ -0,0 +1,293 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.serializer.JsonEUID;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An index of the scopes of the static policies in a {@link PolicySet}, used to find the policies
+ * that could apply to a request before sending them to Cedar.
+ *
+ * <p>A policy applies to a request only if the principal, action and resource of the request all
+ * satisfy the policy's scope, and a policy that does not apply is neither satisfied nor can it
+ * cause an error. Leaving such policies out therefore gives the same decision, reasons and errors
+ * as evaluating the whole policy set.
+ *
+ * <p>The index is built from the JSON form of each policy. Templates and template-linked policies
+ * are not indexed and are always candidates, as are policies whose JSON cannot be read.
+ *
+ * <p>The index is built from a copy of the policy set, and candidates are always taken from that
+ * copy, so changes made to the policy set afterwards are not seen. Build a new index to pick them
+ * up. Indexes are immutable and safe to share between threads.
+ */
+public final class PolicyScopeIndex {
+    private final PolicySet policySet;
+    private final Policy[] policies;
+    private final Slot principal = new Slot();
+    private final Slot action = new Slot();
+    private final Slot resource = new Slot();
+
+    private PolicyScopeIndex(PolicySet policySet) {
+        this.policySet = copyOf(policySet);
+        this.policies = this.policySet.policies.toArray(new Policy[0]);
+        for (int i = 0; i < policies.length; i++) {
+            final Optional<JsonNode> json = scopeOf(policies[i]);
+            if (!json.isPresent()
+                    || !principal.add(i, json.get().path("principal"))
+                    || !action.add(i, json.get().path("action"))
+                    || !resource.add(i, json.get().path("resource"))) {
+                principal.all.set(i);
+                action.all.set(i);
+                resource.all.set(i);
+            }
+        }
+    }
+
+    /**
+     * Index the static policies of a policy set.
+     *
+     * @param policySet the policies to index
+     * @return an index of the scopes of the policies
+     */
+    public static PolicyScopeIndex build(PolicySet policySet) {
+        return new PolicyScopeIndex(policySet);
+    }
+
+    /** An unmodifiable copy of the policies, templates and links of a policy set, in the same order. */
+    static PolicySet copyOf(PolicySet policySet) {
+        return new PolicySet(Collections.unmodifiableSet(new LinkedHashSet<>(policySet.policies)),
+                Collections.unmodifiableSet(new LinkedHashSet<>(policySet.templates)),
+                Collections.unmodifiableList(new ArrayList<>(policySet.templateLinks)));
+    }
+
+    /**
+     * Get the copy of the policy set the index was built from.
+     *
+     * @return the indexed policies, templates and links
+     */
+    public PolicySet getPolicySet() {
+        return policySet;
+    }
+
+    /**
+     * Find the policies that could apply to a request against the given entities. The ancestors of
+     * the principal, action and resource are looked up in {@code entities}, except for those of the
+     * action when the request has a schema, as they then come from the schema.
+     *
+     * @param request the request to find policies for
+     * @param entities the entities the request is made against
+     * @return a policy set with the candidate static policies and all templates and links
+     */
+    public PolicySet candidates(AuthorizationRequest request, Set<Entity> entities) {
+        return candidates(Collections.singletonList(request), entities);
+    }
+
+    /**
+     * Find the policies that could apply to a request whose entities are not known, such as one made
+     * against an {@link com.cedarpolicy.model.entity.EntityStore}. Only the equality and type
+     * constraints of the scopes can rule policies out.
+     *
+     * @param request the request to find policies for
+     * @return a policy set with the candidate static policies and all templates and links
+     */
+    public PolicySet candidates(AuthorizationRequest request) {
+        return candidates(Collections.singletonList(request), (Map<EntityUID, Entity>) null);
+    }
+
+    /**
+     * Find the policies that could apply to any of a number of requests against the given entities.
+     *
+     * @param requests the requests to find policies for
+     * @param entities the entities the requests are made against, or null if they are not known
+     * @return a policy set with the candidate static policies and all templates and links
+     */
+    public PolicySet candidates(List<AuthorizationRequest> requests, Set<Entity> entities) {
+        return candidates(requests, entities == null ? null : EntitySlicer.index(entities));
+    }
+
+    /**
+     * Find the policies that could apply to any of a number of requests against entities indexed by
+     * {@link EntitySlicer#index(Set)} or {@link IndexedEntities}. Callers that make many requests
+     * against the same entities can index them once and use this method for each request.
+     *
+     * @param requests the requests to find policies for
+     * @param byUid the entities the requests are made against by uid, or null if they are not known
+     * @return a policy set with the candidate static policies and all templates and links
+     */
+    public PolicySet candidates(List<AuthorizationRequest> requests, Map<EntityUID, Entity> byUid) {
+        final BitSet candidates = new BitSet(policies.length);
+        for (AuthorizationRequest request : requests) {
+            final boolean schemaActions = request.schema.isPresent() || request.preparedSchema.isPresent();
+            final BitSet matching = principal.matching(request.principalEUID, ancestors(request.principalEUID, byUid));
+            matching.and(action.matching(request.actionEUID,
+                    schemaActions ? null : ancestors(request.actionEUID, byUid)));
+            matching.and(resource.matching(request.resourceEUID, ancestors(request.resourceEUID, byUid)));
+            candidates.or(matching);
+        }
+        if (candidates.cardinality() == policies.length) {
+            return policySet;
+        }
+        final Set<Policy> selected = new LinkedHashSet<>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            selected.add(policies[i]);
+        }
+        return new PolicySet(selected, policySet.templates, policySet.templateLinks);
+    }
+
+    private static Optional<JsonNode> scopeOf(Policy policy) {
+        try {
+            return Optional.of(CedarJson.objectReader().readTree(policy.toJson()));
+        } catch (InternalException | JsonProcessingException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** The transitive ancestors of an entity, or null if they are not known. */
+    private static Set<EntityUID> ancestors(EntityUID uid, Map<EntityUID, Entity> byUid) {
+        if (byUid == null) {
+            return null;
+        }
+        final Set<EntityUID> ancestors = new HashSet<>();
+        final Deque<EntityUID> pending = new ArrayDeque<>();
+        pending.push(uid);
+        while (!pending.isEmpty()) {
+            final Entity entity = byUid.get(pending.pop());
+            if (entity != null) {
+                for (EntityUID parent : entity.getParents()) {
+                    if (ancestors.add(parent)) {
+                        pending.push(parent);
+                    }
+                }
+            }
+        }
+        return ancestors;
+    }
+
+    private static Optional<EntityUID> entityOf(JsonNode node) {
+        final JsonNode uid = node.has("__entity") ? node.get("__entity") : node;
+        if (!uid.path("type").isTextual() || !uid.path("id").isTextual()) {
+            return Optional.empty();
+        }
+        return EntityUID.parseFromJson(new JsonEUID(uid.get("type").asText(), uid.get("id").asText()));
+    }
+
+    /** The policies indexed by the constraint they place on one of the principal, action or resource. */
+    private static final class Slot {
+        /** Policies without a constraint, or with one the index does not understand */
+        private final BitSet all = new BitSet();
+        private final Map<EntityUID, BitSet> equal = new HashMap<>();
+        private final Map<EntityUID, BitSet> in = new HashMap<>();
+        private final Map<EntityTypeName, BitSet> is = new HashMap<>();
+        private final Map<EntityTypeName, Map<EntityUID, BitSet>> isIn = new HashMap<>();
+
+        /** Index the constraint of policy {@code i}, returning false if it is not understood. */
+        boolean add(int i, JsonNode constraint) {
+            switch (constraint.path("op").asText()) {
+                case "All":
+                    all.set(i);
+                    return true;
+                case "==":
+                    return entityOf(constraint.path("entity")).map(uid -> set(equal, uid, i)).orElse(false);
+                case "in":
+                    if (constraint.has("entities")) {
+                        final Set<EntityUID> uids = new HashSet<>();
+                        for (JsonNode entity : constraint.get("entities")) {
+                            final Optional<EntityUID> uid = entityOf(entity);
+                            if (!uid.isPresent()) {
+                                return false;
+                            }
+                            uids.add(uid.get());
+                        }
+                        uids.forEach(uid -> set(in, uid, i));
+                        return true;
+                    }
+                    return entityOf(constraint.path("entity")).map(uid -> set(in, uid, i)).orElse(false);
+                case "is":
+                    final Optional<EntityTypeName> type = EntityTypeName.parse(constraint.path("entity_type").asText());
+                    if (!type.isPresent()) {
+                        return false;
+                    }
+                    if (!constraint.has("in")) {
+                        return set(is, type.get(), i);
+                    }
+                    return entityOf(constraint.get("in").path("entity"))
+                            .map(uid -> set(isIn.computeIfAbsent(type.get(), t -> new HashMap<>()), uid, i))
+                            .orElse(false);
+                default:
+                    return false;
+            }
+        }
+
+        private static <K> boolean set(Map<K, BitSet> index, K key, int i) {
+            index.computeIfAbsent(key, k -> new BitSet()).set(i);
+            return true;
+        }
+
+        /** The policies whose constraint {@code uid} may satisfy, given its ancestors if they are known. */
+        BitSet matching(EntityUID uid, Set<EntityUID> ancestors) {
+            final BitSet matching = (BitSet) all.clone();
+            or(matching, equal.get(uid));
+            or(matching, is.get(uid.getType()));
+            final Map<EntityUID, BitSet> typed = isIn.getOrDefault(uid.getType(), Collections.emptyMap());
+            if (ancestors == null) {
+                orAll(matching, in.values());
+                orAll(matching, typed.values());
+                return matching;
+            }
+            or(matching, in.get(uid));
+            or(matching, typed.get(uid));
+            for (EntityUID ancestor : ancestors) {
+                or(matching, in.get(ancestor));
+                or(matching, typed.get(ancestor));
+            }
+            return matching;
+        }
+
+        private static void or(BitSet target, BitSet bits) {
+            if (bits != null) {
+                target.or(bits);
+            }
+        }
+
+        private static void orAll(BitSet target, Collection<BitSet> bits) {
+            bits.forEach(target::or);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.EntityValidationRequest;
+import com.cedarpolicy.model.PartialAuthorizationRequest;
+import com.cedarpolicy.model.PartialAuthorizationResponse;
+import com.cedarpolicy.model.ValidationRequest;
+import com.cedarpolicy.model.ValidationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An authorization engine that only sends Cedar the static policies whose scope could match each
+ * request, as found by a {@link PolicyScopeIndex}. Decisions, reasons and errors are the same as
+ * when evaluating every policy.
+ *
+ * <p>Policies are filtered by the methods that take an index, which the caller builds once with
+ * {@link PolicyScopeIndex#build(PolicySet)} and reuses for as long as the policies do not change.
+ * Entity sets are likewise passed as an {@link IndexedEntities} snapshot. Both are copies, so a
+ * decision is always made against the policies and entities that were indexed. The
+ * {@link AuthorizationEngine} methods, which take policy sets and entity sets that can be modified
+ * between calls, are passed through unchanged, as are partial authorization, validation and entity
+ * validation requests.
+ */
+public final class ScopeFilteringAuthorizationEngine implements AuthorizationEngine {
+    private final AuthorizationEngine engine;
+
+    /**
+     * Construct a filtering engine in front of another engine.
+     *
+     * @param engine The engine that evaluates the candidate policies
+     */
+    public ScopeFilteringAuthorizationEngine(AuthorizationEngine engine) {
+        this.engine = Objects.requireNonNull(engine, "engine");
+    }
+
+    /**
+     * Asks whether the given request is approved by the indexed policies, sending only the policies
+     * whose scope could match it.
+     *
+     * @param request The request to evaluate
+     * @param index The index of the policies to evaluate against
+     * @param entities The entities to evaluate against
+     * @return The result of the request evaluation
+     * @throws AuthException On failure to make the authorization request
+     */
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicyScopeIndex index,
+                                              IndexedEntities entities) throws AuthException {
+        return engine.isAuthorized(request,
+                index.candidates(Collections.singletonList(request), entities.getByUid()), entities.getEntities());
+    }
+
+    /**
+     * Asks whether the given request is approved by the indexed policies and the entities in an entity
+     * store, sending only the policies whose scope could match it. The ancestors of the entities in the
+     * store are not known, so only the equality and type constraints of the scopes rule policies out.
+     *
+     * @param request The request to evaluate
+     * @param index The index of the policies to evaluate against
+     * @param entityStore The entity store to evaluate against
+     * @return The result of the request evaluation
+     * @throws AuthException On failure to make the authorization request
+     */
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicyScopeIndex index,
+                                              EntityStore entityStore) throws AuthException {
+        return engine.isAuthorized(request, index.candidates(request), entityStore);
+    }
+
+    /**
+     * Asks whether each of the given requests is approved by the indexed policies. The batch is sent
+     * with the policies that could match any of its requests.
+     *
+     * @param requests The requests to evaluate
+     * @param index The index of the policies to evaluate against
+     * @param entities The entities to evaluate against
+     * @return The result of evaluating each request, in the same order as <code>requests</code>
+     * @throws AuthException On failure to make the authorization requests
+     */
+    public List<AuthorizationResponse> isAuthorizedBatch(List<AuthorizationRequest> requests, PolicyScopeIndex index,
+                                                         IndexedEntities entities) throws AuthException {
+        return engine.isAuthorizedBatch(requests, index.candidates(requests, entities.getByUid()),
+                entities.getEntities());
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet,
+                                              Set<Entity> entities) throws AuthException {
+        return engine.isAuthorized(request, policySet, entities);
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PreparedPolicySet preparedPolicySet,
+                                              Set<Entity> entities) throws AuthException {
+        return engine.isAuthorized(request, preparedPolicySet, entities);
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet,
+                                              EntityStore entityStore) throws AuthException {
+        return engine.isAuthorized(request, policySet, entityStore);
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PreparedPolicySet preparedPolicySet,
+                                              EntityStore entityStore) throws AuthException {
+        return engine.isAuthorized(request, preparedPolicySet, entityStore);
+    }
+
+    @Override
+    public List<AuthorizationResponse> isAuthorizedBatch(List<AuthorizationRequest> requests, PolicySet policySet,
+                                                         Set<Entity> entities) throws AuthException {
+        return engine.isAuthorizedBatch(requests, policySet, entities);
+    }
+
+    @Experimental(ExperimentalFeature.PARTIAL_EVALUATION)
+    @Override
+    public PartialAuthorizationResponse isAuthorizedPartial(PartialAuthorizationRequest request, PolicySet policySet,
+                                                            Set<Entity> entities) throws AuthException {
+        return engine.isAuthorizedPartial(request, policySet, entities);
+    }
+
+    @Override
+    public ValidationResponse validate(ValidationRequest request) throws AuthException {
+        return engine.validate(request);
+    }
+
+    @Override
+    public void validateEntities(EntityValidationRequest request) throws AuthException {
+        engine.validateEntities(request);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.EntityValidationRequest;
+import com.cedarpolicy.model.PartialAuthorizationRequest;
+import com.cedarpolicy.model.PartialAuthorizationResponse;
+import com.cedarpolicy.model.ValidationRequest;
+import com.cedarpolicy.model.ValidationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An authorization engine that only sends Cedar the entities a request can reach, as found by an
+ * {@link EntitySlicer}. With a slicer that follows attribute references deep enough for the
+ * policies, decisions, reasons and errors are the same as when sending every entity.
+ *
+ * <p>Entities are sliced by the methods that take a {@link PolicyLiterals} and an
+ * {@link IndexedEntities} snapshot, which the caller builds once and reuses for as long as the
+ * policies and entities do not change. Both are copies, so a slice is always taken from the
+ * entities that were indexed and matches the policies that are sent. Entities are sent unsliced if
+ * a policy could not be read.
+ *
+ * <p>Requests with a schema are sent with every entity, as Cedar checks each entity against the
+ * schema and a slice would hide the errors of entities outside it. A batch is sliced only if none
+ * of its requests has a schema. The {@link AuthorizationEngine} methods, which take policy sets and
+ * entity sets that can be modified between calls, are passed through unchanged, as are partial
+ * authorization, validation and entity validation requests.
+ */
+public final class SlicingAuthorizationEngine implements AuthorizationEngine {
+    private final AuthorizationEngine engine;
+    private final EntitySlicer slicer;
+
+    /**
+     * Construct a slicing engine in front of another engine.
+     *
+     * @param engine The engine that evaluates requests against the sliced entities
+     * @param slicer The slicer that finds the entities each request can reach
+     */
+    public SlicingAuthorizationEngine(AuthorizationEngine engine, EntitySlicer slicer) {
+        this.engine = Objects.requireNonNull(engine, "engine");
+        this.slicer = Objects.requireNonNull(slicer, "slicer");
+    }
+
+    private Set<Entity> slice(List<AuthorizationRequest> requests, PolicyLiterals policies, IndexedEntities entities) {
+        for (AuthorizationRequest request : requests) {
+            if (request.schema.isPresent() || request.preparedSchema.isPresent()) {
+                return entities.getEntities();
+            }
+        }
+        return policies.getLiterals()
+                .map(uids -> slicer.slice(requests, entities.getByUid(), uids))
+                .orElse(entities.getEntities());
+    }
+
+    /**
+     * Asks whether the given request is approved by the policies, sending only the entities it can
+     * reach.
+     *
+     * @param request The request to evaluate
+     * @param policies The policies to evaluate against and the entities they name
+     * @param entities The entities to evaluate against
+     * @return The result of the request evaluation
+     * @throws AuthException On failure to make the authorization request
+     */
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicyLiterals policies,
+                                              IndexedEntities entities) throws AuthException {
+        return engine.isAuthorized(request, policies.getPolicySet(),
+                slice(Collections.singletonList(request), policies, entities));
+    }
+
+    /**
+     * Asks whether each of the given requests is approved by the policies. The batch is sent with the
+     * entities that any of its requests can reach.
+     *
+     * @param requests The requests to evaluate
+     * @param policies The policies to evaluate against and the entities they name
+     * @param entities The entities to evaluate against
+     * @return The result of evaluating each request, in the same order as <code>requests</code>
+     * @throws AuthException On failure to make the authorization requests
+     */
+    public List<AuthorizationResponse> isAuthorizedBatch(List<AuthorizationRequest> requests, PolicyLiterals policies,
+                                                         IndexedEntities entities) throws AuthException {
+        return engine.isAuthorizedBatch(requests, policies.getPolicySet(), slice(requests, policies, entities));
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet,
+                                              Set<Entity> entities) throws AuthException {
+        return engine.isAuthorized(request, policySet, entities);
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PreparedPolicySet preparedPolicySet,
+                                              Set<Entity> entities) throws AuthException {
+        return engine.isAuthorized(request, preparedPolicySet, entities);
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PolicySet policySet,
+                                              EntityStore entityStore) throws AuthException {
+        return engine.isAuthorized(request, policySet, entityStore);
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest request, PreparedPolicySet preparedPolicySet,
+                                              EntityStore entityStore) throws AuthException {
+        return engine.isAuthorized(request, preparedPolicySet, entityStore);
+    }
+
+    @Override
+    public List<AuthorizationResponse> isAuthorizedBatch(List<AuthorizationRequest> requests, PolicySet policySet,
+                                                         Set<Entity> entities) throws AuthException {
+        return engine.isAuthorizedBatch(requests, policySet, entities);
+    }
+
+    @Experimental(ExperimentalFeature.PARTIAL_EVALUATION)
+    @Override
+    public PartialAuthorizationResponse isAuthorizedPartial(PartialAuthorizationRequest request, PolicySet policySet,
+                                                            Set<Entity> entities) throws AuthException {
+        return engine.isAuthorizedPartial(request, policySet, entities);
+    }
+
+    @Override
+    public ValidationResponse validate(ValidationRequest request) throws AuthException {
+        return engine.validate(request);
+    }
+
+    @Override
+    public void validateEntities(EntityValidationRequest request) throws AuthException {
+        engine.validateEntities(request);
+    }
+}
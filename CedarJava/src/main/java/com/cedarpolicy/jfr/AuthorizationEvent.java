@@ -0,0 +1,53 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.jfr;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** An authorization request, or a batch of them, answered by the native library. */
+@Name("com.cedarpolicy.Authorization")
+@Label("Cedar Authorization")
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Fields are read by Flight Recorder")
+public final class AuthorizationEvent extends NativeCallEvent {
+    @Label("Request Count")
+    @Description("The number of requests answered by the call, which is more than one for batches")
+    int requestCount;
+
+    @Label("Allowed Count")
+    @Description("The number of requests that were allowed")
+    int allowedCount;
+
+    @Label("Decision")
+    @Description("Allow or Deny for a single request that was answered, otherwise empty")
+    String decision;
+
+    /**
+     * Record the decisions made by the call.
+     *
+     * @param requests The number of requests answered by the call
+     * @param allowed The number of requests that were allowed
+     * @param singleDecision The decision of a single request, or null for batches and failed requests
+     */
+    public void setDecisions(int requests, int allowed, String singleDecision) {
+        this.requestCount = requests;
+        this.allowedCount = allowed;
+        this.decision = singleDecision;
+    }
+}
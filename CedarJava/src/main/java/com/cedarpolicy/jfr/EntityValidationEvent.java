@@ -0,0 +1,41 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.jfr;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Entities validated against a schema by the native library. */
+@Name("com.cedarpolicy.EntityValidation")
+@Label("Cedar Entity Validation")
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Fields are read by Flight Recorder")
+public final class EntityValidationEvent extends NativeCallEvent {
+    @Label("Passed")
+    @Description("Whether the entities passed validation")
+    boolean passed;
+
+    /**
+     * Record the outcome of validation.
+     *
+     * @param validationPassed Whether the entities passed validation
+     */
+    public void setOutcome(boolean validationPassed) {
+        this.passed = validationPassed;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.jfr;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * A call an engine made into the native library. The duration covers encoding the request, the native
+ * call and decoding the response. Calls that throw instead of returning a response are not recorded.
+ */
+@Category("Cedar")
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Fields are read by Flight Recorder")
+public abstract class NativeCallEvent extends Event {
+    @Label("Operation")
+    @Description("The native operation that was called")
+    String operation;
+
+    @Label("Policy Count")
+    @Description("The number of policies passed with the request, or -1 if it is not known in Java")
+    int policyCount;
+
+    @Label("Entity Count")
+    @Description("The number of entities passed with the request, or -1 if it is not known in Java")
+    int entityCount;
+
+    @Label("Request Size")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Success")
+    @Description("Whether the native library answered the request rather than failing it")
+    boolean success;
+
+    /**
+     * Describe the call this event records.
+     *
+     * @param callOperation The native operation that was called
+     * @param policies The number of policies passed with the request, or -1 if it is not known
+     * @param entities The number of entities passed with the request, or -1 if it is not known
+     * @param request The size of the encoded request in bytes
+     * @param response The size of the encoded response in bytes
+     */
+    public final void setCall(String callOperation, int policies, int entities, long request, long response) {
+        this.operation = callOperation;
+        this.policyCount = policies;
+        this.entityCount = entities;
+        this.requestBytes = request;
+        this.responseBytes = response;
+    }
+
+    /**
+     * Set whether the native library answered the request rather than failing it.
+     *
+     * @param answered Whether the request was answered
+     */
+    public final void setSuccess(boolean answered) {
+        this.success = answered;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.jfr;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A partial authorization request answered by the native library. */
+@Name("com.cedarpolicy.PartialAuthorization")
+@Label("Cedar Partial Authorization")
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Fields are read by Flight Recorder")
+public final class PartialAuthorizationEvent extends NativeCallEvent {
+    @Label("Decision")
+    @Description("Allow or Deny if the request could be decided, otherwise empty")
+    String decision;
+
+    @Label("Residual Count")
+    @Description("The number of policies left as residuals")
+    int residualCount;
+
+    /**
+     * Record the outcome of the request.
+     *
+     * @param outcome The decision, or null if no conclusive decision could be made
+     * @param residuals The number of policies left as residuals
+     */
+    public void setOutcome(String outcome, int residuals) {
+        this.decision = outcome;
+        this.residualCount = residuals;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.jfr;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Policy source parsed into a policy set by the native library. */
+@Name("com.cedarpolicy.PolicyParse")
+@Label("Cedar Policy Parse")
+@Category("Cedar")
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Fields are read by Flight Recorder")
+public final class PolicyParseEvent extends Event {
+    @Label("Source Size")
+    @Description("The size of the policy source encoded as UTF-8")
+    @DataAmount
+    long sourceBytes;
+
+    @Label("Parallel")
+    @Description("Whether the source was parsed on several threads")
+    boolean parallel;
+
+    @Label("Policy Count")
+    int policyCount;
+
+    @Label("Template Count")
+    int templateCount;
+
+    @Label("Success")
+    @Description("Whether the source parsed, rather than the parse throwing")
+    boolean success;
+
+    /**
+     * Describe the source being parsed.
+     *
+     * @param size The size of the source encoded as UTF-8, in bytes
+     * @param onSeveralThreads Whether the source is parsed on several threads
+     */
+    public void setSource(long size, boolean onSeveralThreads) {
+        this.sourceBytes = size;
+        this.parallel = onSeveralThreads;
+    }
+
+    /**
+     * Record what the source parsed into.
+     *
+     * @param policies The number of static policies parsed
+     * @param templates The number of templates parsed
+     */
+    public void setParsed(int policies, int templates) {
+        this.policyCount = policies;
+        this.templateCount = templates;
+        this.success = true;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.jfr;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A schema parsed by the native library, either to check it or to prepare it. */
+@Name("com.cedarpolicy.SchemaParse")
+@Label("Cedar Schema Parse")
+@Category("Cedar")
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Fields are read by Flight Recorder")
+public final class SchemaParseEvent extends Event {
+    @Label("Format")
+    @Description("Json or Cedar")
+    String format;
+
+    @Label("Source Length")
+    @Description("The length of the schema source in characters")
+    long sourceLength;
+
+    @Label("Prepared")
+    @Description("Whether the schema was kept resident in the native library")
+    boolean prepared;
+
+    @Label("Success")
+    @Description("Whether the schema parsed, rather than the parse throwing")
+    boolean success;
+
+    /**
+     * Describe the schema being parsed.
+     *
+     * @param schemaFormat The format of the schema
+     * @param length The length of the schema source in characters
+     * @param keptResident Whether the schema is prepared rather than only checked
+     */
+    public void setSchema(String schemaFormat, long length, boolean keptResident) {
+        this.format = schemaFormat;
+        this.sourceLength = length;
+        this.prepared = keptResident;
+    }
+
+    /**
+     * Set whether the schema parsed.
+     *
+     * @param parsed Whether the schema parsed
+     */
+    public void setSuccess(boolean parsed) {
+        this.success = parsed;
+    }
+}
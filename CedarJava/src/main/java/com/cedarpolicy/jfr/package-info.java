@@ -0,0 +1,23 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * JDK Flight Recorder events emitted by CedarJava for authorization, validation, policy parsing and
+ * schema parsing, in the "Cedar" category. The events are enabled by default, so any recording includes
+ * them unless its settings turn them off. When no recording is running, an event costs little more than
+ * checking that it is disabled.
+ */
+package com.cedarpolicy.jfr;
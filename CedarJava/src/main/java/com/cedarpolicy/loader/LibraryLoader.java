@@ -16,6 +16,7 @@
 
 package com.cedarpolicy.loader;
 
+import com.cedarpolicy.AuthorizationEngine;
 import com.fizzed.jne.JNE;
 
 /**
@@ -26,6 +27,11 @@ public final class LibraryLoader {
 
     private static final String LIBRARY_NAME = "cedar_java_ffi";
 
+    private static boolean loaded = false;
+
+    /** Why loading the library failed, or null if it has not failed */
+    private static IllegalStateException failure = null;
+
     /**
      * Private constructor to prevent instantiation of this utility class
      */
@@ -33,14 +39,51 @@ public final class LibraryLoader {
     }
 
     /**
-     * Load Cedar Java FFI library based on runtime operating system and architecture of the Java Virtual Machine
+     * Load Cedar Java FFI library based on runtime operating system and architecture of the Java Virtual Machine,
+     * and check that it supports the same Cedar language version as this library. The library is only loaded and
+     * checked once; later calls return straight away, or throw the same exception if the first call failed.
+     *
+     * <p>This is called when the classes that use the library are initialized, so a failure surfaces as an
+     * {@link ExceptionInInitializerError} caused by the exception thrown here.
+     *
+     * @throws IllegalStateException if the native library cannot be loaded or supports a different Cedar
+     *     language version
      */
-    public static void loadLibrary() {
+    public static synchronized void loadLibrary() {
+        if (failure != null) {
+            throw failure;
+        }
+        if (loaded) {
+            return;
+        }
         final String libraryPath = System.getenv(LIBRARY_PATH_VARIABLE_NAME);
-        if (libraryPath == null || libraryPath.isEmpty()) {
-            JNE.loadLibrary(LIBRARY_NAME);
-        } else {
-            System.load(libraryPath);
+        try {
+            if (libraryPath == null || libraryPath.isEmpty()) {
+                JNE.loadLibrary(LIBRARY_NAME);
+            } else {
+                System.load(libraryPath);
+            }
+        } catch (LinkageError e) {
+            failure = new IllegalStateException("Error, could not load the Cedar Java FFI library "
+                    + (libraryPath == null || libraryPath.isEmpty() ? LIBRARY_NAME : libraryPath), e);
+            throw failure;
         }
+        final String cedarJNIVersion = getCedarJNIVersion();
+        if (!cedarJNIVersion.equals(AuthorizationEngine.getCedarLangVersion())) {
+            failure = new IllegalStateException(
+                    "Error, Java Cedar Language version is "
+                            + AuthorizationEngine.getCedarLangVersion()
+                            + " but JNI Cedar Language version is "
+                            + cedarJNIVersion);
+            throw failure;
+        }
+        loaded = true;
     }
+
+    /**
+     * Get the Cedar language major version supported by the JNI (e.g., "1.2")
+     *
+     * @return The Cedar language version supported by the JNI
+     */
+    private static native String getCedarJNIVersion();
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.metrics;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The measurements of one call into the native library: how long it spent in each {@link CallStage},
+ * the sizes of the encoded request and response, and the number of policies and entities the request
+ * carried. Counts are {@link #UNKNOWN} when the request refers to objects held by the native library,
+ * such as a {@link com.cedarpolicy.model.policy.PreparedPolicySet} loaded from a file or an
+ * {@link com.cedarpolicy.model.entity.EntityStore}, whose contents are not known in Java.
+ */
+public final class CallMetrics {
+    /** The value of a count that is not known. */
+    public static final int UNKNOWN = -1;
+
+    private final String operation;
+    private final long[] nanos;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final int policyCount;
+    private final int entityCount;
+
+    private CallMetrics(Builder builder) {
+        this.operation = builder.operation;
+        this.nanos = builder.nanos.clone();
+        this.requestBytes = builder.requestBytes;
+        this.responseBytes = builder.responseBytes;
+        this.policyCount = builder.policyCount;
+        this.entityCount = builder.entityCount;
+    }
+
+    /**
+     * Creates a builder of call metrics.
+     *
+     * @param operation The native operation that was called
+     * @return The builder
+     * @throws NullPointerException if the operation is null
+     */
+    public static Builder builder(String operation) {
+        return new Builder(operation);
+    }
+
+    /**
+     * Get the native operation that was called, such as {@code "AuthorizationOperation"}.
+     *
+     * @return The name of the operation
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Get how long the call spent in a stage.
+     *
+     * @param stage The stage
+     * @return The time spent in the stage, in nanoseconds
+     */
+    public long getNanos(CallStage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    /**
+     * Get how long the call took from the start of serialization to the end of deserialization.
+     *
+     * @return The time spent in all stages, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return Arrays.stream(nanos).sum();
+    }
+
+    /**
+     * Get the size of the encoded request passed to the native library.
+     *
+     * @return The size in bytes
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Get the size of the encoded response returned by the native library.
+     *
+     * @return The size in bytes
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Get the number of policies the request carried.
+     *
+     * @return The number of policies, or {@link #UNKNOWN}
+     */
+    public int getPolicyCount() {
+        return policyCount;
+    }
+
+    /**
+     * Get the number of entities the request carried.
+     *
+     * @return The number of entities, or {@link #UNKNOWN}
+     */
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder("CallMetrics{operation=").append(operation);
+        for (CallStage stage : CallStage.values()) {
+            result.append(", ").append(stage).append('=').append(getNanos(stage)).append("ns");
+        }
+        return result.append(", requestBytes=").append(requestBytes)
+                .append(", responseBytes=").append(responseBytes)
+                .append(", policyCount=").append(policyCount)
+                .append(", entityCount=").append(entityCount)
+                .append('}')
+                .toString();
+    }
+
+    /** Builder of {@link CallMetrics}. Stages that are not set took no time and counts default to unknown. */
+    public static final class Builder {
+        private final String operation;
+        private final long[] nanos = new long[CallStage.values().length];
+        private long requestBytes;
+        private long responseBytes;
+        private int policyCount = UNKNOWN;
+        private int entityCount = UNKNOWN;
+
+        private Builder(String operation) {
+            this.operation = Objects.requireNonNull(operation, "operation");
+        }
+
+        /**
+         * Set how long the call spent in a stage.
+         *
+         * @param stage The stage
+         * @param stageNanos The time spent in the stage, in nanoseconds
+         * @return The builder
+         */
+        public Builder nanos(CallStage stage, long stageNanos) {
+            this.nanos[stage.ordinal()] = stageNanos;
+            return this;
+        }
+
+        /**
+         * Set the size of the encoded request.
+         *
+         * @param bytes The size in bytes
+         * @return The builder
+         */
+        public Builder requestBytes(long bytes) {
+            this.requestBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Set the size of the encoded response.
+         *
+         * @param bytes The size in bytes
+         * @return The builder
+         */
+        public Builder responseBytes(long bytes) {
+            this.responseBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Set the number of policies the request carried.
+         *
+         * @param count The number of policies, or {@link CallMetrics#UNKNOWN}
+         * @return The builder
+         */
+        public Builder policyCount(int count) {
+            this.policyCount = count;
+            return this;
+        }
+
+        /**
+         * Set the number of entities the request carried.
+         *
+         * @param count The number of entities, or {@link CallMetrics#UNKNOWN}
+         * @return The builder
+         */
+        public Builder entityCount(int count) {
+            this.entityCount = count;
+            return this;
+        }
+
+        /**
+         * Build the call metrics.
+         *
+         * @return The call metrics
+         */
+        public CallMetrics build() {
+            return new CallMetrics(this);
+        }
+    }
+}
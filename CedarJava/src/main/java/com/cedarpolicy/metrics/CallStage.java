@@ -0,0 +1,43 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.metrics;
+
+/** The stages a call into the native library goes through, in the order they happen. */
+public enum CallStage {
+    /** Encoding the request as JSON or CBOR in Java. */
+    SERIALIZATION,
+    /**
+     * Everything between Java and the native library that is not decoding or evaluation: copying the
+     * request and response across JNI, handing the call to a native worker thread and encoding the
+     * response.
+     */
+    JNI_TRANSFER,
+    /**
+     * Decoding the request from JSON or CBOR into the native library's request types. Policies, entities
+     * and schemas are still in their source form at this point.
+     */
+    NATIVE_DECODING,
+    /**
+     * Answering the decoded request in the native library. This includes parsing the policies, schema and
+     * entities and checking the entity hierarchy, followed by evaluating the policies. Requests that use a
+     * {@link com.cedarpolicy.model.policy.PreparedPolicySet}, {@link com.cedarpolicy.model.entity.EntityStore}
+     * or {@link com.cedarpolicy.model.schema.PreparedSchema} skip the matching parsing step.
+     */
+    NATIVE_EVALUATION,
+    /** Decoding the response in Java. */
+    DESERIALIZATION
+}
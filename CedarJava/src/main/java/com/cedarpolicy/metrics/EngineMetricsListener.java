@@ -0,0 +1,34 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.metrics;
+
+/**
+ * Receives measurements of calls into the native library. Listeners are called on the thread that
+ * made the call, after the response has been decoded, so they should be cheap and must be safe to
+ * call from several threads at once. An exception thrown by a listener is thrown to the caller in
+ * place of the response.
+ */
+@FunctionalInterface
+public interface EngineMetricsListener {
+    /**
+     * Record the measurements of a call that completed. Calls that fail before a response is
+     * decoded are not reported.
+     *
+     * @param metrics The measurements of the call
+     */
+    void onCall(CallMetrics metrics);
+}
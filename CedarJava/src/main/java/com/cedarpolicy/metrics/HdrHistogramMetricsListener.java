@@ -0,0 +1,176 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * A listener that records call metrics in HdrHistograms, from which percentiles of the time spent
+ * in each {@link CallStage}, of the total time, of payload sizes and of policy and entity counts can
+ * be read. Counts that are {@linkplain CallMetrics#UNKNOWN unknown} are not recorded.
+ *
+ * <p>Histograms resize themselves to fit the values recorded, so no upper bound has to be chosen in
+ * advance. Recording is lock free, and instances are safe to share between threads and engines.
+ */
+public final class HdrHistogramMetricsListener implements EngineMetricsListener {
+    /** Significant decimal digits kept by default, which bounds the relative error of values to 0.1%. */
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+
+    private final Map<CallStage, Histogram> stages = new EnumMap<>(CallStage.class);
+    private final Histogram total;
+    private final Histogram requestBytes;
+    private final Histogram responseBytes;
+    private final Histogram policyCounts;
+    private final Histogram entityCounts;
+
+    /** Construct a listener that keeps {@value #DEFAULT_SIGNIFICANT_DIGITS} significant digits. */
+    public HdrHistogramMetricsListener() {
+        this(DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Construct a listener that keeps the given number of significant decimal digits.
+     *
+     * @param significantDigits The number of significant digits, from 0 to 5
+     * @throws IllegalArgumentException if the number of significant digits is out of range
+     */
+    public HdrHistogramMetricsListener(int significantDigits) {
+        for (CallStage stage : CallStage.values()) {
+            stages.put(stage, new ConcurrentHistogram(significantDigits));
+        }
+        this.total = new ConcurrentHistogram(significantDigits);
+        this.requestBytes = new ConcurrentHistogram(significantDigits);
+        this.responseBytes = new ConcurrentHistogram(significantDigits);
+        this.policyCounts = new ConcurrentHistogram(significantDigits);
+        this.entityCounts = new ConcurrentHistogram(significantDigits);
+    }
+
+    @Override
+    public void onCall(CallMetrics metrics) {
+        for (CallStage stage : CallStage.values()) {
+            stages.get(stage).recordValue(Math.max(0, metrics.getNanos(stage)));
+        }
+        total.recordValue(Math.max(0, metrics.getTotalNanos()));
+        requestBytes.recordValue(metrics.getRequestBytes());
+        responseBytes.recordValue(metrics.getResponseBytes());
+        if (metrics.getPolicyCount() != CallMetrics.UNKNOWN) {
+            policyCounts.recordValue(metrics.getPolicyCount());
+        }
+        if (metrics.getEntityCount() != CallMetrics.UNKNOWN) {
+            entityCounts.recordValue(metrics.getEntityCount());
+        }
+    }
+
+    /**
+     * Get the time below which the given percentage of calls spent in a stage.
+     *
+     * @param stage The stage
+     * @param percentile The percentile, from 0 to 100
+     * @return The time in nanoseconds, or 0 if no call has been recorded
+     */
+    public long getValueAtPercentile(CallStage stage, double percentile) {
+        return stages.get(stage).getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Get the time below which the given percentage of calls completed.
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The time in nanoseconds, or 0 if no call has been recorded
+     */
+    public long getTotalValueAtPercentile(double percentile) {
+        return total.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Get the number of calls recorded.
+     *
+     * @return The number of calls
+     */
+    public long getCallCount() {
+        return total.getTotalCount();
+    }
+
+    /**
+     * Get a copy of the histogram of the time spent in a stage, in nanoseconds.
+     *
+     * @param stage The stage
+     * @return A copy of the histogram, which later calls do not change
+     */
+    public Histogram getHistogram(CallStage stage) {
+        return stages.get(stage).copy();
+    }
+
+    /**
+     * Get a copy of the histogram of the time calls took in all, in nanoseconds.
+     *
+     * @return A copy of the histogram, which later calls do not change
+     */
+    public Histogram getTotalHistogram() {
+        return total.copy();
+    }
+
+    /**
+     * Get a copy of the histogram of request sizes, in bytes.
+     *
+     * @return A copy of the histogram, which later calls do not change
+     */
+    public Histogram getRequestBytesHistogram() {
+        return requestBytes.copy();
+    }
+
+    /**
+     * Get a copy of the histogram of response sizes, in bytes.
+     *
+     * @return A copy of the histogram, which later calls do not change
+     */
+    public Histogram getResponseBytesHistogram() {
+        return responseBytes.copy();
+    }
+
+    /**
+     * Get a copy of the histogram of the number of policies in requests that carried them.
+     *
+     * @return A copy of the histogram, which later calls do not change
+     */
+    public Histogram getPolicyCountHistogram() {
+        return policyCounts.copy();
+    }
+
+    /**
+     * Get a copy of the histogram of the number of entities in requests that carried them.
+     *
+     * @return A copy of the histogram, which later calls do not change
+     */
+    public Histogram getEntityCountHistogram() {
+        return entityCounts.copy();
+    }
+
+    /** Forget all calls recorded so far. */
+    public void reset() {
+        stages.values().forEach(Histogram::reset);
+        total.reset();
+        requestBytes.reset();
+        responseBytes.reset();
+        policyCounts.reset();
+        entityCounts.reset();
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Instrumentation of calls into the native library. A {@link com.cedarpolicy.metrics.EngineMetricsListener}
+ * given to a {@link com.cedarpolicy.BasicAuthorizationEngine} is told how long each call spent in each
+ * {@link com.cedarpolicy.metrics.CallStage stage}, how large the request and response were and how many
+ * policies and entities the request carried.
+ */
+package com.cedarpolicy.metrics;
@@ -16,10 +16,12 @@
 
 package com.cedarpolicy.model;
 
+import com.cedarpolicy.model.schema.PreparedSchema;
 import com.cedarpolicy.model.schema.Schema;
 import com.cedarpolicy.model.entity.Entity;
 import com.cedarpolicy.value.EntityUID;
 import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.HashMap;
 import java.util.Map;
@@ -37,6 +39,8 @@ import java.util.Optional;
  * (e.g., string instead of integer).
  * If the schema is provided and `enableRequestValidation` is true, then the
  * schema will also be used for request validation.
+ * A {@link PreparedSchema} can be given in place of the schema to avoid parsing
+ * it again for every request.
  */
 public class AuthorizationRequest {
     /** EUID of the principal in the request. */
@@ -57,6 +61,11 @@ public class AuthorizationRequest {
      * request validation. */
     public final Optional<Schema> schema;
 
+    /** Schema that is already parsed in the native library. Used in place of
+     * `schema`, and only one of the two is present. */
+    @JsonInclude(JsonInclude.Include.NON_ABSENT)
+    public final Optional<PreparedSchema> preparedSchema;
+
     /** If this is `true` and a schema is provided, perform request validation.
      * If this is `false`, the schema will only be used for schema-based parsing
      * of `context`, and not for request validation.
@@ -83,6 +92,17 @@ public class AuthorizationRequest {
             Optional<Map<String, Value>> context,
             Optional<Schema> schema,
             boolean enableRequestValidation) {
+        this(principalEUID, actionEUID, resourceEUID, context, schema, Optional.empty(), enableRequestValidation);
+    }
+
+    private AuthorizationRequest(
+            EntityUID principalEUID,
+            EntityUID actionEUID,
+            EntityUID resourceEUID,
+            Optional<Map<String, Value>> context,
+            Optional<Schema> schema,
+            Optional<PreparedSchema> preparedSchema,
+            boolean enableRequestValidation) {
         this.principalEUID = principalEUID;
         this.actionEUID = actionEUID;
         this.resourceEUID = resourceEUID;
@@ -92,9 +112,49 @@ public class AuthorizationRequest {
             this.context = Optional.of(new HashMap<>(context.get()));
         }
         this.schema = schema;
+        this.preparedSchema = preparedSchema;
         this.enableRequestValidation = enableRequestValidation;
     }
 
+    /**
+     * Create an authorization request that uses a prepared schema.
+     *
+     * @param principalEUID Principal's EUID.
+     * @param actionEUID Action's EUID.
+     * @param resourceEUID Resource's EUID.
+     * @param context Key/Value context.
+     * @param preparedSchema Schema already parsed in the native library.
+     * @param enableRequestValidation Whether to use the schema for just
+     * schema-based parsing of `context` (false) or also for request validation
+     * (true).
+     */
+    public AuthorizationRequest(
+            EntityUID principalEUID,
+            EntityUID actionEUID,
+            EntityUID resourceEUID,
+            Optional<Map<String, Value>> context,
+            PreparedSchema preparedSchema,
+            boolean enableRequestValidation) {
+        this(principalEUID, actionEUID, resourceEUID, context, Optional.empty(),
+                Optional.of(preparedSchema), enableRequestValidation);
+    }
+
+    /**
+     * Copy an authorization request. Used by engines that extend the request with
+     * the policies and entities to evaluate it against.
+     *
+     * @param request The request to copy.
+     */
+    protected AuthorizationRequest(AuthorizationRequest request) {
+        this.principalEUID = request.principalEUID;
+        this.actionEUID = request.actionEUID;
+        this.resourceEUID = request.resourceEUID;
+        this.context = request.context;
+        this.schema = request.schema;
+        this.preparedSchema = request.preparedSchema;
+        this.enableRequestValidation = request.enableRequestValidation;
+    }
+
     /**
      * Create a request without a schema.
      *
@@ -20,7 +20,9 @@
  import java.util.Objects;
 
  import com.cedarpolicy.model.entity.Entity;
+ import com.cedarpolicy.model.schema.PreparedSchema;
  import com.cedarpolicy.model.schema.Schema;
+ import com.fasterxml.jackson.annotation.JsonInclude;
  import com.fasterxml.jackson.annotation.JsonProperty;
  import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -30,6 +32,9 @@
  public final class EntityValidationRequest {
      @JsonProperty("schema")
      private final Schema schema;
+     @JsonProperty("preparedSchema")
+     @JsonInclude(JsonInclude.Include.NON_NULL)
+     private final PreparedSchema preparedSchema;
      @JsonProperty("entities")
      private final List<Entity> entities;
 
@@ -50,6 +55,28 @@
          }
 
          this.schema = schema;
+         this.preparedSchema = null;
+         this.entities = entities;
+     }
+
+     /**
+      * Construct a validation request against a schema already parsed in the native library.
+      *
+      * @param preparedSchema Prepared schema for the request
+      * @param entities       Map.
+      */
+     @SuppressFBWarnings
+     public EntityValidationRequest(PreparedSchema preparedSchema, List<Entity> entities) {
+         if (preparedSchema == null) {
+             throw new NullPointerException("preparedSchema");
+         }
+
+         if (entities == null) {
+             throw new NullPointerException("entities");
+         }
+
+         this.schema = null;
+         this.preparedSchema = preparedSchema;
          this.entities = entities;
      }
 
@@ -63,7 +90,9 @@
          }
 
          final EntityValidationRequest other = (EntityValidationRequest) o;
-         return schema.equals(other.schema) && entities.equals(other.entities);
+         return Objects.equals(schema, other.schema)
+                 && Objects.equals(preparedSchema, other.preparedSchema)
+                 && entities.equals(other.entities);
      }
 
      /**
@@ -71,13 +100,14 @@
       */
      @Override
      public int hashCode() {
-         return Objects.hash(schema, entities);
+         return Objects.hash(schema, preparedSchema, entities);
      }
 
      /**
       * Get readable string representation.
       */
      public String toString() {
-         return "EntityValidationRequest(schema=" + schema + ", entities=" + entities + ")";
+         return "EntityValidationRequest(schema=" + (schema != null ? schema : preparedSchema)
+                 + ", entities=" + entities + ")";
      }
  }
@@ -16,17 +16,21 @@
 
 package com.cedarpolicy.model;
 
+import com.cedarpolicy.model.schema.PreparedSchema;
 import com.cedarpolicy.model.schema.Schema;
 import com.cedarpolicy.model.policy.PolicySet;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.util.Objects;
+import java.util.Optional;
 
 /** Information passed to Cedar for validation. */
 public final class ValidationRequest {
     private final Schema schema;
+    private final PreparedSchema preparedSchema;
     private final PolicySet policies;
 
     /**
@@ -46,18 +50,50 @@ public final class ValidationRequest {
         }
 
         this.schema = schema;
+        this.preparedSchema = null;
+        this.policies = policies;
+    }
+
+    /**
+     * Construct a validation request against a schema already parsed in the native library.
+     *
+     * @param preparedSchema Prepared schema for the request
+     * @param policies Map of Policy ID to policy.
+     */
+    @SuppressFBWarnings
+    public ValidationRequest(PreparedSchema preparedSchema, PolicySet policies) {
+        if (preparedSchema == null) {
+            throw new NullPointerException("preparedSchema");
+        }
+
+        if (policies == null) {
+            throw new NullPointerException("policies");
+        }
+
+        this.schema = null;
+        this.preparedSchema = preparedSchema;
         this.policies = policies;
     }
 
     /**
      * Get the schema.
      *
-     * @return The schema.
+     * @return The schema, or null if the request uses a prepared schema.
      */
     public Schema getSchema() {
         return this.schema;
     }
 
+    /**
+     * Get the prepared schema.
+     *
+     * @return The prepared schema, if the request uses one.
+     */
+    @JsonInclude(JsonInclude.Include.NON_ABSENT)
+    public Optional<PreparedSchema> getPreparedSchema() {
+        return Optional.ofNullable(this.preparedSchema);
+    }
+
     /**
      * Get the policy set.
      *
@@ -76,17 +112,19 @@ public final class ValidationRequest {
         }
 
         final ValidationRequest other = (ValidationRequest) o;
-        return schema.equals(other.schema) && policies.equals(other.policies);
+        return Objects.equals(schema, other.schema)
+                && Objects.equals(preparedSchema, other.preparedSchema)
+                && policies.equals(other.policies);
     }
 
     /** Hash. */
     @Override
     public int hashCode() {
-        return Objects.hash(schema, policies);
+        return Objects.hash(schema, preparedSchema, policies);
     }
 
     /** Get readable string representation. */
     public String toString() {
-        return "ValidationRequest(schema=" + schema + ", policies=" + policies + ")";
+        return "ValidationRequest(schema=" + (schema != null ? schema : preparedSchema) + ", policies=" + policies + ")";
     }
 }
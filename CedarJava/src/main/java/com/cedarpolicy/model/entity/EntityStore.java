@@ -0,0 +1,273 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model.entity;
+
+import com.cedarpolicy.loader.LibraryLoader;
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.model.schema.PreparedSchema;
+import com.cedarpolicy.serializer.EntitySerializer;
+import com.cedarpolicy.serializer.ValueSerializer;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * An entity hierarchy that is kept resident in the native Cedar library and updated in place.
+ *
+ * <p>Passing a {@code Set<Entity>} to the authorization engine rebuilds the hierarchy, including
+ * its ancestor closure, on every call. An entity store is built once and then maintained
+ * incrementally as entities are inserted, replaced or removed, which suits large hierarchies that
+ * change rarely compared to how often they are queried.
+ *
+ * <p>Each request sees the contents of the store as of the moment it started. The native store is
+ * held until {@link #close()} is called. Instances are safe to share between threads.
+ */
+public final class EntityStore implements AutoCloseable {
+    static {
+        LibraryLoader.loadLibrary();
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+
+    private final long handle;
+    private final Optional<PreparedSchema> schema;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private EntityStore(long handle, Optional<PreparedSchema> schema) {
+        this.handle = handle;
+        this.schema = schema;
+    }
+
+    /**
+     * Build an entity store from a set of entities.
+     *
+     * @param entities the initial contents of the store
+     * @return a handle to the entity store, which must be closed when no longer needed
+     * @throws InternalException if the entities are invalid
+     * @throws NullPointerException if the entities are null
+     */
+    public static EntityStore create(Collection<Entity> entities) throws InternalException {
+        return create(entities, Optional.empty());
+    }
+
+    /**
+     * Build an entity store from a set of entities that are validated against a schema. Entities
+     * later added to the store are validated against the same schema.
+     *
+     * @param entities the initial contents of the store
+     * @param schema the schema to validate the entities against
+     * @return a handle to the entity store, which must be closed when no longer needed
+     * @throws InternalException if the entities are invalid
+     * @throws NullPointerException if the entities or schema are null
+     */
+    public static EntityStore create(Collection<Entity> entities, PreparedSchema schema) throws InternalException {
+        return create(entities, Optional.of(schema));
+    }
+
+    private static EntityStore create(Collection<Entity> entities, Optional<PreparedSchema> schema)
+            throws InternalException {
+        if (entities == null) {
+            throw new NullPointerException("entities");
+        }
+        long schemaHandle = schema.map(PreparedSchema::getHandle).orElse(0L);
+        long handle = createEntityStoreJni(toJson(entities), schemaHandle);
+        return new EntityStore(handle, schema);
+    }
+
+    /**
+     * Build an entity store from a file of entities in Cedar's JSON entity format. The file is read
+     * and parsed by the native library as a stream, so its contents are never copied onto the Java
+     * heap, which suits large entity dumps.
+     *
+     * @param path the file to read
+     * @return a handle to the entity store, which must be closed when no longer needed
+     * @throws InternalException if the file cannot be read or the entities are invalid
+     * @throws NullPointerException if the path is null
+     */
+    public static EntityStore loadFromFile(Path path) throws InternalException {
+        return loadFromFile(path, Optional.empty());
+    }
+
+    /**
+     * Build an entity store from a file of entities in Cedar's JSON entity format, validating them
+     * against a schema. Entities later added to the store are validated against the same schema.
+     *
+     * @param path the file to read
+     * @param schema the schema to validate the entities against
+     * @return a handle to the entity store, which must be closed when no longer needed
+     * @throws InternalException if the file cannot be read or the entities are invalid
+     * @throws NullPointerException if the path or schema are null
+     */
+    public static EntityStore loadFromFile(Path path, PreparedSchema schema) throws InternalException {
+        return loadFromFile(path, Optional.of(schema));
+    }
+
+    private static EntityStore loadFromFile(Path path, Optional<PreparedSchema> schema) throws InternalException {
+        if (path == null) {
+            throw new NullPointerException("path");
+        }
+        long schemaHandle = schema.map(PreparedSchema::getHandle).orElse(0L);
+        long handle = loadEntityStoreJni(path.toAbsolutePath().toString(), schemaHandle);
+        return new EntityStore(handle, schema);
+    }
+
+    /**
+     * Insert an entity, replacing any entity with the same uid.
+     *
+     * @param entity the entity to insert
+     * @throws InternalException if the entity is invalid
+     * @throws IllegalStateException if the store has been closed
+     */
+    public void upsert(Entity entity) throws InternalException {
+        upsertAll(Collections.singletonList(entity));
+    }
+
+    /**
+     * Insert entities, replacing any entities with the same uids. Either all of the entities are
+     * inserted or, if any of them is invalid or they would make the entity hierarchy cyclic, none
+     * are and the store keeps its current entities.
+     *
+     * @param entities the entities to insert
+     * @throws InternalException if any of the entities is invalid or the update is rejected
+     * @throws IllegalStateException if the store has been closed
+     */
+    public void upsertAll(Collection<Entity> entities) throws InternalException {
+        upsertEntitiesJni(getHandle(), toJson(entities));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Remove an entity. Removing an entity that is not in the store has no effect.
+     *
+     * @param uid the uid of the entity to remove
+     * @throws InternalException if the store could not be updated
+     * @throws IllegalStateException if the store has been closed
+     */
+    public void remove(EntityUID uid) throws InternalException {
+        removeAll(Collections.singletonList(uid));
+    }
+
+    /**
+     * Remove entities. Uids of entities that are not in the store are ignored.
+     *
+     * @param uids the uids of the entities to remove
+     * @throws InternalException if the store could not be updated
+     * @throws IllegalStateException if the store has been closed
+     */
+    public void removeAll(Collection<EntityUID> uids) throws InternalException {
+        removeEntitiesJni(getHandle(), toJson(uids.stream().map(EntityUID::asJson).collect(Collectors.toList())));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Get the number of updates applied to the store since it was created. Two requests made with
+     * the same version see the same entities.
+     *
+     * @return the version of the store
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Get the schema the entities are validated against.
+     *
+     * @return the schema, if the store has one
+     */
+    public Optional<PreparedSchema> getSchema() {
+        return schema;
+    }
+
+    /**
+     * Get the native handle of this store.
+     *
+     * @return the handle passed to the native library in place of the entities
+     * @throws IllegalStateException if the store has been closed
+     */
+    @JsonValue
+    public long getHandle() {
+        if (closed.get()) {
+            throw new IllegalStateException("EntityStore has been closed");
+        }
+        return handle;
+    }
+
+    /**
+     * Check whether the native store has been released.
+     *
+     * @return true if {@link #close()} has been called
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /** Release the native store. Closing an already closed store has no effect. */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            freeEntityStoreJni(handle);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EntityStore(" + handle + ", version " + version.get() + (closed.get() ? ", closed)" : ")");
+    }
+
+    private static String toJson(Object value) throws InternalException {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new InternalException("Failed to serialize entities: " + e.getMessage());
+        }
+    }
+
+    private static ObjectMapper createObjectMapper() {
+        final ObjectMapper mapper = new ObjectMapper();
+        final SimpleModule module = new SimpleModule();
+        module.addSerializer(Entity.class, new EntitySerializer());
+        module.addSerializer(Value.class, new ValueSerializer());
+        mapper.registerModule(module);
+        return mapper;
+    }
+
+    private static native long createEntityStoreJni(String entitiesJson, long schemaHandle)
+            throws InternalException, NullPointerException;
+
+    private static native long loadEntityStoreJni(String path, long schemaHandle)
+            throws InternalException, NullPointerException;
+
+    private static native void upsertEntitiesJni(long handle, String entitiesJson)
+            throws InternalException, NullPointerException;
+
+    private static native void removeEntitiesJni(long handle, String uidsJson)
+            throws InternalException, NullPointerException;
+
+    private static native boolean freeEntityStoreJni(long handle);
+}
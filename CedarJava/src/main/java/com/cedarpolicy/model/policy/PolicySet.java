@@ -16,10 +16,14 @@
 
 package com.cedarpolicy.model.policy;
 
+import com.cedarpolicy.jfr.PolicyParseEvent;
 import com.cedarpolicy.loader.LibraryLoader;
 import com.cedarpolicy.model.exception.InternalException;
+import com.google.common.base.Utf8;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,6 +34,9 @@ import java.nio.file.Path;
 
 /** Policy set containing policies in the Cedar language. */
 public class PolicySet {
+    /** Kind of a template in the result of {@link #parsePoliciesParallelJni(byte[])}. */
+    private static final byte PARSED_TEMPLATE = 1;
+
     static {
         LibraryLoader.loadLibrary();
     }
@@ -125,9 +132,101 @@ public class PolicySet {
      * @throws NullPointerException
      */
     public static PolicySet parsePolicies(String policiesString) throws InternalException {
-        PolicySet policySet = parsePoliciesJni(policiesString);
-        return policySet;
+        final PolicyParseEvent event = new PolicyParseEvent();
+        event.begin();
+        PolicySet policySet = null;
+        try {
+            policySet = parsePoliciesJni(policiesString);
+            return policySet;
+        } finally {
+            // Only worth measuring when the event is recorded
+            commit(event, event.isEnabled() && policiesString != null ? Utf8.encodedLength(policiesString) : 0,
+                    false, policySet);
+        }
+    }
+
+    /**
+     * Parse multiple policies and templates from a file into a PolicySet, parsing large files on
+     * several threads. Policies get the same ids as with {@link #parsePolicies(Path)}.
+     * @param filePath the path to the file containing the policies, encoded as UTF-8
+     * @return a PolicySet containing the parsed policies
+     * @throws InternalException
+     * @throws IOException
+     * @throws NullPointerException
+     */
+    public static PolicySet parsePoliciesParallel(Path filePath) throws InternalException, IOException {
+        return parsePoliciesParallel(Files.readAllBytes(filePath));
+    }
+
+    /**
+     * Parse a string containing multiple policies and templates into a PolicySet, parsing large
+     * inputs on several threads. Policies get the same ids as with {@link #parsePolicies(String)}.
+     * @param policiesString the string containing the policies
+     * @return a PolicySet containing the parsed policies
+     * @throws InternalException
+     * @throws NullPointerException
+     */
+    public static PolicySet parsePoliciesParallel(String policiesString) throws InternalException {
+        return parsePoliciesParallel(policiesString.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PolicySet parsePoliciesParallel(byte[] policies) throws InternalException {
+        final PolicyParseEvent event = new PolicyParseEvent();
+        event.begin();
+        PolicySet policySet = null;
+        try {
+            policySet = decodeParsedPolicies(parsePoliciesParallelJni(policies));
+            return policySet;
+        } finally {
+            commit(event, policies.length, true, policySet);
+        }
+    }
+
+    /** Record a parse in its event if the event is enabled. The policy set is null if the parse threw. */
+    private static void commit(PolicyParseEvent event, long sourceBytes, boolean parallel, PolicySet parsed) {
+        if (event.shouldCommit()) {
+            event.setSource(sourceBytes, parallel);
+            if (parsed != null) {
+                event.setParsed(parsed.getNumPolicies(), parsed.getNumTemplates());
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Build a PolicySet from the policies returned by {@link #parsePoliciesParallelJni(byte[])}. Each
+     * policy is its kind as one byte, followed by its id and then its text, each as a big-endian
+     * int length and UTF-8 bytes.
+     */
+    private static PolicySet decodeParsedPolicies(byte[] parsed) {
+        final Set<Policy> policies = new HashSet<>();
+        final Set<Policy> templates = new HashSet<>();
+        int offset = 0;
+        while (offset < parsed.length) {
+            final byte kind = parsed[offset];
+            final int idLength = readLength(parsed, offset + 1);
+            final String id = new String(parsed, offset + 5, idLength, StandardCharsets.UTF_8);
+            offset += 5 + idLength;
+            final int textLength = readLength(parsed, offset);
+            final String text = new String(parsed, offset + 4, textLength, StandardCharsets.UTF_8);
+            offset += 4 + textLength;
+            (kind == PARSED_TEMPLATE ? templates : policies).add(new Policy(text, id));
+        }
+        return new PolicySet(policies, templates);
+    }
+
+    private static int readLength(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16
+                | (bytes[offset + 2] & 0xff) << 8 | (bytes[offset + 3] & 0xff);
     }
 
     private static native PolicySet parsePoliciesJni(String policiesStr) throws InternalException, NullPointerException;
+
+    /**
+     * Parse policies on several threads.
+     *
+     * @param policies Policy source encoded as UTF-8
+     * @return The parsed policies and templates, encoded as described in {@link #decodeParsedPolicies(byte[])}
+     */
+    private static native byte[] parsePoliciesParallelJni(byte[] policies) throws InternalException;
 }
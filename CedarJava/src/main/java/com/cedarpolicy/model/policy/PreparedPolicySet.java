@@ -0,0 +1,169 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model.policy;
+
+import com.cedarpolicy.loader.LibraryLoader;
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.serializer.PolicySetSerializer;
+import com.cedarpolicy.serializer.TemplateLinkSerializer;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A policy set that has been parsed once and is kept resident in the native Cedar library.
+ *
+ * <p>Passing a {@link PolicySet} to the authorization engine re-serializes and re-parses every
+ * policy on each call. A prepared policy set is parsed when it is created and is referred to by
+ * handle afterwards, so repeated requests against the same policies only pay for the request itself.
+ *
+ * <p>The native policy set is held until {@link #close()} is called. Instances are immutable and
+ * safe to share between threads; closing one while a request is in flight does not affect that
+ * request.
+ */
+public final class PreparedPolicySet implements AutoCloseable {
+    static {
+        LibraryLoader.loadLibrary();
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+
+    private final long handle;
+    private final int numPolicies;
+    private final int numTemplates;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private PreparedPolicySet(long handle, int numPolicies, int numTemplates) {
+        this.handle = handle;
+        this.numPolicies = numPolicies;
+        this.numTemplates = numTemplates;
+    }
+
+    /**
+     * Parse a policy set and keep it resident in the native library.
+     *
+     * @param policySet the policy set to prepare
+     * @return a handle to the prepared policy set, which must be closed when no longer needed
+     * @throws InternalException if any of the policies, templates or template links are invalid
+     * @throws NullPointerException if the policy set is null
+     */
+    public static PreparedPolicySet prepare(PolicySet policySet) throws InternalException {
+        if (policySet == null) {
+            throw new NullPointerException("policySet");
+        }
+        final String policySetJson;
+        try {
+            policySetJson = OBJECT_MAPPER.writeValueAsString(policySet);
+        } catch (JsonProcessingException e) {
+            throw new InternalException("Failed to serialize policy set: " + e.getMessage());
+        }
+        long handle = preparePolicySetJni(policySetJson);
+        return new PreparedPolicySet(handle, policySet.getNumPolicies(), policySet.getNumTemplates());
+    }
+
+    /**
+     * Parse a file of policies and templates in the Cedar language, as accepted by
+     * {@link PolicySet#parsePolicies(Path)}, and keep it resident in the native library. The file is
+     * read by the native library, so its contents are never copied onto the Java heap. Policies get
+     * the same ids as with {@link PolicySet#parsePolicies(Path)}.
+     *
+     * @param path the file to read, which must be encoded as UTF-8
+     * @return a handle to the prepared policy set, which must be closed when no longer needed
+     * @throws InternalException if the file cannot be read or any of the policies are invalid
+     * @throws NullPointerException if the path is null
+     */
+    public static PreparedPolicySet loadFromFile(Path path) throws InternalException {
+        if (path == null) {
+            throw new NullPointerException("path");
+        }
+        final long[] loaded = loadPolicySetJni(path.toAbsolutePath().toString());
+        return new PreparedPolicySet(loaded[0], (int) loaded[1], (int) loaded[2]);
+    }
+
+    /**
+     * Get the native handle of this policy set.
+     *
+     * @return the handle passed to the native library in place of the policies
+     * @throws IllegalStateException if the policy set has been closed
+     */
+    @JsonValue
+    public long getHandle() {
+        if (closed.get()) {
+            throw new IllegalStateException("PreparedPolicySet has been closed");
+        }
+        return handle;
+    }
+
+    /**
+     * Gets number of static policies in the prepared policy set.
+     *
+     * @return number of static policies
+     */
+    public int getNumPolicies() {
+        return numPolicies;
+    }
+
+    /**
+     * Gets number of templates in the prepared policy set.
+     *
+     * @return number of templates
+     */
+    public int getNumTemplates() {
+        return numTemplates;
+    }
+
+    /**
+     * Check whether the native policy set has been released.
+     *
+     * @return true if {@link #close()} has been called
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /** Release the native policy set. Closing an already closed policy set has no effect. */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            freePolicySetJni(handle);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedPolicySet(" + handle + (closed.get() ? ", closed)" : ")");
+    }
+
+    private static ObjectMapper createObjectMapper() {
+        final ObjectMapper mapper = new ObjectMapper();
+        final SimpleModule module = new SimpleModule();
+        module.addSerializer(PolicySet.class, new PolicySetSerializer());
+        module.addSerializer(TemplateLink.class, new TemplateLinkSerializer());
+        mapper.registerModule(module);
+        return mapper;
+    }
+
+    private static native long preparePolicySetJni(String policySetJson) throws InternalException, NullPointerException;
+
+    private static native long[] loadPolicySetJni(String path) throws InternalException, NullPointerException;
+
+    private static native boolean freePolicySetJni(long handle);
+}
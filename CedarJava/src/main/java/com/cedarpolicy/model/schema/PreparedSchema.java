@@ -0,0 +1,147 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model.schema;
+
+import com.cedarpolicy.jfr.SchemaParseEvent;
+import com.cedarpolicy.loader.LibraryLoader;
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.serializer.SchemaSerializer;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A schema that has been parsed once and is kept resident in the native Cedar library.
+ *
+ * <p>A {@link Schema} is re-serialized and re-parsed by every request that uses it. A prepared
+ * schema is parsed when it is created and is referred to by handle afterwards, so it can be shared
+ * by authorization, policy validation and entity validation requests without paying for schema
+ * parsing again.
+ *
+ * <p>The native schema is held until {@link #close()} is called. Instances are immutable and safe to
+ * share between threads; closing one while a request is in flight does not affect that request.
+ */
+public final class PreparedSchema implements AutoCloseable {
+    static {
+        LibraryLoader.loadLibrary();
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+
+    private final long handle;
+    private final Schema schema;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private PreparedSchema(long handle, Schema schema) {
+        this.handle = handle;
+        this.schema = schema;
+    }
+
+    /**
+     * Parse a schema in either format and keep it resident in the native library.
+     *
+     * @param schema the schema to prepare
+     * @return a handle to the prepared schema, which must be closed when no longer needed
+     * @throws InternalException if the schema is invalid
+     * @throws NullPointerException if the schema is null
+     */
+    public static PreparedSchema prepare(Schema schema) throws InternalException {
+        if (schema == null) {
+            throw new NullPointerException("schema");
+        }
+        final String schemaJson;
+        try {
+            schemaJson = OBJECT_MAPPER.writeValueAsString(schema);
+        } catch (JsonProcessingException e) {
+            throw new InternalException("Failed to serialize schema: " + e.getMessage());
+        }
+        final SchemaParseEvent event = new SchemaParseEvent();
+        event.begin();
+        boolean parsed = false;
+        try {
+            long handle = prepareSchemaJni(schemaJson);
+            parsed = true;
+            return new PreparedSchema(handle, schema);
+        } finally {
+            if (event.shouldCommit()) {
+                event.setSchema(String.valueOf(schema.type), schemaJson.length(), true);
+                event.setSuccess(parsed);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Get the schema this was prepared from.
+     *
+     * @return the source schema
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Get the native handle of this schema.
+     *
+     * @return the handle passed to the native library in place of the schema
+     * @throws IllegalStateException if the schema has been closed
+     */
+    @JsonValue
+    public long getHandle() {
+        if (closed.get()) {
+            throw new IllegalStateException("PreparedSchema has been closed");
+        }
+        return handle;
+    }
+
+    /**
+     * Check whether the native schema has been released.
+     *
+     * @return true if {@link #close()} has been called
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /** Release the native schema. Closing an already closed schema has no effect. */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            freeSchemaJni(handle);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedSchema(" + handle + (closed.get() ? ", closed)" : ")");
+    }
+
+    private static ObjectMapper createObjectMapper() {
+        final ObjectMapper mapper = new ObjectMapper();
+        final SimpleModule module = new SimpleModule();
+        module.addSerializer(Schema.class, new SchemaSerializer());
+        mapper.registerModule(module);
+        return mapper;
+    }
+
+    private static native long prepareSchemaJni(String schemaJson) throws InternalException, NullPointerException;
+
+    private static native boolean freeSchemaJni(long handle);
+}
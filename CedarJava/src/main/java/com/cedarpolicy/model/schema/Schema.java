@@ -16,6 +16,7 @@
 
 package com.cedarpolicy.model.schema;
 
+import com.cedarpolicy.jfr.SchemaParseEvent;
 import com.cedarpolicy.loader.LibraryLoader;
 import com.cedarpolicy.model.exception.InternalException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -112,14 +113,27 @@ public final class Schema {
      * @return A {@link Schema} that is guaranteed to be valid.
      */
     public static Schema parse(JsonOrCedar type, String str) throws InternalException, NullPointerException {
-        if (type == JsonOrCedar.Json) {
-            parseJsonSchemaJni(str);
-            return new Schema(JsonOrCedar.Json, Optional.of(str), Optional.empty());
-        } else {
-            parseCedarSchemaJni(str);
-            return new Schema(JsonOrCedar.Cedar, Optional.empty(), Optional.of(str));
+        final SchemaParseEvent event = new SchemaParseEvent();
+        event.begin();
+        boolean parsed = false;
+        try {
+            final Schema schema;
+            if (type == JsonOrCedar.Json) {
+                parseJsonSchemaJni(str);
+                schema = new Schema(JsonOrCedar.Json, Optional.of(str), Optional.empty());
+            } else {
+                parseCedarSchemaJni(str);
+                schema = new Schema(JsonOrCedar.Cedar, Optional.empty(), Optional.of(str));
+            }
+            parsed = true;
+            return schema;
+        } finally {
+            if (event.shouldCommit()) {
+                event.setSchema(String.valueOf(type), str != null ? str.length() : 0, false);
+                event.setSuccess(parsed);
+                event.commit();
+            }
         }
-
     }
 
     /** Specifies the schema format used. */
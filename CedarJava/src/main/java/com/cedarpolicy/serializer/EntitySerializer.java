@@ -22,7 +22,6 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import java.io.IOException;
-import java.util.stream.Collectors;
 
 /** Serialize an entity. */
 public class EntitySerializer extends JsonSerializer<Entity> {
@@ -33,11 +32,17 @@ public class EntitySerializer extends JsonSerializer<Entity> {
             Entity entity, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
             throws IOException {
         jsonGenerator.writeStartObject();
-        jsonGenerator.writeObjectField("uid", entity.getEUID().asJson());
-        jsonGenerator.writeObjectField("attrs", entity.attrs);
-        jsonGenerator.writeObjectField("parents",
-                entity.getParents().stream().map(EntityUID::asJson).collect(Collectors.toSet()));
-        jsonGenerator.writeObjectField("tags", entity.tags);
+        jsonGenerator.writeFieldName("uid");
+        ValueSerializer.writeEntityUID(entity.getEUID(), jsonGenerator);
+        jsonGenerator.writeFieldName("attrs");
+        ValueSerializer.writeRecord(entity.attrs, jsonGenerator);
+        jsonGenerator.writeArrayFieldStart("parents");
+        for (EntityUID parent : entity.getParents()) {
+            ValueSerializer.writeEntityUID(parent, jsonGenerator);
+        }
+        jsonGenerator.writeEndArray();
+        jsonGenerator.writeFieldName("tags");
+        ValueSerializer.writeRecord(entity.tags, jsonGenerator);
         jsonGenerator.writeEndObject();
     }
 }
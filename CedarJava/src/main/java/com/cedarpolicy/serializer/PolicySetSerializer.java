@@ -16,11 +16,15 @@
 
 package com.cedarpolicy.serializer;
 
+import com.cedarpolicy.model.policy.Policy;
 import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.TemplateLink;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 /** Serialize a policy set. */
 public class PolicySetSerializer extends JsonSerializer<PolicySet> {
@@ -31,9 +35,36 @@ public class PolicySetSerializer extends JsonSerializer<PolicySet> {
             PolicySet policySet, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
             throws IOException {
         jsonGenerator.writeStartObject();
-        jsonGenerator.writeObjectField("staticPolicies", policySet.getStaticPolicies());
-        jsonGenerator.writeObjectField("templates", policySet.getTemplates());
-        jsonGenerator.writeObjectField("templateLinks", policySet.templateLinks);
+        jsonGenerator.writeFieldName("staticPolicies");
+        writePolicies(policySet.policies, jsonGenerator);
+        jsonGenerator.writeFieldName("templates");
+        writePolicies(policySet.templates, jsonGenerator);
+        jsonGenerator.writeFieldName("templateLinks");
+        if (policySet.templateLinks == null) {
+            jsonGenerator.writeNull();
+        } else {
+            jsonGenerator.writeStartArray();
+            for (TemplateLink link : policySet.templateLinks) {
+                TemplateLinkSerializer.write(link, jsonGenerator);
+            }
+            jsonGenerator.writeEndArray();
+        }
+        jsonGenerator.writeEndObject();
+    }
+
+    /**
+     * Write policies as an object from policy id to source. The ids are tracked because a policy whose
+     * id is repeated would otherwise silently replace the earlier one on the Rust side.
+     */
+    private static void writePolicies(Set<Policy> policies, JsonGenerator jsonGenerator) throws IOException {
+        final Set<String> ids = new HashSet<>(policies.size() * 2);
+        jsonGenerator.writeStartObject();
+        for (Policy policy : policies) {
+            if (!ids.add(policy.getID())) {
+                throw new IllegalStateException("Duplicate policy id " + policy.getID());
+            }
+            jsonGenerator.writeStringField(policy.getID(), policy.getSource());
+        }
         jsonGenerator.writeEndObject();
     }
 }
@@ -17,12 +17,12 @@
 package com.cedarpolicy.serializer;
 
 import com.cedarpolicy.model.policy.TemplateLink;
+import com.cedarpolicy.value.EntityUID;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import java.io.IOException;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
 
 /** Serialize a template-linked policy. */
 public class TemplateLinkSerializer extends JsonSerializer<TemplateLink> {
@@ -32,12 +32,25 @@ public class TemplateLinkSerializer extends JsonSerializer<TemplateLink> {
     public void serialize(
             TemplateLink link, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
             throws IOException {
+        write(link, jsonGenerator);
+    }
+
+    /** Write a template-linked policy straight to the generator. */
+    static void write(TemplateLink link, JsonGenerator jsonGenerator) throws IOException {
+        if (link == null) {
+            jsonGenerator.writeNull();
+            return;
+        }
         jsonGenerator.writeStartObject();
-        jsonGenerator.writeObjectField("templateId", link.getTemplateId());
-        jsonGenerator.writeObjectField("newId", link.getResultPolicyId());
-        jsonGenerator.writeObjectField("values", link.getLinkValues().entrySet()
-                .stream()
-                .collect(Collectors.toMap(Entry::getKey, e -> e.getValue().asJson())));
+        jsonGenerator.writeStringField("templateId", link.getTemplateId());
+        jsonGenerator.writeStringField("newId", link.getResultPolicyId());
+        jsonGenerator.writeObjectFieldStart("values");
+        // The map holds one entry per slot, and building it rejects a slot that is linked twice
+        for (Entry<String, EntityUID> value : link.getLinkValues().entrySet()) {
+            jsonGenerator.writeFieldName(value.getKey());
+            ValueSerializer.writeEntityUID(value.getValue(), jsonGenerator);
+        }
+        jsonGenerator.writeEndObject();
         jsonGenerator.writeEndObject();
     }
 }
@@ -31,124 +31,192 @@ import com.cedarpolicy.value.PrimString;
 import com.cedarpolicy.value.Unknown;
 import com.cedarpolicy.value.Value;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 
 /** Deserialize Json to Value. This is mostly an implementation detail, but you may need to modify it if you extend the
- * `Value` class. */
+ * `Value` class.
+ *
+ * <p>Values are built straight from the parser's tokens in a single pass, without reading them into a tree first.
+ * Nesting is bounded by an explicit depth counter rather than by the size of the stack. */
 public class ValueDeserializer extends JsonDeserializer<Value> {
     private static final String ENTITY_ESCAPE_SEQ = "__entity";
     private static final String EXTENSION_ESCAPE_SEQ = "__extn";
 
-    private enum EscapeType {
-        ENTITY,
-        EXTENSION,
-        UNRECOGNIZED
-    }
+    /** How deeply lists and records may be nested, which matches Jackson's default limit for JSON documents. */
+    private static final int MAX_DEPTH = 1000;
 
     /** Deserialize Json to Value. */
     @Override
     public Value deserialize(JsonParser parser, DeserializationContext context) throws IOException {
-        final JsonNode node = parser.getCodec().readTree(parser);
-        final ObjectMapper mapper = (ObjectMapper) parser.getCodec();
-        try {
-            if (node.canConvertToLong()) {
-                return new PrimLong(node.asLong());
-            } else if (node.isBoolean()) {
-                return new PrimBool(node.asBoolean());
-            } else if (node.isTextual()) {
-                return new PrimString(node.asText());
-            } else if (node.isArray()) {
-                CedarList myNode = new CedarList();
-                Iterator<JsonNode> iter = node.elements();
-                while (iter.hasNext()) {
-                    myNode.add(mapper.treeToValue(iter.next(), Value.class));
-                }
-                return myNode;
-            } else if (node.isObject()) {
-                Iterator<Map.Entry<String, JsonNode>> iter = node.fields();
-                // Do two passes, one to check if it is an escaped entity or extension and a second to
-                // write into a
-                // map
-                EscapeType escapeType = EscapeType.UNRECOGNIZED;
-                int count = 0;
-                while (iter.hasNext()) {
-                    count++;
-                    Map.Entry<String, JsonNode> entry = iter.next();
-                    if (entry.getKey().equals(ENTITY_ESCAPE_SEQ)) {
-                        escapeType = EscapeType.ENTITY;
-                    } else if (entry.getKey().equals(EXTENSION_ESCAPE_SEQ)) {
-                        escapeType = EscapeType.EXTENSION;
-                    }
-                }
-                if (escapeType != EscapeType.UNRECOGNIZED) {
-                    if (count == 1) {
-                        if (escapeType == EscapeType.ENTITY) {
-                            JsonNode val = node.get(ENTITY_ESCAPE_SEQ);
-                            if (val.isObject() && val.has("id") && val.has("type")) {
-                                int numFields = 0;
-                                for (Iterator<String> it = val.fieldNames(); it.hasNext(); it.next()) {
-                                    numFields++;
-                                }
-                                if (numFields == 2) {
-                                    EntityIdentifier id = new EntityIdentifier(val.get("id").textValue());
-                                    Optional<EntityTypeName> type = EntityTypeName.parse(val.get("type").textValue());
-                                    if (type.isPresent()) {
-                                        return new EntityUID(type.get(), id);
-                                    } else {
-                                        String msg = "Invalid Entity Type" + val.get("type").textValue();
-                                        throw new InvalidValueDeserializationException(parser, msg, node.asToken(), Map.class);
-                                    }
-                                }
-                            }
-                            throw new InvalidValueDeserializationException(parser,
-                                    "Not textual node: " + node.toString(), node.asToken(), Map.class);
-                        } else {
-                            JsonNode val = node.get(EXTENSION_ESCAPE_SEQ);
-                            JsonNode fn = val.get("fn");
-                            if (!fn.isTextual()) {
-                                throw new InvalidValueDeserializationException(parser,
-                                        "Not textual node: " + fn.toString(), node.asToken(), Map.class);
-                            }
-                            JsonNode arg = val.get("arg");
-                            if (!arg.isTextual()) {
-                                throw new InvalidValueDeserializationException(parser,
-                                        "Not textual node: " + arg.toString(), node.asToken(), Map.class);
-                            }
-                            if (fn.textValue().equals("ip")) {
-                                return new IpAddress(arg.textValue());
-                            } else if (fn.textValue().equals("decimal")) {
-                                return new Decimal(arg.textValue());
-                            } else if (fn.textValue().equals("unknown")) {
-                                return new Unknown(arg.textValue());
-                            } else {
-                                throw new InvalidValueDeserializationException(parser,
-                                        "Invalid function type: " + fn.toString(), node.asToken(), Map.class);
-                            }
-                        }
-                    } else {
-                        throw new InvalidValueDeserializationException(parser,
-                                "More than one K,V pair with {__entity, __extn}: " + node.toString(), node.asToken(), Map.class);
-                    }
+        return readValue(parser, 0);
+    }
+
+    /** Read the value starting at the current token, leaving the parser on its last token. */
+    private static Value readValue(JsonParser parser, int depth) throws IOException {
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                throw new InvalidValueDeserializationException(parser,
+                        "Integer out of range: " + parser.getText(), token, Long.class);
+            }
+            return new PrimLong(parser.getLongValue());
+        } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            // Numbers with a fraction or exponent are truncated, as long as they are in range
+            final double number = parser.getDoubleValue();
+            if (number < Long.MIN_VALUE || number > Long.MAX_VALUE || Double.isNaN(number)) {
+                throw new InvalidValueDeserializationException(parser,
+                        "Number out of range: " + parser.getText(), token, Long.class);
+            }
+            return new PrimLong((long) number);
+        } else if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return new PrimBool(token == JsonToken.VALUE_TRUE);
+        } else if (token == JsonToken.VALUE_STRING) {
+            return new PrimString(parser.getText());
+        } else if (token == JsonToken.VALUE_NULL) {
+            return null;
+        } else if (token == JsonToken.START_ARRAY) {
+            checkDepth(depth);
+            final CedarList list = new CedarList();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                list.add(readValue(parser, depth + 1));
+            }
+            return list;
+        } else if (token == JsonToken.START_OBJECT || token == JsonToken.FIELD_NAME) {
+            checkDepth(depth);
+            return readObject(parser, depth);
+        } else {
+            throw new InvalidValueDeserializationException(parser, String.valueOf(parser.getText()), token,
+                    Object.class);
+        }
+    }
+
+    private static void checkDepth(int depth) throws DeserializationRecursionDepthException {
+        if (depth >= MAX_DEPTH) {
+            throw new DeserializationRecursionDepthException(
+                    "Value nested more than " + MAX_DEPTH + " levels deep");
+        }
+    }
+
+    /**
+     * Read a record, or an entity or extension escape. An escape must be the only field of its object, so a record
+     * that has an escape among other fields is an error.
+     */
+    private static Value readObject(JsonParser parser, int depth) throws IOException {
+        JsonToken token = parser.currentToken() == JsonToken.START_OBJECT ? parser.nextToken() : parser.currentToken();
+        if (token == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            if (name.equals(ENTITY_ESCAPE_SEQ)) {
+                return readEntity(parser);
+            } else if (name.equals(EXTENSION_ESCAPE_SEQ)) {
+                return readExtension(parser);
+            }
+        }
+        final CedarMap record = new CedarMap();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            final String name = parser.currentName();
+            if (name.equals(ENTITY_ESCAPE_SEQ) || name.equals(EXTENSION_ESCAPE_SEQ)) {
+                throw multipleFields(parser, name);
+            }
+            parser.nextToken();
+            record.put(name, readValue(parser, depth + 1));
+        }
+        return record;
+    }
+
+    /** Read the value of an {@code __entity} escape, which is an object with a textual {@code id} and {@code type}. */
+    private static Value readEntity(JsonParser parser) throws IOException {
+        String id = null;
+        String type = null;
+        int fields = 0;
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                parser.nextToken();
+                fields++;
+                if (name.equals("id")) {
+                    id = readText(parser);
+                } else if (name.equals("type")) {
+                    type = readText(parser);
+                } else {
+                    parser.skipChildren();
                 }
-                CedarMap myMap = new CedarMap();
-                iter = node.fields();
-                while (iter.hasNext()) {
-                    Map.Entry<String, JsonNode> entry = iter.next();
-                    myMap.put(entry.getKey(), mapper.treeToValue(entry.getValue(), Value.class));
+            }
+        } else {
+            parser.skipChildren();
+        }
+        endEscape(parser, ENTITY_ESCAPE_SEQ);
+        if (fields != 2 || id == null || type == null) {
+            throw new InvalidValueDeserializationException(parser,
+                    "Entity escape must have exactly a textual `id` and `type`", parser.currentToken(), Map.class);
+        }
+        final Optional<EntityTypeName> typeName = EntityTypeName.parse(type);
+        if (!typeName.isPresent()) {
+            throw new InvalidValueDeserializationException(parser, "Invalid Entity Type " + type,
+                    parser.currentToken(), Map.class);
+        }
+        return new EntityUID(typeName.get(), new EntityIdentifier(id));
+    }
+
+    /** Read the value of an {@code __extn} escape, which is an object with a textual {@code fn} and {@code arg}. */
+    private static Value readExtension(JsonParser parser) throws IOException {
+        String fn = null;
+        String arg = null;
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                parser.nextToken();
+                if (name.equals("fn")) {
+                    fn = readText(parser);
+                } else if (name.equals("arg")) {
+                    arg = readText(parser);
+                } else {
+                    parser.skipChildren();
                 }
-                return myMap;
-            } else {
-                throw new InvalidValueDeserializationException(parser, node.toString(), node.asToken(), Object.class);
             }
-        } catch (StackOverflowError e) {
-            throw new DeserializationRecursionDepthException("Stack overflow while deserializing value. " + e.toString());
+        } else {
+            parser.skipChildren();
+        }
+        endEscape(parser, EXTENSION_ESCAPE_SEQ);
+        if (fn == null || arg == null) {
+            throw new InvalidValueDeserializationException(parser,
+                    "Extension escape must have a textual `fn` and `arg`", parser.currentToken(), Map.class);
         }
+        if (fn.equals("ip")) {
+            return new IpAddress(arg);
+        } else if (fn.equals("decimal")) {
+            return new Decimal(arg);
+        } else if (fn.equals("unknown")) {
+            return new Unknown(arg);
+        } else {
+            throw new InvalidValueDeserializationException(parser,
+                    "Invalid function type: " + fn, parser.currentToken(), Map.class);
+        }
+    }
+
+    /** The text of the current token if it is a string, otherwise null after skipping the value. */
+    private static String readText(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /** Move to the end of the object holding an escape, which must not have any other fields. */
+    private static void endEscape(JsonParser parser, String escape) throws IOException {
+        if (parser.nextToken() == JsonToken.FIELD_NAME) {
+            throw multipleFields(parser, escape);
+        }
+    }
+
+    private static InvalidValueDeserializationException multipleFields(JsonParser parser, String escape) {
+        return new InvalidValueDeserializationException(parser,
+                "More than one K,V pair with {__entity, __extn}: `" + escape + "` is not the only field",
+                parser.currentToken(), Map.class);
     }
 }
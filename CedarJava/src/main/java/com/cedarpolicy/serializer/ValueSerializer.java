@@ -44,14 +44,22 @@ public class ValueSerializer extends JsonSerializer<Value> {
     public void serialize(
             Value value, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
             throws IOException {
-        if (value instanceof EntityUID) {
+        write(value, jsonGenerator);
+    }
+
+    /**
+     * Write a value straight to the generator, recursing into lists and records without going back
+     * through Jackson's serializer lookup for every nested value.
+     */
+    static void write(Value value, JsonGenerator jsonGenerator) throws IOException {
+        if (value == null) {
+            jsonGenerator.writeNull();
+        } else if (value instanceof EntityUID) {
             jsonGenerator.writeStartObject();
             jsonGenerator.writeFieldName(ENTITY_ESCAPE_SEQ);
             jsonGenerator.writeStartObject();
-            jsonGenerator.writeFieldName("id");
-            jsonGenerator.writeString(((EntityUID) value).getId().toString());
-            jsonGenerator.writeFieldName("type");
-            jsonGenerator.writeString(((EntityUID) value).getType().toString());
+            jsonGenerator.writeStringField("id", ((EntityUID) value).getId().toString());
+            jsonGenerator.writeStringField("type", ((EntityUID) value).getType().toString());
             jsonGenerator.writeEndObject();
             jsonGenerator.writeEndObject();
         } else if (value instanceof PrimString) {
@@ -63,45 +71,17 @@ public class ValueSerializer extends JsonSerializer<Value> {
         } else if (value instanceof CedarList) {
             jsonGenerator.writeStartArray();
             for (Value item : (CedarList) value) {
-                jsonGenerator.writeObject(item);
+                write(item, jsonGenerator);
             }
             jsonGenerator.writeEndArray();
         } else if (value instanceof CedarMap) {
-            jsonGenerator.writeStartObject();
-            for (Map.Entry<String, Value> entry : ((CedarMap) value).entrySet()) {
-                jsonGenerator.writeObjectField(entry.getKey(), entry.getValue());
-            }
-            jsonGenerator.writeEndObject();
+            writeRecord((CedarMap) value, jsonGenerator);
         } else if (value instanceof IpAddress) {
-            jsonGenerator.writeStartObject();
-            jsonGenerator.writeFieldName(EXTENSION_ESCAPE_SEQ);
-            jsonGenerator.writeStartObject();
-            jsonGenerator.writeFieldName("fn");
-            jsonGenerator.writeString("ip");
-            jsonGenerator.writeFieldName("arg");
-            jsonGenerator.writeString(value.toString());
-            jsonGenerator.writeEndObject();
-            jsonGenerator.writeEndObject();
+            writeExtension("ip", value, jsonGenerator);
         } else if (value instanceof Decimal) {
-            jsonGenerator.writeStartObject();
-            jsonGenerator.writeFieldName(EXTENSION_ESCAPE_SEQ);
-            jsonGenerator.writeStartObject();
-            jsonGenerator.writeFieldName("fn");
-            jsonGenerator.writeString("decimal");
-            jsonGenerator.writeFieldName("arg");
-            jsonGenerator.writeString(value.toString());
-            jsonGenerator.writeEndObject();
-            jsonGenerator.writeEndObject();
+            writeExtension("decimal", value, jsonGenerator);
         } else if (value instanceof Unknown) {
-            jsonGenerator.writeStartObject();
-            jsonGenerator.writeFieldName(EXTENSION_ESCAPE_SEQ);
-            jsonGenerator.writeStartObject();
-            jsonGenerator.writeFieldName("fn");
-            jsonGenerator.writeString("unknown");
-            jsonGenerator.writeFieldName("arg");
-            jsonGenerator.writeString(value.toString());
-            jsonGenerator.writeEndObject();
-            jsonGenerator.writeEndObject();
+            writeExtension("unknown", value, jsonGenerator);
         } else {
             // It is recommended that you extend the Value classes in
             // main.java.com.cedarpolicy.model.value or that you convert your class to a CedarMap
@@ -111,4 +91,36 @@ public class ValueSerializer extends JsonSerializer<Value> {
                             + "type.");
         }
     }
+
+    /** Write a map of values as a JSON object, or null if there is no map. */
+    static void writeRecord(Map<String, Value> record, JsonGenerator jsonGenerator) throws IOException {
+        if (record == null) {
+            jsonGenerator.writeNull();
+            return;
+        }
+        jsonGenerator.writeStartObject();
+        for (Map.Entry<String, Value> entry : record.entrySet()) {
+            jsonGenerator.writeFieldName(entry.getKey());
+            write(entry.getValue(), jsonGenerator);
+        }
+        jsonGenerator.writeEndObject();
+    }
+
+    /** Write an entity uid in the form Cedar expects outside of values: {@code {"type": .., "id": ..}}. */
+    static void writeEntityUID(EntityUID euid, JsonGenerator jsonGenerator) throws IOException {
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeStringField("type", euid.getType().toString());
+        jsonGenerator.writeStringField("id", euid.getId().toString());
+        jsonGenerator.writeEndObject();
+    }
+
+    private static void writeExtension(String fn, Value value, JsonGenerator jsonGenerator) throws IOException {
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeFieldName(EXTENSION_ESCAPE_SEQ);
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeStringField("fn", fn);
+        jsonGenerator.writeStringField("arg", value.toString());
+        jsonGenerator.writeEndObject();
+        jsonGenerator.writeEndObject();
+    }
 }
@@ -22,9 +22,18 @@ import com.cedarpolicy.loader.LibraryLoader;
 /**
  * Class representing Entity Identifiers.
  * All strings are valid Entity Identifiers
+ *
+ * <p>Entity Identifiers are immutable. Their representation is computed on first use and kept.
  */
 public final class EntityIdentifier {
-    private String id;
+    private final String id;
+
+    /**
+     * The escaped representation, or null until it is first asked for. Like the hash of a
+     * {@link String}, it may be computed more than once by racing threads, which all get the same
+     * result, so it needs no synchronization and costs no more than one field.
+     */
+    private String repr;
 
     static {
         LibraryLoader.loadLibrary();
@@ -39,11 +48,73 @@ public final class EntityIdentifier {
     }
 
     /**
-     * Calls the Rust core and returns the quoted representation of this Entity Identifier
-     * @return String containing the quoted representation of this Entity Identifier
+     * Returns the escaped representation of this Entity Identifier, as it appears between the quotes
+     * of an entity uid in Cedar. Identifiers that are not entirely ASCII are escaped by the Rust core.
+     * @return String containing the escaped representation of this Entity Identifier
      */
     public String getRepr() {
-        return getEntityIdentifierRepr(this);
+        String cached = repr;
+        if (cached == null) {
+            cached = escapeAscii(id);
+            if (cached == null) {
+                cached = getEntityIdentifierRepr(this);
+            }
+            repr = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Escape a string the way Cedar does, which is Rust's {@code str::escape_debug}. Only ASCII is
+     * handled here, since which other characters are escaped depends on Unicode tables.
+     * @param s The string to escape
+     * @return The escaped string, or null if the string contains characters outside ASCII
+     */
+    static String escapeAscii(String s) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c >= 0x80) {
+                return null;
+            }
+            final String escape = escape(c);
+            if (escape != null && escaped == null) {
+                escaped = new StringBuilder(s.length() + 8).append(s, 0, i);
+            }
+            if (escaped != null) {
+                if (escape != null) {
+                    escaped.append(escape);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped != null ? escaped.toString() : s;
+    }
+
+    /** The escape of an ASCII character, or null if it stands for itself. */
+    private static String escape(char c) {
+        switch (c) {
+            case '\0':
+                return "\\0";
+            case '\t':
+                return "\\t";
+            case '\r':
+                return "\\r";
+            case '\n':
+                return "\\n";
+            case '\\':
+                return "\\\\";
+            case '"':
+                return "\\\"";
+            case '\'':
+                return "\\'";
+            default:
+                if (c < 0x20 || c == 0x7f) {
+                    return "\\u{" + Integer.toHexString(c) + "}";
+                }
+                return null;
+        }
     }
 
     @Override
@@ -53,20 +124,16 @@ public final class EntityIdentifier {
 
     @Override
     public boolean equals(Object o) {
-        if (o == null) {
+        if (o == this) {
             return true;
-        } else if (o == this) {
+        }
+        if (!(o instanceof EntityIdentifier)) {
             return false;
-        } else {
-            try {
-                EntityIdentifier rhs = (EntityIdentifier) o;
-                return this.id.equals(rhs.id);
-            } catch (ClassCastException e) {
-                return false;
-            }
         }
+        return id.equals(((EntityIdentifier) o).id);
     }
 
+    /** The hash of the identifier string, which {@link String} computes once and keeps. */
     @Override
     public int hashCode() {
         return id.hashCode();
@@ -17,12 +17,14 @@
 package com.cedarpolicy.value;
 
 import com.cedarpolicy.loader.LibraryLoader;
-import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.Objects;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -33,9 +35,23 @@ import java.util.stream.Stream;
     2) a basename
 */
 public final class EntityTypeName {
+    /** The number of sources whose parse results are kept by {@link #parse(String)}. */
+    private static final int PARSE_CACHE_SIZE = 4096;
+
+    /**
+     * Results of {@link #parse(String)} by source, so that parsing a type name that was seen recently
+     * does not call the native library. The least recently used sources are evicted first.
+     */
+    private static final Cache<String, Optional<EntityTypeName>> PARSED =
+            CacheBuilder.newBuilder().maximumSize(PARSE_CACHE_SIZE).build();
+
+    /** The canonical instance of each type name that is still in use. */
+    private static final Interner<EntityTypeName> CANONICAL = Interners.newWeakInterner();
+
     private final List<String> namespace;
     private final String basename;
-    private final Supplier<String> entityTypeNameRepr;
+    private final int hashCode;
+    private final String entityTypeNameRepr;
 
     static {
         LibraryLoader.loadLibrary();
@@ -50,7 +66,9 @@ public final class EntityTypeName {
     protected EntityTypeName(List<String> namespace, String  basename) {
         this.namespace = namespace;
         this.basename = basename;
-        this.entityTypeNameRepr = Suppliers.memoize(() -> getEntityTypeNameRepr(this));
+        this.hashCode = Objects.hash(basename, namespace);
+        // Names are made of identifiers, which need no escaping
+        this.entityTypeNameRepr = namespace.isEmpty() ? basename : String.join("::", namespace) + "::" + basename;
     }
 
     /**
@@ -94,7 +112,7 @@ public final class EntityTypeName {
     }
 
     public String toString() {
-        return this.entityTypeNameRepr.get();
+        return this.entityTypeNameRepr;
     }
 
     /**
@@ -115,25 +133,40 @@ public final class EntityTypeName {
         }
         try {
             EntityTypeName rhsTypename = (EntityTypeName) rhs;
-            return basename.equals(rhsTypename.basename) && namespace.equals(rhsTypename.namespace);
+            return hashCode == rhsTypename.hashCode
+                    && basename.equals(rhsTypename.basename) && namespace.equals(rhsTypename.namespace);
         } catch (ClassCastException e) {
             return false;
         }
     }
 
     public int hashCode() {
-        return Objects.hash(basename, namespace);
+        return hashCode;
     }
 
     /**
      * Attempt to parse a string into an EntityTypeName
+     *
+     * <p>Type names that parse are interned: while a type name is in use, parsing any source that
+     * names it returns the same instance, so comparing such instances is a reference comparison.
+     * Recently parsed sources, and plain names such as {@code Ns::Type}, are answered without
+     * calling the native library.
      * @param src the string to be parsed
      * @return An optional containing the EntityTypeName if it was able to be parsed
      */
     public static Optional<EntityTypeName> parse(String src) {
-        return parseEntityTypeName(src);
+        if (src == null) {
+            throw new NullPointerException("src");
+        }
+        return PARSED.asMap().computeIfAbsent(src, key -> parseUncached(key).map(CANONICAL::intern));
+    }
+
+    private static Optional<EntityTypeName> parseUncached(String src) {
+        final EntityTypeName plain = NameParser.typeName(src);
+        return plain != null ? Optional.of(plain) : parseEntityTypeName(src);
     }
 
     private static native Optional<EntityTypeName> parseEntityTypeName(String src);
+    /** The rendering of the Rust core, which the Java rendering is checked against in tests. */
     private static native String getEntityTypeNameRepr(EntityTypeName type);
 }
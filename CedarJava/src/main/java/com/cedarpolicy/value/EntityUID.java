@@ -45,7 +45,7 @@ public final class EntityUID extends Value {
     public EntityUID(EntityTypeName type, EntityIdentifier id) {
         this.type = type;
         this.id = id;
-        this.euidRepr = Suppliers.memoize(() -> getEUIDRepr(type, id));
+        this.euidRepr = Suppliers.memoize(() -> repr(type, id));
     }
 
     /**
@@ -106,8 +106,23 @@ public final class EntityUID extends Value {
     }
 
 
+    /** Render a uid as Cedar does, sharing the id's cached representation. */
+    private static String repr(EntityTypeName type, EntityIdentifier id) {
+        return type.toString() + "::\"" + id.getRepr() + "\"";
+    }
+
+    /**
+     * Attempt to parse a string into an EntityUID. Plain uids such as {@code Ns::Type::"id"} are
+     * parsed in Java, and their types are shared as described in {@link EntityTypeName#parse(String)}.
+     * @param src the string to be parsed
+     * @return An optional containing the EntityUID if it was able to be parsed
+     */
     public static Optional<EntityUID> parse(String src) {
-        return parseEntityUID(src);
+        if (src == null) {
+            throw new NullPointerException("src");
+        }
+        final EntityUID plain = NameParser.uid(src);
+        return plain != null ? Optional.of(plain) : parseEntityUID(src);
     }
 
     public JsonEUID asJson() {
@@ -119,6 +134,7 @@ public final class EntityUID extends Value {
     }
 
     private static native Optional<EntityUID> parseEntityUID(String src);
+    /** The rendering of the Rust core, which the Java rendering is checked against in tests. */
     private static native String getEUIDRepr(EntityTypeName type, EntityIdentifier id);
 
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.value;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Parses the common, plain forms of entity type names and entity uids without calling the native
+ * library: identifiers joined by {@code ::} with no whitespace or comments, and ids with no escapes.
+ *
+ * <p>Every source accepted here is one the Rust parser accepts with the same result. Anything
+ * else, whether invalid or merely unusual, is reported as {@code null} and left to the Rust
+ * parser, which remains the authority on the grammar.
+ */
+final class NameParser {
+    private static final String SEPARATOR = "::";
+
+    /**
+     * Words the Rust parser treats specially in names. Some are rejected and some are not, so names
+     * that use them are all left to the Rust parser.
+     */
+    private static final Set<String> SPECIAL = ImmutableSet.of(
+            "true", "false", "if", "then", "else", "in", "is", "like", "has",
+            "principal", "action", "resource", "context");
+
+    /** Prefix of the identifiers reserved by Cedar. */
+    private static final String RESERVED_PREFIX = "__cedar";
+
+    private NameParser() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Parse a plain type name such as {@code Ns::Type}.
+     * @param src the source to parse
+     * @return the type name, or null if {@code src} is not a plain type name
+     */
+    static EntityTypeName typeName(String src) {
+        if (!isTypeName(src, src.length())) {
+            return null;
+        }
+        ImmutableList.Builder<String> namespace = ImmutableList.builder();
+        int start = 0;
+        for (int end = src.indexOf(SEPARATOR); end >= 0; end = src.indexOf(SEPARATOR, start)) {
+            namespace.add(src.substring(start, end));
+            start = end + SEPARATOR.length();
+        }
+        return new EntityTypeName(namespace.build(), src.substring(start));
+    }
+
+    /**
+     * Parse a plain entity uid such as {@code Ns::Type::"id"}. The type is parsed through
+     * {@link EntityTypeName#parse(String)}, so it is shared with other uids of the same type.
+     * @param src the source to parse
+     * @return the uid, or null if {@code src} is not a plain entity uid
+     */
+    static EntityUID uid(String src) {
+        final int quote = src.indexOf('"');
+        final int typeEnd = quote - SEPARATOR.length();
+        if (typeEnd <= 0 || !src.startsWith(SEPARATOR, typeEnd)
+                || src.length() < quote + 2 || src.charAt(src.length() - 1) != '"') {
+            return null;
+        }
+        final String id = src.substring(quote + 1, src.length() - 1);
+        if (!isPlainId(id) || !isTypeName(src, typeEnd)) {
+            return null;
+        }
+        return EntityTypeName.parse(src.substring(0, typeEnd))
+                .map(type -> new EntityUID(type, new EntityIdentifier(id)))
+                .orElse(null);
+    }
+
+    /** Whether {@code src} up to {@code end} is identifiers joined by {@code ::}. */
+    private static boolean isTypeName(String src, int end) {
+        int start = 0;
+        while (true) {
+            final int identEnd = identifierEnd(src, start, end);
+            if (identEnd < 0 || !isOrdinary(src.substring(start, identEnd))) {
+                return false;
+            }
+            if (identEnd == end) {
+                return true;
+            }
+            if (!src.startsWith(SEPARATOR, identEnd)) {
+                return false;
+            }
+            start = identEnd + SEPARATOR.length();
+        }
+    }
+
+    /** The end of the identifier starting at {@code start}, or -1 if there is none. */
+    private static int identifierEnd(String src, int start, int end) {
+        if (start >= end || !isIdentifierStart(src.charAt(start))) {
+            return -1;
+        }
+        int i = start + 1;
+        while (i < end && isIdentifierPart(src.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isOrdinary(String identifier) {
+        return !SPECIAL.contains(identifier) && !identifier.startsWith(RESERVED_PREFIX);
+    }
+
+    /**
+     * Whether {@code id} reads the same inside a Cedar string literal: it has no quotes, escapes or
+     * control characters. Ids with characters outside the Basic Multilingual Plane are also left to
+     * the Rust parser, so that surrogates never need checking for pairs.
+     */
+    private static boolean isPlainId(String id) {
+        for (int i = 0; i < id.length(); i++) {
+            final char c = id.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20 || c == 0x7f || Character.isSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.ValidationRequest;
+import com.cedarpolicy.model.ValidationResponse;
+import com.cedarpolicy.model.exception.BadRequestException;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/** Tests for the asynchronous authorization engine. */
+public class AsyncAuthorizationEngineTests {
+    private static final EntityUID ALICE = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+    private static final EntityUID VIEW = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+    private static final AuthorizationRequest REQUEST = new AuthorizationRequest(ALICE, VIEW, ALICE, new HashMap<>());
+    private static final PolicySet POLICIES =
+            new PolicySet(Set.of(new Policy("permit(principal == User::\"alice\",action,resource);", "p0")));
+
+    /** Test that requests are answered as by the blocking engine. */
+    @Test
+    public void answersRequests() throws Exception {
+        try (BoundedAsyncAuthorizationEngine engine = new BoundedAsyncAuthorizationEngine(2, 16)) {
+            AuthorizationResponse response =
+                    engine.isAuthorizedAsync(REQUEST, POLICIES, new HashSet<>()).get(10, TimeUnit.SECONDS);
+            assertTrue(response.success.orElseThrow().isAllowed());
+
+            Schema schema = new Schema("entity User; action view appliesTo { principal: User, resource: User };");
+            ValidationResponse validation =
+                    engine.validateAsync(new ValidationRequest(schema, POLICIES)).get(10, TimeUnit.SECONDS);
+            assertTrue(validation.validationPassed());
+        }
+    }
+
+    /** Test that errors of the blocking engine complete the future exceptionally. */
+    @Test
+    public void propagatesErrors() {
+        AuthorizationEngine failing = (AuthorizationEngine) Proxy.newProxyInstance(
+                AuthorizationEngine.class.getClassLoader(), new Class<?>[] {AuthorizationEngine.class},
+                (proxy, method, args) -> {
+                    throw new BadRequestException(new String[] {"invalid request"});
+                });
+        try (BoundedAsyncAuthorizationEngine engine = new BoundedAsyncAuthorizationEngine(failing, 1, 1)) {
+            CompletableFuture<AuthorizationResponse> future =
+                    engine.isAuthorizedAsync(REQUEST, POLICIES, new HashSet<>());
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(BadRequestException.class, e.getCause());
+        }
+    }
+
+    /** Test that requests are rejected once every thread is busy and the queue is full. */
+    @Test
+    public void rejectsWhenFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AuthorizationEngine basic = new BasicAuthorizationEngine();
+        AuthorizationEngine blocking = (AuthorizationEngine) Proxy.newProxyInstance(
+                AuthorizationEngine.class.getClassLoader(), new Class<?>[] {AuthorizationEngine.class},
+                (proxy, method, args) -> {
+                    started.countDown();
+                    release.await();
+                    try {
+                        return method.invoke(basic, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        try (BoundedAsyncAuthorizationEngine engine = new BoundedAsyncAuthorizationEngine(blocking, 1, 1)) {
+            CompletableFuture<AuthorizationResponse> running = engine.isAuthorizedAsync(REQUEST, POLICIES, Set.of());
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<AuthorizationResponse> queued = engine.isAuthorizedAsync(REQUEST, POLICIES, Set.of());
+            assertEquals(1, engine.getQueueDepth());
+            CompletableFuture<AuthorizationResponse> rejected = engine.isAuthorizedAsync(REQUEST, POLICIES, Set.of());
+            ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+
+            release.countDown();
+            assertTrue(running.get(10, TimeUnit.SECONDS).success.orElseThrow().isAllowed());
+            assertTrue(queued.get(10, TimeUnit.SECONDS).success.orElseThrow().isAllowed());
+        }
+    }
+
+    /** Test that a closed engine rejects new requests. */
+    @Test
+    public void closed() {
+        BoundedAsyncAuthorizationEngine engine = new BoundedAsyncAuthorizationEngine(1, 1);
+        engine.close();
+        engine.close();
+        CompletableFuture<AuthorizationResponse> future = engine.isAuthorizedAsync(REQUEST, POLICIES, Set.of());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    /** Test that invalid sizes are rejected. */
+    @Test
+    public void invalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedAsyncAuthorizationEngine(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedAsyncAuthorizationEngine(1, -1));
+    }
+}
@@ -16,20 +16,31 @@
 
 package com.cedarpolicy;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 
 import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.EntityValidationRequest;
+import com.cedarpolicy.model.ValidationRequest;
+import com.cedarpolicy.model.ValidationResponse;
 import com.cedarpolicy.model.PartialAuthorizationRequest;
 import com.cedarpolicy.model.PartialAuthorizationResponse;
 import com.cedarpolicy.model.AuthorizationResponse.SuccessOrFailure;
 import com.cedarpolicy.model.AuthorizationSuccessResponse.Decision;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.exception.InternalException;
 import com.cedarpolicy.model.exception.MissingExperimentalFeatureException;
 import com.cedarpolicy.model.entity.Entity;
 import com.cedarpolicy.model.policy.Policy;
 import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
+import com.cedarpolicy.model.schema.PreparedSchema;
+import com.cedarpolicy.model.schema.Schema;
 import com.cedarpolicy.value.EntityTypeName;
 import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimLong;
 import com.cedarpolicy.value.Unknown;
 import com.cedarpolicy.value.Value;
 
@@ -38,7 +49,9 @@ import org.junit.jupiter.api.function.Executable;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 public class AuthTests {
@@ -63,6 +76,161 @@ public class AuthTests {
         assertAllowed(q, policySet, new HashSet<>());
     }
 
+    @Test
+    public void prepared() {
+        var auth = new BasicAuthorizationEngine();
+        var alice = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+        var bob = new EntityUID(EntityTypeName.parse("User").get(), "bob");
+        var view = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+        var policies = new HashSet<Policy>();
+        policies.add(new Policy("permit(principal == User::\"alice\",action,resource);", "p0"));
+        assertDoesNotThrow(() -> {
+            try (PreparedPolicySet prepared = PreparedPolicySet.prepare(new PolicySet(policies))) {
+                assertEquals(1, prepared.getNumPolicies());
+                var allowed = auth.isAuthorized(new AuthorizationRequest(alice, view, alice, new HashMap<>()),
+                        prepared, new HashSet<>());
+                assertTrue(allowed.success.orElseThrow().isAllowed());
+                var denied = auth.isAuthorized(new AuthorizationRequest(bob, view, alice, new HashMap<>()),
+                        prepared, new HashSet<>());
+                assertFalse(denied.success.orElseThrow().isAllowed());
+            }
+        });
+    }
+
+    @Test
+    public void preparedClosed() {
+        var auth = new BasicAuthorizationEngine();
+        var alice = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+        var view = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+        var policies = new HashSet<Policy>();
+        policies.add(new Policy("permit(principal,action,resource);", "p0"));
+        PreparedPolicySet prepared = assertDoesNotThrow(() -> PreparedPolicySet.prepare(new PolicySet(policies)));
+        prepared.close();
+        prepared.close();
+        assertTrue(prepared.isClosed());
+        assertThrows(IllegalStateException.class, prepared::getHandle);
+        assertThrows(IllegalStateException.class,
+                () -> auth.isAuthorized(new AuthorizationRequest(alice, view, alice, new HashMap<>()),
+                        prepared, new HashSet<>()));
+    }
+
+    @Test
+    public void preparedSchema() {
+        var auth = new BasicAuthorizationEngine();
+        var alice = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+        var view = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+        var photo = new EntityUID(EntityTypeName.parse("Photo").get(), "door");
+        var policies = new HashSet<Policy>();
+        policies.add(new Policy("permit(principal,action,resource);", "p0"));
+        var policySet = new PolicySet(policies);
+        var schema = new Schema("entity User; entity Photo; action view appliesTo { principal: User, resource: Photo };");
+        assertDoesNotThrow(() -> {
+            try (PreparedSchema prepared = PreparedSchema.prepare(schema);
+                 PreparedPolicySet preparedPolicies = PreparedPolicySet.prepare(policySet)) {
+                var valid = new AuthorizationRequest(alice, view, photo, Optional.of(new HashMap<>()), prepared, true);
+                assertTrue(auth.isAuthorized(valid, policySet, new HashSet<>()).success.orElseThrow().isAllowed());
+                assertTrue(auth.isAuthorized(valid, preparedPolicies, new HashSet<>()).success.orElseThrow().isAllowed());
+                var invalid = new AuthorizationRequest(alice, view, alice, Optional.of(new HashMap<>()), prepared, true);
+                assertEquals(SuccessOrFailure.Failure, auth.isAuthorized(invalid, policySet, new HashSet<>()).type);
+                prepared.close();
+                assertThrows(IllegalStateException.class, () -> auth.isAuthorized(valid, policySet, new HashSet<>()));
+                assertThrows(IllegalStateException.class, () -> auth.isAuthorizedBatch(List.of(valid), policySet,
+                        new HashSet<>()));
+            }
+        });
+    }
+
+    @Test
+    public void preparedInvalidPolicy() {
+        var policies = new HashSet<Policy>();
+        policies.add(new Policy("permit(principal,action,resource) when { ", "p0"));
+        assertThrows(InternalException.class, () -> PreparedPolicySet.prepare(new PolicySet(policies)));
+    }
+
+    @Test
+    public void executionModes() {
+        var alice = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+        var view = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+        var q = new AuthorizationRequest(alice, view, alice, new HashMap<>());
+        var policySet = new PolicySet(Set.of(new Policy("permit(principal,action,resource);", "p0")));
+        var original = BasicAuthorizationEngine.getExecutionMode();
+        try {
+            for (var mode : BasicAuthorizationEngine.ExecutionMode.values()) {
+                BasicAuthorizationEngine.setExecutionMode(mode);
+                assertEquals(mode, BasicAuthorizationEngine.getExecutionMode());
+                assertAllowed(q, policySet, new HashSet<>());
+            }
+        } finally {
+            BasicAuthorizationEngine.setExecutionMode(original);
+        }
+    }
+
+    @Test
+    public void executionModeProperty() {
+        assertEquals(BasicAuthorizationEngine.ExecutionMode.POOL, BasicAuthorizationEngine.parseExecutionMode(null));
+        assertEquals(BasicAuthorizationEngine.ExecutionMode.INLINE,
+                BasicAuthorizationEngine.parseExecutionMode("inline"));
+        var e = assertThrows(IllegalArgumentException.class,
+                () -> BasicAuthorizationEngine.parseExecutionMode("threads"));
+        assertTrue(e.getMessage().contains(BasicAuthorizationEngine.EXECUTION_MODE_PROPERTY));
+        assertTrue(e.getMessage().contains("[SPAWN, POOL, INLINE]"));
+    }
+
+    @Test
+    public void cborWireFormat() {
+        var auth = new BasicAuthorizationEngine(BasicAuthorizationEngine.WireFormat.CBOR);
+        assertEquals(BasicAuthorizationEngine.WireFormat.CBOR, auth.getWireFormat());
+        var alice = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+        var bob = new EntityUID(EntityTypeName.parse("User").get(), "bob");
+        var view = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+        var policySet = new PolicySet(Set.of(new Policy(
+                "permit(principal == User::\"alice\",action,resource) when { context.level > 2 };", "p0")));
+        Map<String, Value> context = new HashMap<>();
+        context.put("level", new PrimLong(3));
+        assertDoesNotThrow(() -> {
+            var allowed = auth.isAuthorized(new AuthorizationRequest(alice, view, alice, context), policySet,
+                    new HashSet<>());
+            assertTrue(allowed.success.orElseThrow().isAllowed());
+            var denied = auth.isAuthorized(new AuthorizationRequest(bob, view, alice, context), policySet,
+                    new HashSet<>());
+            assertFalse(denied.success.orElseThrow().isAllowed());
+        });
+        var invalid = new PolicySet(Set.of(new Policy("permit(principal,action,resource) when {", "p0")));
+        assertDoesNotThrow(() -> {
+            var failed = auth.isAuthorized(new AuthorizationRequest(alice, view, alice, context), invalid,
+                    new HashSet<>());
+            assertEquals(SuccessOrFailure.Failure, failed.type);
+            assertFalse(failed.errors.orElseThrow().isEmpty());
+        });
+    }
+
+    @Test
+    public void batch() {
+        var auth = new BasicAuthorizationEngine();
+        var alice = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+        var bob = new EntityUID(EntityTypeName.parse("User").get(), "bob");
+        var view = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+        var photo = new EntityUID(EntityTypeName.parse("Photo").get(), "door");
+        var policySet = new PolicySet(Set.of(new Policy("permit(principal == User::\"alice\",action,resource);", "p0")));
+        var schema = new Schema("entity User; entity Photo; action view appliesTo { principal: User, resource: Photo };");
+        var requests = new ArrayList<AuthorizationRequest>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(new AuthorizationRequest(i % 2 == 0 ? alice : bob, view, photo, new HashMap<>()));
+        }
+        // A request with a different schema, which fails request validation
+        requests.add(new AuthorizationRequest(alice, view, alice, Optional.of(new HashMap<>()), Optional.of(schema), true));
+        requests.add(new AuthorizationRequest(alice, view, photo, new HashMap<>()));
+
+        var responses = assertDoesNotThrow(() -> auth.isAuthorizedBatch(requests, policySet, new HashSet<>()));
+        assertEquals(requests.size(), responses.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i % 2 == 0, responses.get(i).success.orElseThrow().isAllowed());
+        }
+        assertEquals(SuccessOrFailure.Failure, responses.get(50).type);
+        assertTrue(responses.get(51).success.orElseThrow().isAllowed());
+        assertTrue(assertDoesNotThrow(() -> auth.isAuthorizedBatch(List.of(), policySet, new HashSet<>())).isEmpty());
+    }
+
     @Test
     public void concrete() {
         var auth = new BasicAuthorizationEngine();
@@ -125,6 +293,50 @@ public class AuthTests {
         });
     }
 
+    /** An engine written against the original interface, which only implements its abstract methods. */
+    private static final class MinimalEngine implements AuthorizationEngine {
+        private final AuthorizationEngine delegate = new BasicAuthorizationEngine();
+
+        @Override
+        public AuthorizationResponse isAuthorized(AuthorizationRequest q, PolicySet policySet, Set<Entity> entities)
+                throws AuthException {
+            return delegate.isAuthorized(q, policySet, entities);
+        }
+
+        @Override
+        public PartialAuthorizationResponse isAuthorizedPartial(PartialAuthorizationRequest q, PolicySet policySet,
+                Set<Entity> entities) throws AuthException {
+            return delegate.isAuthorizedPartial(q, policySet, entities);
+        }
+
+        @Override
+        public ValidationResponse validate(ValidationRequest q) throws AuthException {
+            return delegate.validate(q);
+        }
+
+        @Override
+        public void validateEntities(EntityValidationRequest q) throws AuthException {
+            delegate.validateEntities(q);
+        }
+    }
+
+    @Test
+    public void defaultMethods() {
+        var engine = new MinimalEngine();
+        var alice = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+        var view = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+        var q = new AuthorizationRequest(alice, view, alice, new HashMap<>());
+        var policySet = new PolicySet(Set.of(new Policy("permit(principal,action,resource);", "p0")));
+        var responses = assertDoesNotThrow(() -> engine.isAuthorizedBatch(List.of(q, q), policySet, Set.of()));
+        assertEquals(2, responses.size());
+        assertTrue(responses.get(1).success.orElseThrow().isAllowed());
+        assertThrows(UnsupportedOperationException.class, () -> {
+            try (PreparedPolicySet prepared = PreparedPolicySet.prepare(policySet)) {
+                engine.isAuthorized(q, prepared, Set.of());
+            }
+        });
+    }
+
     private void assumePartialEvaluation(Executable executable) {
         try {
             executable.execute();
@@ -0,0 +1,223 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.exception.BadRequestException;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimBool;
+import com.cedarpolicy.value.Value;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the caching authorization engine. */
+public class CachingAuthorizationEngineTests {
+    private static final EntityTypeName USER = EntityTypeName.parse("User").get();
+    private static final EntityUID ALICE = new EntityUID(USER, "alice");
+    private static final EntityUID BOB = new EntityUID(USER, "bob");
+    private static final EntityUID VIEW = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+    private static final PolicySet POLICIES =
+            new PolicySet(Set.of(new Policy("permit(principal in User::\"admins\",action,resource);", "p0")));
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private CachingAuthorizationEngine engine;
+
+    /** Put a caching engine in front of an engine that counts the calls made to it. */
+    @BeforeEach
+    public void createEngine() {
+        AuthorizationEngine basic = new BasicAuthorizationEngine();
+        AuthorizationEngine counting = (AuthorizationEngine) Proxy.newProxyInstance(
+                AuthorizationEngine.class.getClassLoader(), new Class<?>[] {AuthorizationEngine.class},
+                (proxy, method, args) -> {
+                    calls.incrementAndGet();
+                    try {
+                        return method.invoke(basic, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        engine = new CachingAuthorizationEngine(counting, 100, Duration.ofMinutes(10));
+    }
+
+    private static AuthorizationRequest request(EntityUID principal) {
+        return new AuthorizationRequest(principal, VIEW, principal, new HashMap<>());
+    }
+
+    private static Set<Entity> entities() {
+        Set<Entity> entities = new HashSet<>();
+        entities.add(new Entity(ALICE, new HashMap<>(), Set.of(new EntityUID(USER, "admins"))));
+        entities.add(new Entity(BOB, new HashMap<>(), new HashSet<>()));
+        return entities;
+    }
+
+    /** Test that repeated requests are answered from the cache. */
+    @Test
+    public void repeatedRequests() throws Exception {
+        Set<Entity> entities = entities();
+        AuthorizationResponse first = engine.isAuthorized(request(ALICE), POLICIES, 0, entities, 0);
+        AuthorizationResponse second = engine.isAuthorized(request(ALICE), POLICIES, 0, entities, 0);
+        assertTrue(first.success.orElseThrow().isAllowed());
+        assertSame(first, second);
+        assertFalse(engine.isAuthorized(request(BOB), POLICIES, 0, entities, 0).success.orElseThrow().isAllowed());
+        assertEquals(2, calls.get());
+        assertEquals(1, engine.stats().hitCount());
+        assertEquals(2, engine.stats().missCount());
+    }
+
+    /** Test that the context is part of the cache key. */
+    @Test
+    public void context() throws Exception {
+        Set<Entity> entities = entities();
+        Map<String, Value> context = new HashMap<>();
+        context.put("mfa", new PrimBool(true));
+        AuthorizationRequest withContext = new AuthorizationRequest(ALICE, VIEW, ALICE, context);
+        engine.isAuthorized(withContext, POLICIES, 0, entities, 0);
+        context.put("mfa", new PrimBool(false));
+        engine.isAuthorized(withContext, POLICIES, 0, entities, 0);
+        engine.isAuthorized(request(ALICE), POLICIES, 0, entities, 0);
+        assertEquals(3, calls.get());
+    }
+
+    /** Test that other versions of the policies and entities do not share decisions. */
+    @Test
+    public void otherVersions() throws Exception {
+        Set<Entity> entities = entities();
+        PolicySet policies = new PolicySet(new HashSet<>(POLICIES.policies));
+        assertTrue(engine.isAuthorized(request(ALICE), policies, 0, entities, 0).success.orElseThrow().isAllowed());
+
+        entities.removeIf(entity -> entity.getEUID().equals(ALICE));
+        entities.add(new Entity(ALICE, new HashMap<>(), new HashSet<>()));
+        assertFalse(engine.isAuthorized(request(ALICE), policies, 0, entities, 1).success.orElseThrow().isAllowed());
+        assertEquals(2, calls.get());
+
+        policies.policies.add(new Policy("permit(principal,action,resource);", "p1"));
+        assertTrue(engine.isAuthorized(request(ALICE), policies, 1, entities, 1).success.orElseThrow().isAllowed());
+        assertEquals(3, calls.get());
+
+        engine.invalidateAll();
+        engine.isAuthorized(request(ALICE), policies, 1, entities, 1);
+        assertEquals(4, calls.get());
+    }
+
+    /** Test that policy and entity sets without a version are not cached. */
+    @Test
+    public void unversioned() throws Exception {
+        Set<Entity> entities = entities();
+        assertTrue(engine.isAuthorized(request(ALICE), POLICIES, entities).success.orElseThrow().isAllowed());
+        engine.isAuthorized(request(ALICE), POLICIES, entities);
+        engine.isAuthorizedBatch(List.of(request(ALICE)), POLICIES, entities);
+        assertEquals(3, calls.get());
+        assertEquals(0, engine.size());
+    }
+
+    /** Test that updating an entity store invalidates the decisions made against it. */
+    @Test
+    public void entityStoreUpdates() throws Exception {
+        try (EntityStore store = EntityStore.create(entities())) {
+            assertTrue(engine.isAuthorized(request(ALICE), POLICIES, 0, store).success.orElseThrow().isAllowed());
+            engine.isAuthorized(request(ALICE), POLICIES, 0, store);
+            assertEquals(1, calls.get());
+
+            store.upsert(new Entity(ALICE, new HashMap<>(), new HashSet<>()));
+            assertFalse(engine.isAuthorized(request(ALICE), POLICIES, 0, store).success.orElseThrow().isAllowed());
+            assertEquals(2, calls.get());
+        }
+    }
+
+    /** Test that only the requests missing from the cache are passed on in a batch. */
+    @Test
+    public void batch() throws Exception {
+        Set<Entity> entities = entities();
+        engine.isAuthorized(request(ALICE), POLICIES, 0, entities, 0);
+        List<AuthorizationResponse> responses =
+                engine.isAuthorizedBatch(List.of(request(ALICE), request(BOB)), POLICIES, 0, entities, 0);
+        assertTrue(responses.get(0).success.orElseThrow().isAllowed());
+        assertFalse(responses.get(1).success.orElseThrow().isAllowed());
+        assertEquals(2, calls.get());
+
+        engine.isAuthorizedBatch(List.of(request(ALICE), request(BOB)), POLICIES, 0, entities, 0);
+        assertEquals(2, calls.get());
+        assertEquals(2, engine.size());
+    }
+
+    /** Test that a batch answered with the wrong number of responses is rejected. */
+    @Test
+    public void batchResponseCount() {
+        CachingAuthorizationEngine caching = caching((proxy, method, args) -> List.of());
+        assertThrows(AuthException.class, () ->
+                caching.isAuthorizedBatch(List.of(request(ALICE), request(BOB)), POLICIES, 0, entities(), 0));
+        assertEquals(0, caching.size());
+    }
+
+    /** Test that errors are passed on and not cached. */
+    @Test
+    public void errors() {
+        CachingAuthorizationEngine caching = caching((proxy, method, args) -> {
+            throw new BadRequestException(new String[] {"invalid request"});
+        });
+        assertThrows(BadRequestException.class,
+                () -> caching.isAuthorized(request(ALICE), POLICIES, 0, entities(), 0));
+        assertEquals(0, caching.size());
+    }
+
+    /** Test that failed responses are returned but not cached. */
+    @Test
+    public void failures() throws Exception {
+        AuthorizationResponse failure = new AuthorizationResponse(AuthorizationResponse.SuccessOrFailure.Failure,
+                Optional.empty(), Optional.empty(), new ArrayList<>());
+        CachingAuthorizationEngine caching = caching((proxy, method, args) -> {
+            calls.incrementAndGet();
+            return method.getName().equals("isAuthorizedBatch") ? List.of(failure) : failure;
+        });
+        assertSame(failure, caching.isAuthorized(request(ALICE), POLICIES, 0, entities(), 0));
+        assertSame(failure, caching.isAuthorized(request(ALICE), POLICIES, 0, entities(), 0));
+        assertSame(failure, caching.isAuthorizedBatch(List.of(request(ALICE)), POLICIES, 0, entities(), 0).get(0));
+        assertEquals(3, calls.get());
+        assertEquals(0, caching.size());
+    }
+
+    private static CachingAuthorizationEngine caching(InvocationHandler handler) {
+        AuthorizationEngine engine = (AuthorizationEngine) Proxy.newProxyInstance(
+                AuthorizationEngine.class.getClassLoader(), new Class<?>[] {AuthorizationEngine.class}, handler);
+        return new CachingAuthorizationEngine(engine, 100, Duration.ofMinutes(10));
+    }
+}
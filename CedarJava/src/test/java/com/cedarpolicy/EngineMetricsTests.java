@@ -0,0 +1,107 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.BasicAuthorizationEngine.VirtualThreadPolicy;
+import com.cedarpolicy.BasicAuthorizationEngine.WireFormat;
+import com.cedarpolicy.metrics.CallMetrics;
+import com.cedarpolicy.metrics.CallStage;
+import com.cedarpolicy.metrics.HdrHistogramMetricsListener;
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/** Tests for the metrics reported by {@link BasicAuthorizationEngine}. */
+public class EngineMetricsTests {
+    private static final EntityUID ALICE = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+    private static final EntityUID VIEW = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+    private static final AuthorizationRequest REQUEST = new AuthorizationRequest(ALICE, VIEW, ALICE, new HashMap<>());
+    private static final PolicySet POLICIES =
+            new PolicySet(Set.of(new Policy("permit(principal == User::\"alice\",action,resource);", "p0")));
+    private static final Set<Entity> ENTITIES = Set.of(new Entity(ALICE, new HashMap<>(), new HashSet<>()));
+
+    /** Test that every stage of a call, its payload sizes and its counts are reported in both wire formats. */
+    @Test
+    public void callsAreMeasured() throws Exception {
+        for (WireFormat wireFormat : WireFormat.values()) {
+            List<CallMetrics> calls = new ArrayList<>();
+            BasicAuthorizationEngine engine =
+                    new BasicAuthorizationEngine(wireFormat, VirtualThreadPolicy.PIN, calls::add);
+            assertTrue(engine.isAuthorized(REQUEST, POLICIES, ENTITIES).success.orElseThrow().isAllowed());
+
+            assertEquals(1, calls.size());
+            CallMetrics metrics = calls.get(0);
+            assertEquals("AuthorizationOperation", metrics.getOperation());
+            for (CallStage stage : CallStage.values()) {
+                assertTrue(metrics.getNanos(stage) >= 0, wireFormat + " " + stage);
+            }
+            assertTrue(metrics.getNanos(CallStage.NATIVE_DECODING) > 0);
+            assertTrue(metrics.getNanos(CallStage.NATIVE_EVALUATION) > 0);
+            assertTrue(metrics.getRequestBytes() > 0);
+            assertTrue(metrics.getResponseBytes() > 0);
+            assertEquals(1, metrics.getPolicyCount());
+            assertEquals(1, metrics.getEntityCount());
+        }
+    }
+
+    /** Test that engines without a listener work as before. */
+    @Test
+    public void listenerIsOptional() throws Exception {
+        BasicAuthorizationEngine engine = new BasicAuthorizationEngine();
+        assertTrue(engine.getMetricsListener().isEmpty());
+        assertTrue(engine.isAuthorized(REQUEST, POLICIES, ENTITIES).success.orElseThrow().isAllowed());
+    }
+
+    /** Test that the histogram listener records stages, sizes and known counts. */
+    @Test
+    public void histogramsRecordCalls() {
+        HdrHistogramMetricsListener listener = new HdrHistogramMetricsListener();
+        for (int i = 1; i <= 100; i++) {
+            listener.onCall(CallMetrics.builder("AuthorizationOperation")
+                    .nanos(CallStage.NATIVE_EVALUATION, i * 1000L)
+                    .requestBytes(i)
+                    .policyCount(i)
+                    .build());
+        }
+
+        assertEquals(100, listener.getCallCount());
+        assertEquals(50_000, listener.getValueAtPercentile(CallStage.NATIVE_EVALUATION, 50), 50);
+        assertEquals(99_000, listener.getValueAtPercentile(CallStage.NATIVE_EVALUATION, 99), 99);
+        assertEquals(0, listener.getValueAtPercentile(CallStage.NATIVE_DECODING, 99));
+        assertEquals(100_000, listener.getTotalValueAtPercentile(100), 100);
+        assertEquals(100, listener.getRequestBytesHistogram().getMaxValue());
+        assertEquals(100, listener.getPolicyCountHistogram().getTotalCount());
+        // Entity counts were never set, so they are unknown and not recorded
+        assertEquals(0, listener.getEntityCountHistogram().getTotalCount());
+
+        listener.reset();
+        assertEquals(0, listener.getCallCount());
+    }
+}
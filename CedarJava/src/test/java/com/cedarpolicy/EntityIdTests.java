@@ -16,12 +16,23 @@
 
 package com.cedarpolicy;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.cedarpolicy.value.EntityIdentifier;
 import net.jqwik.api.Property;
+import org.junit.jupiter.api.Test;
 
 import net.jqwik.api.ForAll;
+import net.jqwik.api.constraints.AlphaChars;
+import net.jqwik.api.constraints.Chars;
+import net.jqwik.api.constraints.NumericChars;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 
 public class EntityIdTests {
 
@@ -32,4 +43,35 @@ public class EntityIdTests {
         assertTrue(asStr.length() >= s.length());
     }
 
+    @Property
+    void asciiMatchesNative(@ForAll @AlphaChars @NumericChars @Chars({'"', '\\', '\'', '\0', '\t', '\n', '\u007f'})
+            String s) throws Exception {
+        var id = new EntityIdentifier(s);
+        Method repr = EntityIdentifier.class.getDeclaredMethod("getEntityIdentifierRepr", EntityIdentifier.class);
+        repr.setAccessible(true);
+        assertEquals(repr.invoke(null, id), id.getRepr());
+    }
+
+    @Property
+    void reprIsKept(@ForAll String s) throws Exception {
+        var id = new EntityIdentifier(s);
+        Field cached = EntityIdentifier.class.getDeclaredField("repr");
+        cached.setAccessible(true);
+        assertNull(cached.get(id));
+        var repr = id.getRepr();
+        assertEquals(repr, cached.get(id));
+        assertEquals(repr, id.getRepr());
+    }
+
+    @Test
+    void equality() {
+        var id = new EntityIdentifier("alice");
+        assertEquals(id, id);
+        assertEquals(new EntityIdentifier("alice"), id);
+        assertEquals(new EntityIdentifier("alice").hashCode(), id.hashCode());
+        assertNotEquals(new EntityIdentifier("bob"), id);
+        assertFalse(id.equals(null));
+        assertFalse(id.equals("alice"));
+    }
+
 }
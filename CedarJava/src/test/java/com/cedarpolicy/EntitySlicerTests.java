@@ -0,0 +1,182 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.AuthorizationResponse.SuccessOrFailure;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.Value;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/** Tests for entity slicing and the engine that uses it. */
+public class EntitySlicerTests {
+    private static final EntityTypeName USER = EntityTypeName.parse("User").get();
+    private static final EntityTypeName GROUP = EntityTypeName.parse("Group").get();
+    private static final EntityUID ALICE = new EntityUID(USER, "alice");
+    private static final EntityUID BOB = new EntityUID(USER, "bob");
+    private static final EntityUID CAROL = new EntityUID(USER, "carol");
+    private static final EntityUID DAVE = new EntityUID(USER, "dave");
+    private static final EntityUID EVE = new EntityUID(USER, "eve");
+    private static final EntityUID STAFF = new EntityUID(GROUP, "staff");
+    private static final EntityUID EVERYONE = new EntityUID(GROUP, "everyone");
+    private static final EntityUID ADMINS = new EntityUID(GROUP, "admins");
+    private static final EntityUID VIEW = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+
+    private static final PolicySet POLICIES = new PolicySet(Set.of(
+            new Policy("permit(principal in Group::\"everyone\",action,resource) "
+                    + "when { principal.manager.level > 3 };", "managers"),
+            new Policy("forbid(principal,action,resource) when { User::\"eve\".level > 5 };", "eve")));
+
+    /**
+     * Alice is in staff, which is in everyone, and is managed by bob, who is managed by carol.
+     * Dave is named in the context and eve in a policy, while admins is not reachable at all.
+     */
+    private static Set<Entity> entities() {
+        Set<Entity> entities = new HashSet<>();
+        entities.add(user(ALICE, 1, Map.of("manager", BOB), Set.of(STAFF)));
+        entities.add(user(BOB, 4, Map.of("manager", CAROL), Set.of(ADMINS)));
+        entities.add(user(CAROL, 9, Map.of(), Set.of()));
+        entities.add(user(DAVE, 2, Map.of("friends", new CedarList(List.of(BOB))), Set.of()));
+        entities.add(user(EVE, 2, Map.of(), Set.of()));
+        entities.add(new Entity(STAFF, new HashMap<>(), Set.of(EVERYONE)));
+        entities.add(new Entity(EVERYONE, new HashMap<>(), new HashSet<>()));
+        entities.add(new Entity(ADMINS, new HashMap<>(), new HashSet<>()));
+        return entities;
+    }
+
+    private static Entity user(EntityUID uid, long level, Map<String, Value> attrs, Set<EntityUID> parents) {
+        Map<String, Value> all = new HashMap<>(attrs);
+        all.put("level", new PrimLong(level));
+        return new Entity(uid, all, parents);
+    }
+
+    private static Set<EntityUID> uids(Set<Entity> entities) {
+        return entities.stream().map(Entity::getEUID).collect(Collectors.toSet());
+    }
+
+    private static AuthorizationRequest request(EntityUID principal) {
+        return new AuthorizationRequest(principal, VIEW, principal, new HashMap<>());
+    }
+
+    /** Test that the entities named in policies are found. */
+    @Test
+    public void entityLiterals() {
+        assertEquals(Set.of(EVERYONE, EVE), EntitySlicer.entityLiterals(POLICIES).orElseThrow());
+    }
+
+    /** Test that ancestors are followed in full and attribute references up to the depth limit. */
+    @Test
+    public void depths() {
+        Set<EntityUID> literals = EntitySlicer.entityLiterals(POLICIES).orElseThrow();
+        Set<Entity> entities = entities();
+        assertEquals(Set.of(ALICE, STAFF, EVERYONE, EVE),
+                uids(new EntitySlicer(0).slice(List.of(request(ALICE)), entities, literals)));
+        assertEquals(Set.of(ALICE, STAFF, EVERYONE, EVE, BOB, ADMINS),
+                uids(new EntitySlicer(1).slice(List.of(request(ALICE)), entities, literals)));
+        assertEquals(Set.of(ALICE, STAFF, EVERYONE, EVE, BOB, ADMINS, CAROL),
+                uids(new EntitySlicer().slice(List.of(request(ALICE)), entities, literals)));
+        assertThrows(IllegalArgumentException.class, () -> new EntitySlicer(-1));
+    }
+
+    /** Test that entities in the context are roots, including those nested in sets. */
+    @Test
+    public void context() {
+        Map<String, Value> context = new HashMap<>();
+        context.put("friend", DAVE);
+        AuthorizationRequest request = new AuthorizationRequest(CAROL, VIEW, CAROL, context);
+        assertEquals(Set.of(CAROL, DAVE, BOB, ADMINS),
+                uids(new EntitySlicer(1).slice(List.of(request), entities(), Set.of())));
+    }
+
+    /** Test that the slicing engine gives the same decisions and reasons as sending every entity. */
+    @Test
+    public void sameDecisions() throws Exception {
+        AuthorizationEngine basic = new BasicAuthorizationEngine();
+        SlicingAuthorizationEngine slicing = new SlicingAuthorizationEngine(basic, new EntitySlicer(1));
+        PolicyLiterals policies = PolicyLiterals.of(POLICIES);
+        Set<Entity> entities = entities();
+        IndexedEntities indexed = IndexedEntities.of(entities);
+        for (EntityUID principal : List.of(ALICE, BOB, CAROL, DAVE, EVE, STAFF)) {
+            AuthorizationResponse expected = basic.isAuthorized(request(principal), POLICIES, entities);
+            AuthorizationResponse actual = slicing.isAuthorized(request(principal), policies, indexed);
+            assertEquals(expected.success.orElseThrow().getDecision(), actual.success.orElseThrow().getDecision());
+            assertEquals(expected.success.orElseThrow().getReason(), actual.success.orElseThrow().getReason());
+        }
+        List<AuthorizationRequest> requests = List.of(request(ALICE), request(DAVE));
+        assertEquals(
+                basic.isAuthorizedBatch(requests, POLICIES, entities).stream()
+                        .map(response -> response.success.orElseThrow().getReason()).collect(Collectors.toList()),
+                slicing.isAuthorizedBatch(requests, policies, indexed).stream()
+                        .map(response -> response.success.orElseThrow().getReason()).collect(Collectors.toList()));
+    }
+
+    /** Test that requests with a schema are sent every entity, so nonconforming entities are still reported. */
+    @Test
+    public void schema() throws Exception {
+        Schema schema = new Schema("entity Group in [Group]; "
+                + "entity User in [Group] { level: Long, manager?: User, friends?: Set<User> }; "
+                + "action view appliesTo { principal: [User, Group], resource: [User, Group] };");
+        AuthorizationRequest request = new AuthorizationRequest(ALICE, VIEW, ALICE, Optional.of(new HashMap<>()),
+                Optional.of(schema), false);
+        Set<Entity> entities = entities();
+        entities.removeIf(entity -> entity.getEUID().equals(ADMINS));
+        entities.add(new Entity(ADMINS, new HashMap<>(Map.of("owner", CAROL)), new HashSet<>()));
+
+        AuthorizationEngine basic = new BasicAuthorizationEngine();
+        SlicingAuthorizationEngine slicing = new SlicingAuthorizationEngine(basic, new EntitySlicer(0));
+        PolicyLiterals policies = PolicyLiterals.of(POLICIES);
+        IndexedEntities indexed = IndexedEntities.of(entities);
+        assertEquals(SuccessOrFailure.Failure, basic.isAuthorized(request, POLICIES, entities).type);
+        assertEquals(SuccessOrFailure.Failure, slicing.isAuthorized(request, policies, indexed).type);
+        assertEquals(SuccessOrFailure.Failure,
+                slicing.isAuthorizedBatch(List.of(request(BOB), request), policies, indexed).get(1).type);
+    }
+
+    /** Test that snapshots are not changed by later changes to the sets they were taken of. */
+    @Test
+    public void snapshots() {
+        Set<Policy> policySet = new HashSet<>(POLICIES.policies);
+        PolicyLiterals policies = PolicyLiterals.of(new PolicySet(policySet));
+        policySet.add(new Policy("permit(principal == User::\"dave\",action,resource);", "dave"));
+        assertEquals(Optional.of(Set.of(EVERYONE, EVE)), policies.getLiterals());
+        assertEquals(2, policies.getPolicySet().policies.size());
+
+        Set<Entity> entities = entities();
+        IndexedEntities indexed = IndexedEntities.of(entities);
+        entities.removeIf(entity -> entity.getEUID().equals(ALICE));
+        assertEquals(8, indexed.getEntities().size());
+        assertEquals(ALICE, indexed.getByUid().get(ALICE).getEUID());
+    }
+}
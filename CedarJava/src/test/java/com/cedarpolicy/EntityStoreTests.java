@@ -0,0 +1,178 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.entity.EntityStore;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.PreparedPolicySet;
+import com.cedarpolicy.model.schema.PreparedSchema;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimString;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for entity stores. */
+public class EntityStoreTests {
+    private static AuthorizationEngine engine;
+    private static EntityTypeName user;
+    private static EntityTypeName group;
+    private static EntityUID alice;
+    private static EntityUID admins;
+    private static EntityUID view;
+    private static PolicySet policySet;
+
+    @BeforeAll
+    public static void setUp() {
+        engine = new BasicAuthorizationEngine();
+        user = EntityTypeName.parse("User").get();
+        group = EntityTypeName.parse("Group").get();
+        alice = new EntityUID(user, "alice");
+        admins = new EntityUID(group, "admins");
+        view = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+        policySet = new PolicySet(Set.of(new Policy("permit(principal in Group::\"admins\",action,resource);", "p0")));
+    }
+
+    private boolean isAllowed(EntityStore store) throws AuthException {
+        var request = new AuthorizationRequest(alice, view, alice, new HashMap<>());
+        return engine.isAuthorized(request, policySet, store).success.orElseThrow().isAllowed();
+    }
+
+    /** Test that updates to the store are seen by later requests. */
+    @Test
+    public void updatesAreVisible() {
+        assertDoesNotThrow(() -> {
+            try (EntityStore store = EntityStore.create(List.of(new Entity(alice, new HashMap<>(), Set.of())))) {
+                assertFalse(isAllowed(store));
+                assertEquals(0, store.getVersion());
+
+                store.upsertAll(List.of(new Entity(alice, new HashMap<>(), Set.of(admins)),
+                        new Entity(admins, new HashMap<>(), Set.of())));
+                assertTrue(isAllowed(store));
+                assertEquals(1, store.getVersion());
+
+                store.upsert(new Entity(alice, new HashMap<>(), Set.of()));
+                assertFalse(isAllowed(store));
+
+                store.upsert(new Entity(alice, new HashMap<>(), Set.of(admins)));
+                assertTrue(isAllowed(store));
+                store.remove(alice);
+                assertFalse(isAllowed(store));
+                assertEquals(4, store.getVersion());
+            }
+        });
+    }
+
+    /** Test that a store can be used together with a prepared policy set. */
+    @Test
+    public void preparedPolicySet() {
+        var request = new AuthorizationRequest(alice, view, alice, new HashMap<>());
+        assertDoesNotThrow(() -> {
+            try (PreparedPolicySet prepared = PreparedPolicySet.prepare(policySet);
+                 EntityStore store = EntityStore.create(List.of(new Entity(alice, new HashMap<>(), Set.of(admins))))) {
+                assertTrue(engine.isAuthorized(request, prepared, store).success.orElseThrow().isAllowed());
+            }
+        });
+    }
+
+    /** Test that stores and prepared policy sets can be loaded from files. */
+    @Test
+    public void loadFromFile(@TempDir Path dir) throws IOException {
+        Path entities = dir.resolve("entities.json");
+        Files.writeString(entities, "[{\"uid\": {\"type\": \"User\", \"id\": \"alice\"}, \"attrs\": {},"
+                + " \"parents\": [{\"type\": \"Group\", \"id\": \"admins\"}]}]");
+        Path policies = dir.resolve("policies.cedar");
+        Files.writeString(policies, "permit(principal in Group::\"admins\",action,resource);\n"
+                + "permit(principal == ?principal,action,resource);");
+        var request = new AuthorizationRequest(alice, view, alice, new HashMap<>());
+        assertDoesNotThrow(() -> {
+            try (PreparedPolicySet prepared = PreparedPolicySet.loadFromFile(policies);
+                 EntityStore store = EntityStore.loadFromFile(entities)) {
+                assertEquals(1, prepared.getNumPolicies());
+                assertEquals(1, prepared.getNumTemplates());
+                assertTrue(isAllowed(store));
+                assertTrue(engine.isAuthorized(request, prepared, store).success.orElseThrow().isAllowed());
+            }
+        });
+        assertThrows(InternalException.class, () -> EntityStore.loadFromFile(dir.resolve("missing.json")));
+        assertThrows(InternalException.class, () -> PreparedPolicySet.loadFromFile(dir.resolve("missing.cedar")));
+        assertThrows(InternalException.class, () -> PreparedPolicySet.loadFromFile(entities));
+    }
+
+    /** Test that entities are validated against the schema of the store. */
+    @Test
+    public void schemaValidation() {
+        assertDoesNotThrow(() -> {
+            try (PreparedSchema schema = PreparedSchema.prepare(new Schema("entity Group; entity User in Group;"));
+                 EntityStore store = EntityStore.create(List.of(), schema)) {
+                store.upsert(new Entity(alice, new HashMap<>(), Set.of(admins)));
+                Entity invalid = new Entity(alice, new HashMap<>(Map.of("name", new PrimString("alice"))), Set.of());
+                assertThrows(InternalException.class, () -> store.upsert(invalid));
+                assertEquals(1, store.getVersion());
+                assertTrue(isAllowed(store));
+            }
+        });
+    }
+
+    /** Test that an update that is rejected while merging leaves the store as it was. */
+    @Test
+    public void rejectedUpdateKeepsEntities() {
+        assertDoesNotThrow(() -> {
+            try (EntityStore store = EntityStore.create(List.of(new Entity(alice, new HashMap<>(), Set.of(admins)),
+                    new Entity(admins, new HashMap<>(), Set.of())))) {
+                assertTrue(isAllowed(store));
+                Entity cycle = new Entity(admins, new HashMap<>(), Set.of(alice));
+                assertThrows(InternalException.class, () -> store.upsert(cycle));
+                assertEquals(0, store.getVersion());
+                assertTrue(isAllowed(store));
+            }
+        });
+    }
+
+    /** Test that a closed store can no longer be used. */
+    @Test
+    public void closed() {
+        EntityStore store = assertDoesNotThrow(() -> EntityStore.create(List.of()));
+        store.close();
+        store.close();
+        assertTrue(store.isClosed());
+        assertThrows(IllegalStateException.class, () -> store.remove(alice));
+        assertThrows(IllegalStateException.class, () -> isAllowed(store));
+    }
+}
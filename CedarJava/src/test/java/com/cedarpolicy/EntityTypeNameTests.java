@@ -18,6 +18,7 @@ package com.cedarpolicy;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -28,13 +29,16 @@ import net.jqwik.api.ForAll;
 import net.jqwik.api.From;
 import net.jqwik.api.Property;
 import net.jqwik.api.Provide;
+import java.lang.reflect.Method;
 import java.util.List;
 
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
+import com.cedarpolicy.serializer.JsonEUID;
 import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
 
 public class EntityTypeNameTests {
 
@@ -117,6 +121,23 @@ public class EntityTypeNameTests {
         assertFalse(EntityTypeName.parse("").isPresent());
     }
 
+    @Property
+    public void matchesNativeRepr(@ForAll @From("multiLevelName") EntityTypeName n) throws Exception {
+        Method repr = EntityTypeName.class.getDeclaredMethod("getEntityTypeNameRepr", EntityTypeName.class);
+        repr.setAccessible(true);
+        assertEquals(repr.invoke(null, n), n.toString());
+    }
+
+    @Test
+    public void parsesAreInterned() {
+        var first = EntityTypeName.parse("Interned::Name").get();
+        assertSame(first, EntityTypeName.parse("Interned::Name").get());
+        assertSame(first, EntityTypeName.parse(new StringBuilder("Interned::").append("Name").toString()).get());
+        assertSame(first, EntityUID.parseFromJson(new JsonEUID("Interned::Name", "x")).get().getType());
+        assertFalse(EntityTypeName.parse("Interned::[]").isPresent());
+        assertFalse(EntityTypeName.parse("Interned::[]").isPresent());
+    }
+
     @Property
     public void roundTrip(@ForAll @From("multiLevelName") EntityTypeName name) {
         var s = name.toString();
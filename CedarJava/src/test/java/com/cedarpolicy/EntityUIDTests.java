@@ -20,6 +20,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.lang.reflect.Method;
+
 import org.junit.jupiter.api.Test;
 
 import com.cedarpolicy.value.EntityIdentifier;
@@ -113,6 +115,35 @@ public class EntityUIDTests {
     }
 
 
+    /** The rendering of the Rust core, which the Java rendering must match. */
+    private static String nativeRepr(EntityUID euid) throws Exception {
+        Method repr = EntityUID.class.getDeclaredMethod("getEUIDRepr", EntityTypeName.class, EntityIdentifier.class);
+        repr.setAccessible(true);
+        return (String) repr.invoke(null, euid.getType(), euid.getId());
+    }
+
+    @Test
+    void escapesLikeNative() throws Exception {
+        var type = EntityTypeName.parse("Foo::Bar").get();
+        for (var id : new String[] {"alice", "", "a\"b", "back\\slash", "it's", "\0\t\r\n", "\u0001\u001b\u007f",
+                "caf\u00e9", "\u0301accent", "tab\there\u200b"}) {
+            var euid = new EntityUID(type, id);
+            assertEquals(nativeRepr(euid), euid.toString(), id);
+            assertEquals(euid.toString(), euid.toCedarExpr());
+        }
+    }
+
+    @Property
+    void matchesNativeRepr(@ForAll @From("asciiEuids") EntityUID euid) throws Exception {
+        assertEquals(nativeRepr(euid), euid.toString());
+    }
+
+    @Provide
+    public Arbitrary<EntityUID> asciiEuids() {
+        return Combinators.combine(EntityTypeNameTests.multiLevelName(), Arbitraries.strings().ascii())
+            .as((type, id) -> new EntityUID(type, id));
+    }
+
     @Provide
     public Arbitrary<EntityUID> euids() {
         return Combinators.combine(EntityTypeNameTests.multiLevelName(), ids())
@@ -17,6 +17,7 @@
 package com.cedarpolicy;
 
 import static com.cedarpolicy.TestUtil.loadSchemaResource;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -31,6 +32,7 @@ import com.cedarpolicy.model.EntityValidationRequest;
 import com.cedarpolicy.model.entity.Entity;
 import com.cedarpolicy.model.exception.AuthException;
 import com.cedarpolicy.model.exception.BadRequestException;
+import com.cedarpolicy.model.schema.PreparedSchema;
 import com.cedarpolicy.model.schema.Schema;
 import com.cedarpolicy.pbt.EntityGen;
 import com.cedarpolicy.value.EntityTypeName;
@@ -57,6 +59,22 @@ public class EntityValidationTests {
         engine.validateEntities(r);
     }
 
+    /**
+     * Test that entities are validated against a prepared schema.
+     */
+    @Test
+    public void testEntityWithPreparedSchema() throws AuthException {
+        Entity entity = EntityValidationTests.entityGen.arbitraryEntity();
+
+        try (PreparedSchema prepared = PreparedSchema.prepare(ROLE_SCHEMA)) {
+            assertDoesNotThrow(() -> engine.validateEntities(new EntityValidationRequest(prepared, List.of(entity))));
+
+            entity.attrs.put("test", new PrimBool(true));
+            EntityValidationRequest request = new EntityValidationRequest(prepared, List.of(entity));
+            assertThrows(BadRequestException.class, () -> engine.validateEntities(request));
+        }
+    }
+
     /**
      * Test that an entity with an attribute not specified in the schema throws an exception.
      */
@@ -25,7 +25,13 @@ import com.cedarpolicy.model.AuthorizationResponse;
 import com.cedarpolicy.model.PartialAuthorizationRequest;
 import com.cedarpolicy.model.PartialAuthorizationResponse;
 import com.cedarpolicy.model.AuthorizationSuccessResponse.Decision;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.policy.LinkValue;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.TemplateLink;
 import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.CedarMap;
 import com.cedarpolicy.value.EntityUID;
 import com.cedarpolicy.value.EntityTypeName;
 import com.cedarpolicy.value.PrimBool;
@@ -33,9 +39,14 @@ import com.cedarpolicy.value.PrimLong;
 import com.cedarpolicy.value.PrimString;
 import com.cedarpolicy.value.Unknown;
 import com.cedarpolicy.value.Value;
+import com.cedarpolicy.model.exception.DeserializationRecursionDepthException;
+import com.cedarpolicy.model.exception.InvalidValueDeserializationException;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.fasterxml.jackson.core.exc.StreamConstraintsException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -43,6 +54,8 @@ import com.fasterxml.jackson.databind.node.TextNode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
@@ -254,6 +267,50 @@ public class JSONTests {
         assertJSONEqual(n, unknown);
     }
 
+    /** Entities are written with their uids, nested attributes, parents and tags. */
+    @Test
+    public void testEntity() {
+        EntityTypeName user = EntityTypeName.parse("User").get();
+        HashMap<String, Value> address = new HashMap<>();
+        address.put("zip", new PrimString("98101"));
+        HashMap<String, Value> attrs = new HashMap<>();
+        attrs.put("address", new CedarMap(address));
+        HashMap<String, Value> tags = new HashMap<>();
+        tags.put("scores", new CedarList(Arrays.asList(new PrimLong(1), user.of("bob"))));
+        Entity entity = new Entity(user.of("alice"), attrs, Set.of(user.of("carol")), tags);
+
+        String expected = "{\"uid\":{\"type\":\"User\",\"id\":\"alice\"},"
+                + "\"attrs\":{\"address\":{\"zip\":\"98101\"}},"
+                + "\"parents\":[{\"type\":\"User\",\"id\":\"carol\"}],"
+                + "\"tags\":{\"scores\":[1,{\"__entity\":{\"id\":\"bob\",\"type\":\"User\"}}]}}";
+        assertEquals(expected, assertDoesNotThrow(() -> objectWriter().writeValueAsString(entity)));
+    }
+
+    /** Policy sets are written with their policies, templates and template links. */
+    @Test
+    public void testPolicySet() {
+        EntityUID alice = EntityUID.parse("User::\"alice\"").get();
+        Policy policy = new Policy("permit(principal, action, resource);", "p0");
+        Policy template = new Policy("permit(principal == ?principal, action, resource);", "t0");
+        TemplateLink link = new TemplateLink("t0", "l0", List.of(new LinkValue("?principal", alice)));
+        PolicySet policySet = new PolicySet(Set.of(policy), Set.of(template), List.of(link));
+
+        String expected = "{\"staticPolicies\":{\"p0\":\"permit(principal, action, resource);\"},"
+                + "\"templates\":{\"t0\":\"permit(principal == ?principal, action, resource);\"},"
+                + "\"templateLinks\":[{\"templateId\":\"t0\",\"newId\":\"l0\","
+                + "\"values\":{\"?principal\":{\"type\":\"User\",\"id\":\"alice\"}}}]}";
+        assertEquals(expected, assertDoesNotThrow(() -> objectWriter().writeValueAsString(policySet)));
+    }
+
+    /** A policy id that is used twice is rejected rather than letting one policy replace the other. */
+    @Test
+    public void testDuplicatePolicyIds() {
+        PolicySet policySet = new PolicySet(Set.of(
+                new Policy("permit(principal, action, resource);", "p0"),
+                new Policy("forbid(principal, action, resource);", "p0")));
+        assertThrows(JsonProcessingException.class, () -> objectWriter().writeValueAsString(policySet));
+    }
+
     /** Tests deserialization of unknown value */
     @Test
     public void testDeserializationUnknown() throws JsonProcessingException {
@@ -275,4 +332,43 @@ public class JSONTests {
             assertTrue(e instanceof StreamConstraintsException);
         }
     }
+
+    /** Nesting is limited by the deserializer itself, even when the parser would allow deeper documents. */
+    @Test
+    public void testDeserializationDepthLimit() {
+        JsonFactory factory = JsonFactory.builder()
+                .streamReadConstraints(StreamReadConstraints.builder().maxNestingDepth(5000).build())
+                .build();
+        ObjectMapper mapper = new ObjectMapper(factory);
+        String json = "[".repeat(2000) + "]".repeat(2000);
+        assertThrows(DeserializationRecursionDepthException.class, () -> mapper.readValue(json, Value.class));
+    }
+
+    /** Nested values are read in one pass, with numbers that have a fraction truncated. */
+    @Test
+    public void testDeserializationNested() throws JsonProcessingException {
+        String json = "{\"a\":[1,2.9,-2.9,\"s\"],\"b\":{\"__entity\":{\"id\":\"alice\",\"type\":\"User\"}},"
+                + "\"c\":{\"__extn\":{\"fn\":\"decimal\",\"arg\":\"1.5\"}}}";
+        Value value = CedarJson.objectMapper().readValue(json, Value.class);
+        CedarMap record = assertInstanceOf(CedarMap.class, value);
+        assertEquals(new CedarList(Arrays.asList(new PrimLong(1), new PrimLong(2), new PrimLong(-2),
+                new PrimString("s"))), record.get("a"));
+        assertEquals(EntityUID.parse("User::\"alice\"").get(), record.get("b"));
+        assertEquals("1.5", record.get("c").toString());
+    }
+
+    /** An entity or extension escape must be the only field of its object, wherever it appears. */
+    @Test
+    public void testDeserializationEscapeWithOtherFields() {
+        for (String json : List.of(
+                "{\"__entity\":{\"id\":\"alice\",\"type\":\"User\"},\"b\":1}",
+                "{\"b\":1,\"__entity\":{\"id\":\"alice\",\"type\":\"User\"}}",
+                "{\"__extn\":{\"fn\":\"decimal\",\"arg\":\"1.5\"},\"b\":1}",
+                "{\"__entity\":{\"id\":\"alice\"}}",
+                "{\"__extn\":{\"fn\":\"nope\",\"arg\":\"1\"}}",
+                "123456789012345678901234")) {
+            assertThrows(InvalidValueDeserializationException.class,
+                    () -> CedarJson.objectMapper().readValue(json, Value.class), json);
+        }
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.model.schema.Schema.JsonOrCedar;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for the Flight Recorder events emitted by CedarJava. */
+public class JfrEventsTests {
+    private static final EntityUID ALICE = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+    private static final EntityUID VIEW = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+    private static final AuthorizationRequest REQUEST = new AuthorizationRequest(ALICE, VIEW, ALICE, new HashMap<>());
+    private static final String POLICY = "permit(principal == User::\"alice\",action,resource);";
+
+    @TempDir
+    private Path tempDir;
+
+    /** Record everything CedarJava emits while running the action and return the events by name. */
+    private List<RecordedEvent> record(ThrowingRunnable action) throws Exception {
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("Authorization", "PartialAuthorization", "Validation", "EntityValidation",
+                    "PolicyParse", "SchemaParse")) {
+                recording.enable("com.cedarpolicy." + name);
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            Path file = tempDir.resolve("cedar.jfr");
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("com.cedarpolicy."))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /** Test that an authorization call is recorded with its counts, size and decision. */
+    @Test
+    public void authorization() throws Exception {
+        PolicySet policies = new PolicySet(Set.of(new Policy(POLICY, "p0")));
+        Set<Entity> entities = Set.of(new Entity(ALICE, new HashMap<>(), new HashSet<>()));
+        List<RecordedEvent> events =
+                record(() -> new BasicAuthorizationEngine().isAuthorized(REQUEST, policies, entities));
+
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("com.cedarpolicy.Authorization", event.getEventType().getName());
+        assertEquals("AuthorizationOperation", event.getString("operation"));
+        assertEquals(1, event.getInt("policyCount"));
+        assertEquals(1, event.getInt("entityCount"));
+        assertTrue(event.getLong("requestBytes") > 0);
+        assertTrue(event.getBoolean("success"));
+        assertEquals("Allow", event.getString("decision"));
+        assertEquals(1, event.getInt("allowedCount"));
+    }
+
+    /** Test that policy and schema parses are recorded, including those that fail. */
+    @Test
+    public void parsing() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            PolicySet.parsePolicies(POLICY);
+            assertThrows(InternalException.class, () -> PolicySet.parsePolicies("permit("));
+            Schema.parse(JsonOrCedar.Cedar, "entity User;");
+        });
+
+        assertEquals(3, events.size());
+        assertEquals("com.cedarpolicy.PolicyParse", events.get(0).getEventType().getName());
+        assertEquals(1, events.get(0).getInt("policyCount"));
+        assertEquals(POLICY.length(), events.get(0).getLong("sourceBytes"));
+        assertTrue(events.get(0).getBoolean("success"));
+        assertFalse(events.get(1).getBoolean("success"));
+        assertEquals("com.cedarpolicy.SchemaParse", events.get(2).getEventType().getName());
+        assertEquals("Cedar", events.get(2).getString("format"));
+        assertTrue(events.get(2).getBoolean("success"));
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
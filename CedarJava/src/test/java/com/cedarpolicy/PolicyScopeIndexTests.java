@@ -0,0 +1,151 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.entity.Entity;
+import com.cedarpolicy.model.policy.LinkValue;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.model.policy.TemplateLink;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/** Tests for the policy scope index and the engine that uses it. */
+public class PolicyScopeIndexTests {
+    private static final EntityTypeName USER = EntityTypeName.parse("User").get();
+    private static final EntityTypeName ACTION = EntityTypeName.parse("Action").get();
+    private static final EntityTypeName PHOTO = EntityTypeName.parse("Photo").get();
+    private static final EntityUID ALICE = new EntityUID(USER, "alice");
+    private static final EntityUID BOB = new EntityUID(USER, "bob");
+    private static final EntityUID ADMINS = new EntityUID(EntityTypeName.parse("Group").get(), "admins");
+    private static final EntityUID VIEW = new EntityUID(ACTION, "view");
+    private static final EntityUID EDIT = new EntityUID(ACTION, "edit");
+    private static final EntityUID READ = new EntityUID(ACTION, "read");
+    private static final EntityUID PHOTO1 = new EntityUID(PHOTO, "photo1");
+
+    private static final PolicySet POLICIES = new PolicySet(
+            Set.of(new Policy("permit(principal,action,resource);", "all"),
+                    new Policy("permit(principal == User::\"alice\",action,resource);", "alice"),
+                    new Policy("permit(principal in Group::\"admins\",action,resource);", "admins"),
+                    new Policy("forbid(principal is User,action == Action::\"edit\",resource);", "userEdit"),
+                    new Policy("permit(principal,action in Action::\"read\",resource);", "read"),
+                    new Policy("permit(principal,action in [Action::\"edit\", Action::\"other\"],resource);", "list"),
+                    new Policy("permit(principal,action,resource is Photo in Photo::\"photo1\");", "photo1"),
+                    new Policy("permit(principal,action,resource == Photo::\"photo2\");", "photo2")),
+            Set.of(new Policy("permit(principal == ?principal,action,resource);", "template")),
+            List.of(new TemplateLink("template", "link", List.of(new LinkValue("?principal", BOB)))));
+
+    private static Set<Entity> entities() {
+        Set<Entity> entities = new HashSet<>();
+        entities.add(new Entity(ALICE, new HashMap<>(), Set.of(ADMINS)));
+        entities.add(new Entity(VIEW, new HashMap<>(), Set.of(READ)));
+        entities.add(new Entity(PHOTO1, new HashMap<>(), new HashSet<>()));
+        return entities;
+    }
+
+    private static Set<String> ids(PolicySet policySet) {
+        return new TreeSet<>(policySet.getStaticPolicies().keySet());
+    }
+
+    /** Test that policies are selected by the equality, membership and type constraints of their scopes. */
+    @Test
+    public void candidates() {
+        PolicyScopeIndex index = PolicyScopeIndex.build(POLICIES);
+        PolicySet candidates = index.candidates(
+                new AuthorizationRequest(ALICE, VIEW, PHOTO1, new HashMap<>()), entities());
+        assertEquals(Set.of("all", "alice", "admins", "read", "photo1"), ids(candidates));
+        assertEquals(POLICIES.templates, candidates.templates);
+        assertEquals(POLICIES.templateLinks, candidates.templateLinks);
+
+        candidates = index.candidates(new AuthorizationRequest(BOB, EDIT, BOB, new HashMap<>()), entities());
+        assertEquals(Set.of("all", "userEdit", "list"), ids(candidates));
+    }
+
+    /** Test that entities indexed in advance give the same candidates for every request. */
+    @Test
+    public void indexedEntities() {
+        PolicyScopeIndex index = PolicyScopeIndex.build(POLICIES);
+        Map<EntityUID, Entity> byUid = EntitySlicer.index(entities());
+        for (AuthorizationRequest request : List.of(new AuthorizationRequest(ALICE, VIEW, PHOTO1, new HashMap<>()),
+                new AuthorizationRequest(BOB, EDIT, BOB, new HashMap<>()))) {
+            assertEquals(ids(index.candidates(request, entities())), ids(index.candidates(List.of(request), byUid)));
+        }
+    }
+
+    /** Test that membership constraints are kept when the ancestors are not known. */
+    @Test
+    public void unknownAncestors() {
+        PolicyScopeIndex index = PolicyScopeIndex.build(POLICIES);
+        PolicySet candidates = index.candidates(new AuthorizationRequest(BOB, EDIT, BOB, new HashMap<>()));
+        assertEquals(Set.of("all", "admins", "userEdit", "read", "list"), ids(candidates));
+    }
+
+    /** Test that the whole policy set is returned when every policy is a candidate. */
+    @Test
+    public void allCandidates() {
+        PolicySet policySet = new PolicySet(Set.of(new Policy("permit(principal,action,resource);", "p0"),
+                new Policy("permit(principal,action,resource) when {", "invalid")));
+        PolicyScopeIndex index = PolicyScopeIndex.build(policySet);
+        assertSame(index.getPolicySet(),
+                index.candidates(new AuthorizationRequest(BOB, EDIT, BOB, new HashMap<>()), Set.of()));
+    }
+
+    /** Test that the index is not changed by later changes to the policy set. */
+    @Test
+    public void snapshot() {
+        Set<Policy> policies = new HashSet<>(POLICIES.policies);
+        PolicySet policySet = new PolicySet(policies);
+        PolicyScopeIndex index = PolicyScopeIndex.build(policySet);
+        policies.removeIf(policy -> policy.policyID.equals("all"));
+        policies.add(new Policy("permit(principal == User::\"bob\",action,resource);", "bob"));
+        PolicySet candidates = index.candidates(new AuthorizationRequest(BOB, VIEW, PHOTO1, new HashMap<>()));
+        assertEquals(Set.of("all", "admins", "read", "list", "photo1"), ids(candidates));
+    }
+
+    /** Test that the filtering engine gives the same decisions and reasons as evaluating every policy. */
+    @Test
+    public void sameDecisions() throws Exception {
+        AuthorizationEngine basic = new BasicAuthorizationEngine();
+        ScopeFilteringAuthorizationEngine filtering = new ScopeFilteringAuthorizationEngine(basic);
+        PolicyScopeIndex index = PolicyScopeIndex.build(POLICIES);
+        Set<Entity> entities = entities();
+        IndexedEntities indexed = IndexedEntities.of(entities);
+        for (EntityUID principal : List.of(ALICE, BOB, ADMINS)) {
+            for (EntityUID action : List.of(VIEW, EDIT, READ)) {
+                for (EntityUID resource : List.of(PHOTO1, ALICE)) {
+                    AuthorizationRequest request = new AuthorizationRequest(principal, action, resource, new HashMap<>());
+                    AuthorizationResponse expected = basic.isAuthorized(request, POLICIES, entities);
+                    AuthorizationResponse actual = filtering.isAuthorized(request, index, indexed);
+                    assertEquals(expected.success.orElseThrow().getDecision(), actual.success.orElseThrow().getDecision());
+                    assertEquals(expected.success.orElseThrow().getReason(), actual.success.orElseThrow().getReason());
+                }
+            }
+        }
+    }
+}
@@ -83,6 +83,30 @@ public class PolicySetTests {
         });
     }
 
+    @Test
+    public void parsePoliciesParallelTests() throws InternalException, IOException {
+        for (String file : new String[] {"policies.cedar", "template.cedar"}) {
+            PolicySet expected = PolicySet.parsePolicies(Path.of(TEST_RESOURCES_DIR + file));
+            PolicySet policySet = PolicySet.parsePoliciesParallel(Path.of(TEST_RESOURCES_DIR + file));
+            assertEquals(expected.getStaticPolicies(), policySet.getStaticPolicies());
+            assertEquals(expected.getTemplates(), policySet.getTemplates());
+        }
+
+        StringBuilder policies = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            policies.append("permit(principal == User::\"user").append(i).append("\", action, resource);\n");
+        }
+        PolicySet expected = PolicySet.parsePolicies(policies.toString());
+        PolicySet policySet = PolicySet.parsePoliciesParallel(policies.toString());
+        assertEquals(1000, policySet.getNumPolicies());
+        assertEquals(expected.getStaticPolicies(), policySet.getStaticPolicies());
+
+        assertThrows(InternalException.class, () -> {
+            PolicySet.parsePoliciesParallel(Path.of(TEST_RESOURCES_DIR + "malformed_policy_set.cedar"));
+        });
+        assertThrows(NullPointerException.class, () -> PolicySet.parsePoliciesParallel((String) null));
+    }
+
     @Test
     public void getNumTests() throws InternalException, IOException {
         // Null policy set
@@ -16,6 +16,8 @@
 
 package com.cedarpolicy;
 
+import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.model.schema.PreparedSchema;
 import com.cedarpolicy.model.schema.Schema;
 import com.cedarpolicy.model.schema.Schema.JsonOrCedar;
 
@@ -23,6 +25,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SchemaTests {
     @Test
@@ -107,4 +110,20 @@ public class SchemaTests {
             Schema.parse(JsonOrCedar.Cedar, "namspace Foo::Bar;");
         });
     }
+
+    @Test
+    public void prepareSchema() {
+        assertDoesNotThrow(() -> {
+            try (PreparedSchema prepared = PreparedSchema.prepare(new Schema("entity User; action view;"))) {
+                prepared.getHandle();
+            }
+            PreparedSchema json = PreparedSchema.prepare(Schema.parse(JsonOrCedar.Json, "{}"));
+            json.close();
+            json.close();
+            assertTrue(json.isClosed());
+            assertThrows(IllegalStateException.class, json::getHandle);
+        });
+        assertThrows(InternalException.class, () -> PreparedSchema.prepare(new Schema("namspace Foo::Bar;")));
+        assertThrows(NullPointerException.class, () -> PreparedSchema.prepare(null));
+    }
 }
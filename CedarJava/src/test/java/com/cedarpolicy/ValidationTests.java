@@ -31,6 +31,7 @@ import com.cedarpolicy.model.policy.LinkValue;
 import com.cedarpolicy.model.policy.Policy;
 import com.cedarpolicy.model.policy.PolicySet;
 import com.cedarpolicy.model.policy.TemplateLink;
+import com.cedarpolicy.model.schema.PreparedSchema;
 import com.cedarpolicy.model.schema.Schema;
 import com.cedarpolicy.value.EntityUID;
 
@@ -88,6 +89,34 @@ public class ValidationTests {
         thenIsNotValid(response);
     }
 
+    /** Test. */
+    @Test
+    public void givenPreparedSchemaValidatesPolicies() {
+        givenSchema(PHOTOFLASH_SCHEMA);
+        assertDoesNotThrow(() -> {
+            try (PreparedSchema prepared = PreparedSchema.prepare(schema)) {
+                givenPolicy(
+                        "policy0",
+                        "permit("
+                                + "    principal == User::\"alice\","
+                                + "    action == Action::\"viewPhoto\","
+                                + "    resource == Photo::\"VacationPhoto94.jpg\""
+                                + ");");
+                thenIsValid(engine.validate(new ValidationRequest(prepared, policies)));
+                givenPolicy(
+                        "policy0",
+                        "permit("
+                                + "    principal == User::\"alice\","
+                                + "    action == Action::\"viewPhoto\","
+                                + "    resource == User::\"bob\""
+                                + ");");
+                thenIsNotValid(engine.validate(new ValidationRequest(prepared, policies)));
+                givenPolicy("policy0", "permit { }");
+                thenValidationFailed(engine.validate(new ValidationRequest(prepared, policies)));
+            }
+        });
+    }
+
     /** Test. */
     @Test
     public void givenInvalidPolicyThrowsBadRequestError() {
@@ -0,0 +1,81 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.BasicAuthorizationEngine.VirtualThreadPolicy;
+import com.cedarpolicy.BasicAuthorizationEngine.WireFormat;
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.policy.Policy;
+import com.cedarpolicy.model.policy.PolicySet;
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+/** Tests for native calls made from virtual threads. */
+public class VirtualThreadTests {
+    private static final EntityUID ALICE = new EntityUID(EntityTypeName.parse("User").get(), "alice");
+    private static final EntityUID VIEW = new EntityUID(EntityTypeName.parse("Action").get(), "view");
+    private static final AuthorizationRequest REQUEST = new AuthorizationRequest(ALICE, VIEW, ALICE, new HashMap<>());
+    private static final PolicySet POLICIES =
+            new PolicySet(Set.of(new Policy("permit(principal == User::\"alice\",action,resource);", "p0")));
+
+    /** Test that the policy is kept and that calls from platform threads are made as usual. */
+    @Test
+    public void platformThreads() throws Exception {
+        BasicAuthorizationEngine engine = new BasicAuthorizationEngine(WireFormat.CBOR, VirtualThreadPolicy.OFFLOAD);
+        assertEquals(VirtualThreadPolicy.OFFLOAD, engine.getVirtualThreadPolicy());
+        assertEquals(VirtualThreadPolicy.PIN, new BasicAuthorizationEngine().getVirtualThreadPolicy());
+        assertTrue(engine.isAuthorized(REQUEST, POLICIES, Set.of()).success.orElseThrow().isAllowed());
+        assertThrows(NullPointerException.class, () -> new BasicAuthorizationEngine(WireFormat.JSON, null));
+    }
+
+    /** Test that many virtual threads can make calls at once when they are offloaded. */
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    public void manyVirtualThreads() throws Exception {
+        BasicAuthorizationEngine engine = new BasicAuthorizationEngine(WireFormat.JSON, VirtualThreadPolicy.OFFLOAD);
+        // Created through reflection so that the tests still compile for Java 17
+        ExecutorService executor =
+                (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                futures.add(executor.submit(
+                        () -> engine.isAuthorized(REQUEST, POLICIES, Set.of()).success.orElseThrow().isAllowed()));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.pbt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.cedarpolicy.value.EntityTypeName;
+import com.cedarpolicy.value.EntityUID;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Combinators;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple;
+
+/** Property based tests comparing the Java parser of plain names with the Rust parser. */
+public class NameParserTest {
+
+    @Property(tries = 1000)
+    void typeNamesParseLikeNative(@ForAll("typeNames") String src) throws ReflectiveOperationException {
+        Optional<EntityTypeName> parsed = EntityTypeName.parse(src);
+        Optional<EntityTypeName> expected = nativeParse(EntityTypeName.class, "parseEntityTypeName", src);
+        assertEquals(expected, parsed, src);
+        assertEquals(expected.map(Object::toString), parsed.map(Object::toString), src);
+    }
+
+    @Property(tries = 1000)
+    void uidsParseLikeNative(@ForAll("uids") String src) throws ReflectiveOperationException {
+        Optional<EntityUID> parsed = EntityUID.parse(src);
+        Optional<EntityUID> expected = nativeParse(EntityUID.class, "parseEntityUID", src);
+        assertEquals(expected, parsed, src);
+        assertEquals(expected.map(Object::toString), parsed.map(Object::toString), src);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Optional<T> nativeParse(Class<T> type, String method, String src)
+            throws ReflectiveOperationException {
+        Method parse = type.getDeclaredMethod(method, String.class);
+        parse.setAccessible(true);
+        return (Optional<T>) parse.invoke(null, src);
+    }
+
+    /** Identifiers, including the words the Rust parser treats specially. */
+    private static Arbitrary<String> identifiers() {
+        Arbitrary<String> plain = Arbitraries.strings()
+                .withCharRange('a', 'z')
+                .withCharRange('A', 'Z')
+                .withChars('_')
+                .ofMinLength(1)
+                .ofMaxLength(8)
+                .flatMap(head -> Arbitraries.strings().alpha().numeric().withChars('_').ofMaxLength(4)
+                        .map(tail -> head + tail));
+        Arbitrary<String> special = Arbitraries.of("true", "false", "if", "then", "else", "in", "is",
+                "like", "has", "principal", "action", "resource", "context", "Action", "__cedar",
+                "__cedarX", "permit", "when", "0a");
+        return Arbitraries.frequencyOf(Tuple.of(8, plain), Tuple.of(1, special));
+    }
+
+    /** Plain type names, and near misses such as names with whitespace or stray colons. */
+    @Provide
+    Arbitrary<String> typeNames() {
+        Arbitrary<String> plain = identifiers().list().ofMinSize(1).ofMaxSize(4)
+                .map(parts -> parts.stream().collect(Collectors.joining("::")));
+        Arbitrary<String> separator = Arbitraries.of("::", ":", ":::", " :: ", "::\n", "/* */::");
+        Arbitrary<String> odd = Combinators.combine(identifiers(), separator, identifiers())
+                .as((a, sep, b) -> a + sep + b);
+        Arbitrary<String> padded = plain.map(name -> " " + name + "\t");
+        return Arbitraries.oneOf(plain, plain, odd, padded, Arbitraries.strings().ofMaxLength(12));
+    }
+
+    /** Uids with plain and unusual types and ids, including ids that need escaping. */
+    @Provide
+    Arbitrary<String> uids() {
+        Arbitrary<String> plainIds = Arbitraries.strings().ascii().ofMaxLength(12)
+                .filter(id -> id.indexOf('"') < 0 && id.indexOf('\\') < 0);
+        Arbitrary<String> escapedIds = Arbitraries.of("\\\"", "\\n", "\\u{1F600}", "a\\\\b", "\\x41", "\\q");
+        Arbitrary<String> anyIds = Arbitraries.strings().all().ofMaxLength(6);
+        Arbitrary<String> ids = Arbitraries.oneOf(plainIds, plainIds, escapedIds, anyIds);
+        Arbitrary<String> uid = Combinators.combine(typeNames(), ids).as((type, id) -> type + "::\"" + id + "\"");
+        Arbitrary<String> spaced = Combinators.combine(typeNames(), ids)
+                .as((type, id) -> type + " :: \"" + id + "\"");
+        Arbitrary<String> truncated = uid.map(src -> src.substring(0, src.length() - 1));
+        return Arbitraries.oneOf(uid, uid, uid, spaced, truncated, Arbitraries.strings().ofMaxLength(16));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! Many authorization requests answered against the same policies and entities in one call.
+
+use std::{
+    sync::{Mutex, PoisonError},
+    thread,
+};
+
+use cedar_policy::{ffi::AuthorizationAnswer, Authorizer};
+use itertools::Itertools;
+use serde::Deserialize;
+use serde_json::Value;
+
+use crate::{
+    prepared::{authorization_answer, RequestJson, ResolvedInputs, SharedInputs},
+    workers,
+};
+
+/// Batches smaller than this per thread are not worth spreading over several threads
+const MIN_REQUESTS_PER_THREAD: usize = 16;
+
+/// Authorization requests sharing their policies, entities and schema
+#[derive(Debug, Deserialize)]
+pub struct BatchAuthorizationCall {
+    requests: Vec<RequestJson>,
+    #[serde(flatten)]
+    inputs: SharedInputs,
+}
+
+/// Answer a batch of authorization requests. The answer is an array with one entry per request,
+/// in the same order, each in the format of `is_authorized_json_str`.
+pub fn batch_is_authorized(call: BatchAuthorizationCall) -> serde_json::Result<Value> {
+    let count = call.requests.len();
+    let answers = match call.inputs.resolve() {
+        Ok(inputs) => answer_all(&inputs, call.requests)
+            .iter()
+            .map(serde_json::to_value)
+            .collect::<serde_json::Result<Vec<_>>>()?,
+        // Every request would fail in the same way if it had been made on its own
+        Err(e) => vec![serde_json::to_value(authorization_answer(Err(e)))?; count],
+    };
+    Ok(Value::Array(answers))
+}
+
+fn answer_all(inputs: &ResolvedInputs, requests: Vec<RequestJson>) -> Vec<AuthorizationAnswer> {
+    let available = thread::available_parallelism().map_or(1, |n| n.get());
+    let threads = available.min(requests.len() / MIN_REQUESTS_PER_THREAD).max(1);
+    if threads == 1 {
+        return answer_chunk(inputs, requests);
+    }
+    let chunk_size = requests.len().div_ceil(threads);
+    // Each chunk is taken by the thread that answers it, or by this thread if that thread could
+    // not be spawned
+    let chunks: Vec<Mutex<Vec<RequestJson>>> = requests
+        .into_iter()
+        .chunks(chunk_size)
+        .into_iter()
+        .map(|chunk| Mutex::new(chunk.collect()))
+        .collect();
+    thread::scope(|scope| {
+        let handles: Vec<_> = chunks
+            .iter()
+            .map(|chunk| {
+                thread::Builder::new()
+                    .stack_size(workers::stack_size())
+                    .spawn_scoped(scope, move || answer_chunk(inputs, take(chunk)))
+            })
+            .collect();
+        handles
+            .into_iter()
+            .zip(&chunks)
+            .flat_map(|(handle, chunk)| match handle {
+                Ok(handle) => handle.join().unwrap_or_else(|e| std::panic::resume_unwind(e)),
+                Err(_) => answer_chunk(inputs, take(chunk)),
+            })
+            .collect()
+    })
+}
+
+fn take(chunk: &Mutex<Vec<RequestJson>>) -> Vec<RequestJson> {
+    std::mem::take(&mut *chunk.lock().unwrap_or_else(PoisonError::into_inner))
+}
+
+fn answer_chunk(inputs: &ResolvedInputs, requests: Vec<RequestJson>) -> Vec<AuthorizationAnswer> {
+    let authorizer = Authorizer::new();
+    requests
+        .into_iter()
+        .map(|request| authorization_answer(inputs.is_authorized(&authorizer, request)))
+        .collect()
+}
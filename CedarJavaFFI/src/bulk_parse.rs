@@ -0,0 +1,191 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! Parsing of large policy files on several threads.
+
+use std::{str::FromStr, thread};
+
+use cedar_policy::{ParseErrors, Policy, PolicyId, PolicySet, Template};
+
+use crate::workers;
+
+/// Files with fewer policies than this per thread are not worth spreading over several threads
+const MIN_POLICIES_PER_THREAD: usize = 64;
+
+/// Whether a parsed policy is a static policy or a template, as encoded by [`encode`]
+#[derive(Debug, Clone, Copy, PartialEq, Eq)]
+#[repr(u8)]
+pub enum PolicyKind {
+    /// A static policy
+    Static = 0,
+    /// A policy template
+    Template = 1,
+}
+
+/// A policy or template with its id and its text
+#[derive(Debug, Clone, PartialEq, Eq)]
+pub struct ParsedPolicy {
+    pub kind: PolicyKind,
+    pub id: String,
+    pub text: String,
+}
+
+/// Split policy source into the text of each policy, at the `;` that end policies. Semicolons in
+/// string literals and comments are skipped, as are whitespace and comments between policies. Text
+/// after the last `;` is returned as a policy of its own, which will fail to parse.
+pub fn split_policies(src: &str) -> Vec<&str> {
+    let bytes = src.as_bytes();
+    let mut policies = Vec::new();
+    // Byte offset of the first token of the current policy
+    let mut start = None;
+    let mut i = 0;
+    while i < bytes.len() {
+        match bytes[i] {
+            b'/' if bytes.get(i + 1) == Some(&b'/') => {
+                while i < bytes.len() && bytes[i] != b'\n' {
+                    i += 1;
+                }
+                continue;
+            }
+            b'"' => {
+                start.get_or_insert(i);
+                i += 1;
+                while i < bytes.len() && bytes[i] != b'"' {
+                    if bytes[i] == b'\\' {
+                        i += 1;
+                    }
+                    i += 1;
+                }
+            }
+            b';' => {
+                let policy_start = *start.get_or_insert(i);
+                policies.push(&src[policy_start..=i]);
+                start = None;
+            }
+            b if b.is_ascii_whitespace() => {}
+            _ => {
+                start.get_or_insert(i);
+            }
+        }
+        i += 1;
+    }
+    if let Some(policy_start) = start {
+        policies.push(&src[policy_start..]);
+    }
+    policies
+}
+
+/// Parse the policies and templates in `src`, giving them the same ids as `PolicySet::from_str`.
+/// Policies are parsed on several threads when there are enough of them. If any policy does not
+/// parse on its own, the whole text is parsed as a policy set so that the errors are the same.
+pub fn parse_policies(src: &str) -> Result<Vec<ParsedPolicy>, ParseErrors> {
+    let policies = split_policies(src);
+    match parse_all(&policies) {
+        Some(parsed) => Ok(parsed),
+        None => Ok(from_policy_set(&PolicySet::from_str(src)?)),
+    }
+}
+
+fn parse_all(policies: &[&str]) -> Option<Vec<ParsedPolicy>> {
+    let available = thread::available_parallelism().map_or(1, |n| n.get());
+    let threads = available.min(policies.len() / MIN_POLICIES_PER_THREAD).max(1);
+    if threads == 1 {
+        return parse_range(0, policies);
+    }
+    let chunk_size = policies.len().div_ceil(threads);
+    thread::scope(|scope| {
+        let handles: Vec<_> = policies
+            .chunks(chunk_size)
+            .enumerate()
+            .map(|(n, chunk)| {
+                thread::Builder::new()
+                    .stack_size(workers::stack_size())
+                    .spawn_scoped(scope, move || parse_range(n * chunk_size, chunk))
+            })
+            .collect();
+        // Join every thread before giving up, as the scope panics if a thread that was not joined
+        // panicked. A thread that could not be spawned or that panicked falls back to `from_str`.
+        let chunks: Vec<Option<Vec<ParsedPolicy>>> = handles
+            .into_iter()
+            .map(|handle| handle.ok().and_then(|handle| handle.join().ok().flatten()))
+            .collect();
+        let mut parsed = Vec::with_capacity(policies.len());
+        for chunk in chunks {
+            parsed.extend(chunk?);
+        }
+        Some(parsed)
+    })
+}
+
+fn parse_range(first_index: usize, policies: &[&str]) -> Option<Vec<ParsedPolicy>> {
+    policies
+        .iter()
+        .enumerate()
+        .map(|(i, text)| parse_one(first_index + i, text))
+        .collect()
+}
+
+fn parse_one(index: usize, text: &str) -> Option<ParsedPolicy> {
+    // `PolicySet::from_str` numbers policies and templates together, in the order they appear
+    let id = format!("policy{index}");
+    if let Ok(policy) = Policy::parse(Some(PolicyId::new(&id)), text) {
+        return Some(ParsedPolicy {
+            kind: PolicyKind::Static,
+            id,
+            text: policy.to_string(),
+        });
+    }
+    let template = Template::parse(Some(PolicyId::new(&id)), text).ok()?;
+    Some(ParsedPolicy {
+        kind: PolicyKind::Template,
+        id,
+        text: template.to_string(),
+    })
+}
+
+fn from_policy_set(policy_set: &PolicySet) -> Vec<ParsedPolicy> {
+    let policies = policy_set.policies().map(|policy| ParsedPolicy {
+        kind: PolicyKind::Static,
+        id: policy.id().to_string(),
+        text: policy.to_string(),
+    });
+    let templates = policy_set.templates().map(|template| ParsedPolicy {
+        kind: PolicyKind::Template,
+        id: template.id().to_string(),
+        text: template.to_string(),
+    });
+    policies.chain(templates).collect()
+}
+
+/// Encode parsed policies for `PolicySet.parsePoliciesParallel`. Each policy is its kind as one
+/// byte, followed by its id and then its text, each as a big-endian `u32` length and UTF-8 bytes.
+pub fn encode(policies: &[ParsedPolicy]) -> Vec<u8> {
+    let size = policies
+        .iter()
+        .map(|policy| 9 + policy.id.len() + policy.text.len())
+        .sum();
+    let mut encoded = Vec::with_capacity(size);
+    for policy in policies {
+        encoded.push(policy.kind as u8);
+        for field in [&policy.id, &policy.text] {
+            // Java arrays are indexed by `int`, so longer fields could not be returned anyway
+            let length = u32::try_from(field.len()).unwrap_or(u32::MAX);
+            encoded.extend_from_slice(&length.to_be_bytes());
+            encoded.extend_from_slice(field.as_bytes());
+        }
+    }
+    encoded
+}
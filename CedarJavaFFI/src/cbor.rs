@@ -0,0 +1,87 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//! Calls into Cedar whose input and output are encoded as CBOR rather than JSON text.
+//!
+//! Each call is decoded straight into the same typed request the JSON interface uses, and the
+//! answer is encoded straight from its typed form, so no JSON text is produced on either side.
+
+use std::{convert::Infallible, fmt::Display};
+
+#[cfg(feature = "partial-eval")]
+use cedar_policy::ffi::is_authorized_partial;
+use cedar_policy::ffi::{is_authorized, validate};
+use serde::{de::DeserializeOwned, Serialize};
+
+use crate::{
+    answer::Answer,
+    batch::batch_is_authorized,
+    interface::{
+        validate_entity_call_answer, V0_AUTH_OP, V0_BATCH_AUTH_OP, V0_PREPARED_AUTH_OP,
+        V0_PREPARED_VALIDATE_OP, V0_VALIDATE_ENTITIES, V0_VALIDATE_OP,
+    },
+    prepared::{prepared_is_authorized, prepared_validate},
+    timing::Timings,
+};
+#[cfg(feature = "partial-eval")]
+use crate::interface::V0_AUTH_PARTIAL_OP;
+
+/// Encode a value as CBOR
+pub fn encode<T: Serialize>(value: &T) -> Result<Vec<u8>, String> {
+    let mut bytes = Vec::new();
+    ciborium::into_writer(value, &mut bytes).map_err(|e| e.to_string())?;
+    Ok(bytes)
+}
+
+/// Decode a call, answer it with `op` and encode the answer
+fn transcode<C, A, E>(
+    input: &[u8],
+    timings: &mut Timings,
+    op: impl FnOnce(C) -> Result<A, E>,
+) -> Result<Vec<u8>, String>
+where
+    C: DeserializeOwned,
+    A: Serialize,
+    E: Display,
+{
+    let decode = || ciborium::from_reader(input).map_err(|e| e.to_string());
+    let answer = timings.record(decode, op)?;
+    encode(&answer.map_err(|e| e.to_string())?)
+}
+
+/// Adapt an operation that cannot fail to the signature expected by `transcode`
+fn infallible<C, A>(op: impl FnOnce(C) -> A) -> impl FnOnce(C) -> Result<A, Infallible> {
+    move |call| Ok(op(call))
+}
+
+/// Handle a call whose input and output are CBOR. Calls and answers have the same structure as
+/// those of `call_cedar`. How long decoding and answering the call take is recorded in `timings`.
+pub(crate) fn call_cedar_cbor(call: &str, input: &[u8], timings: &mut Timings) -> Vec<u8> {
+    let result = match call {
+        V0_AUTH_OP => transcode(input, timings, infallible(is_authorized)),
+        #[cfg(feature = "partial-eval")]
+        V0_AUTH_PARTIAL_OP => transcode(input, timings, infallible(is_authorized_partial)),
+        V0_VALIDATE_OP => transcode(input, timings, infallible(validate)),
+        V0_VALIDATE_ENTITIES => transcode(input, timings, infallible(validate_entity_call_answer)),
+        V0_PREPARED_AUTH_OP => transcode(input, timings, infallible(prepared_is_authorized)),
+        V0_PREPARED_VALIDATE_OP => transcode(input, timings, infallible(prepared_validate)),
+        V0_BATCH_AUTH_OP => transcode(input, timings, batch_is_authorized),
+        _ => encode(&Answer::fail_internally(format!(
+            "unsupported operation: {}",
+            call
+        ))),
+    };
+    result.unwrap_or_else(|err| panic!("failed to handle call {call}\nError: {err}"))
+}
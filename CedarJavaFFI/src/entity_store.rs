@@ -0,0 +1,202 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! Entity hierarchies kept resident on the native side and updated in place.
+
+use std::{
+    collections::{HashMap, HashSet},
+    fs::File,
+    io::BufReader,
+    path::Path,
+    sync::{Arc, LazyLock, PoisonError, RwLock},
+};
+
+use cedar_policy::{Entities, Entity, EntityUid, Schema};
+use jni::sys::jlong;
+use miette::{miette, Report};
+use serde_json::Value;
+
+use crate::{handles::Registry, prepared::PreparedSchema};
+
+/// Entity stores created by `com.cedarpolicy.model.entity.EntityStore`
+pub static ENTITY_STORES: LazyLock<Registry<EntityStore>> = LazyLock::new(Registry::new);
+
+/// Look up an entity store by handle
+pub fn entity_store(handle: jlong) -> Result<Arc<EntityStore>, Report> {
+    ENTITY_STORES
+        .get(handle)
+        .ok_or_else(|| miette!("no entity store with handle {handle}"))
+}
+
+/// A set of entities whose ancestor closure is maintained incrementally as entities are
+/// inserted, replaced and removed.
+///
+/// Requests evaluate against a snapshot of the store, so updates never block on, or are
+/// observed part way through by, requests that are already running.
+pub struct EntityStore {
+    /// Schema the entities are validated against, if any
+    schema: Option<Arc<PreparedSchema>>,
+    /// The current contents of the store
+    entities: RwLock<Arc<Entities>>,
+}
+
+impl EntityStore {
+    /// Build a store from entities in the JSON format produced by `EntitySerializer`
+    pub fn new(entities: Value, schema: Option<Arc<PreparedSchema>>) -> Result<Self, Report> {
+        let entities =
+            Entities::from_json_value(entities, schema.as_deref().map(PreparedSchema::schema))?;
+        Ok(Self::with_entities(entities, schema))
+    }
+
+    /// Build a store from a file of entities in Cedar's JSON entity format. The file is parsed as
+    /// it is read, so its text is never held in memory as a whole.
+    pub fn from_file(path: &Path, schema: Option<Arc<PreparedSchema>>) -> Result<Self, Report> {
+        let file = File::open(path)
+            .map_err(|e| miette!("could not open entity file {}: {e}", path.display()))?;
+        let entities = Entities::from_json_file(
+            BufReader::new(file),
+            schema.as_deref().map(PreparedSchema::schema),
+        )?;
+        Ok(Self::with_entities(entities, schema))
+    }
+
+    fn with_entities(entities: Entities, schema: Option<Arc<PreparedSchema>>) -> Self {
+        Self {
+            schema,
+            entities: RwLock::new(Arc::new(entities)),
+        }
+    }
+
+    /// The current contents of the store
+    pub fn snapshot(&self) -> Arc<Entities> {
+        Arc::clone(&self.entities.read().unwrap_or_else(PoisonError::into_inner))
+    }
+
+    fn schema(&self) -> Option<&Schema> {
+        self.schema.as_deref().map(PreparedSchema::schema)
+    }
+
+    /// Insert the given entities, replacing any existing entities with the same uids
+    pub fn upsert(&self, entities: Value) -> Result<(), Report> {
+        let Value::Array(entities) = entities else {
+            return Err(miette!("expected an array of entities"));
+        };
+        // Parse and validate the whole batch up front so the store is only modified once
+        // every entity is known to be acceptable. Parsing with the schema checks that each
+        // entity conforms to it.
+        let mut parents = HashMap::new();
+        let batch = entities
+            .into_iter()
+            .map(|json| {
+                let parent_json = json.get("parents").cloned();
+                let entity = Entity::from_json_value(json, self.schema())?;
+                let uid = entity.uid();
+                if parents.contains_key(&uid) {
+                    return Err(miette!("duplicate entity entry `{uid}`"));
+                }
+                parents.insert(uid, parents_of(parent_json)?);
+                Ok(entity)
+            })
+            .collect::<Result<Vec<_>, Report>>()?;
+        self.update(
+            |current| may_create_cycle(current, &parents),
+            |current| current.upsert_entities(batch, self.schema()),
+        )
+    }
+
+    /// Remove the entities with the given uids. Uids that are not in the store are ignored.
+    pub fn remove(&self, uids: Value) -> Result<(), Report> {
+        let Value::Array(uids) = uids else {
+            return Err(miette!("expected an array of entity uids"));
+        };
+        let uids = uids
+            .into_iter()
+            .map(EntityUid::from_json)
+            .collect::<Result<Vec<_>, _>>()?;
+        // Removing entities only removes edges, so it cannot create a cycle
+        self.update(|_| false, |current| current.remove_entities(uids))
+    }
+
+    /// Replace the contents of the store with the result of `f`. `may_fail` is asked first, with
+    /// the write lock held, whether `f` could reject the current contents.
+    fn update<E>(
+        &self,
+        may_fail: impl FnOnce(&Entities) -> bool,
+        f: impl FnOnce(Entities) -> Result<Entities, E>,
+    ) -> Result<(), Report>
+    where
+        Report: From<E>,
+    {
+        let mut guard = self.entities.write().unwrap_or_else(PoisonError::into_inner);
+        if may_fail(&guard) {
+            // `f` works on a copy, so the store keeps its current contents if `f` rejects them
+            let updated = f(Entities::clone(&guard))?;
+            *guard = Arc::new(updated);
+        } else {
+            // Take the entities out of the store so they are only copied if a request still
+            // holds a snapshot of them, and update them in place
+            let current = std::mem::replace(&mut *guard, Arc::new(Entities::empty()));
+            *guard = Arc::new(f(Arc::unwrap_or_clone(current))?);
+        }
+        Ok(())
+    }
+}
+
+/// The parents listed in the JSON form of an entity
+fn parents_of(parents: Option<Value>) -> Result<Vec<EntityUid>, Report> {
+    match parents {
+        Some(Value::Array(parents)) => parents
+            .into_iter()
+            .map(|parent| EntityUid::from_json(parent).map_err(Report::from))
+            .collect(),
+        _ => Ok(Vec::new()),
+    }
+}
+
+/// Whether giving the entities in `parents` those parents could create a cycle in `current`.
+///
+/// The ancestors recorded in `current` for other entities may still lead through the old parents
+/// of replaced entities, so the answer can be a false positive, but never a false negative. Only
+/// the ancestors of entities reachable from the updated ones are looked at, not the whole store.
+fn may_create_cycle(current: &Entities, parents: &HashMap<EntityUid, Vec<EntityUid>>) -> bool {
+    parents.iter().any(|(uid, direct)| {
+        let mut seen = HashSet::new();
+        let mut pending: Vec<&EntityUid> = direct.iter().collect();
+        while let Some(next) = pending.pop() {
+            if next == uid {
+                return true;
+            }
+            if !seen.insert(next) {
+                continue;
+            }
+            if let Some(updated) = parents.get(next) {
+                pending.extend(updated);
+            } else if let Some(ancestors) = current.ancestors(next) {
+                // Recorded ancestors are already transitive, so only the updated entities among
+                // them need following further
+                for ancestor in ancestors {
+                    if ancestor == uid {
+                        return true;
+                    }
+                    if parents.contains_key(ancestor) {
+                        pending.push(ancestor);
+                    }
+                }
+            }
+        }
+        false
+    })
+}
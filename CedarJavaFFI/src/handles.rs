@@ -0,0 +1,82 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use std::{
+    collections::HashMap,
+    sync::{
+        atomic::{AtomicI64, Ordering},
+        Arc, PoisonError, RwLock,
+    },
+};
+
+use jni::sys::jlong;
+
+/// Registry of native objects that Java code refers to through opaque `long` handles.
+///
+/// Java only ever holds the handle, so no raw pointers cross the JNI boundary and a
+/// stale or already freed handle is reported as an error rather than being dereferenced.
+/// Lookups hand out an `Arc`, so freeing a handle while a request is using the object
+/// is safe: the object lives until the last in-flight request drops it.
+pub struct Registry<T> {
+    /// The next handle to give out. Handles start at 1 so that 0 is never valid.
+    next_handle: AtomicI64,
+    /// The live objects
+    entries: RwLock<HashMap<jlong, Arc<T>>>,
+}
+
+impl<T> Registry<T> {
+    /// Construct an empty registry
+    pub fn new() -> Self {
+        Self {
+            next_handle: AtomicI64::new(1),
+            entries: RwLock::new(HashMap::new()),
+        }
+    }
+
+    /// Store `value` and return the handle that refers to it
+    pub fn insert(&self, value: T) -> jlong {
+        let handle = self.next_handle.fetch_add(1, Ordering::Relaxed);
+        self.entries
+            .write()
+            .unwrap_or_else(PoisonError::into_inner)
+            .insert(handle, Arc::new(value));
+        handle
+    }
+
+    /// Get the object referred to by `handle`, if it is still live
+    pub fn get(&self, handle: jlong) -> Option<Arc<T>> {
+        self.entries
+            .read()
+            .unwrap_or_else(PoisonError::into_inner)
+            .get(&handle)
+            .cloned()
+    }
+
+    /// Release the registry's reference to `handle`. Returns `false` if the handle was not live.
+    pub fn remove(&self, handle: jlong) -> bool {
+        self.entries
+            .write()
+            .unwrap_or_else(PoisonError::into_inner)
+            .remove(&handle)
+            .is_some()
+    }
+}
+
+impl<T> Default for Registry<T> {
+    fn default() -> Self {
+        Self::new()
+    }
+}
@@ -16,110 +16,243 @@
 
 use cedar_policy::entities_errors::EntitiesError;
 #[cfg(feature = "partial-eval")]
-use cedar_policy::ffi::is_authorized_partial_json_str;
+use cedar_policy::ffi::is_authorized_partial;
 use cedar_policy::{
-    ffi::{is_authorized_json_str, validate_json_str},
+    ffi::{is_authorized, validate},
     Entities, EntityUid, Policy, PolicySet, Schema, Template,
 };
 use cedar_policy_formatter::{policies_str_to_pretty, Config};
 use jni::{
-    objects::{JClass, JObject, JString, JValueGen, JValueOwned},
-    sys::{jstring, jvalue},
+    objects::{JByteArray, JClass, JLongArray, JObject, JString, JValueGen, JValueOwned},
+    sys::{jboolean, jbyteArray, jint, jlong, jlongArray, jstring, jvalue},
     JNIEnv,
 };
 use jni_fn::jni_fn;
-use serde::{Deserialize, Serialize};
+use serde::{de::DeserializeOwned, Deserialize, Serialize};
 use serde_json::{from_str, Value};
-use std::{error::Error, str::FromStr, thread};
+use std::{borrow::Cow, error::Error, path::PathBuf, str::FromStr};
 
 use crate::objects::JFormatterConfig;
 use crate::{
     answer::Answer,
+    batch::batch_is_authorized,
+    bulk_parse,
+    cbor::{self, call_cedar_cbor},
+    entity_store::{entity_store, EntityStore, ENTITY_STORES},
     jset::Set,
     objects::{JEntityId, JEntityTypeName, JEntityUID, JPolicy, Object},
+    prepared::{
+        into_jni_error, prepared_is_authorized, prepared_schema, prepared_validate, PolicySetJson,
+        PreparedSchema, POLICY_SETS, SCHEMAS,
+    },
+    timing::Timings,
     utils::raise_npe,
+    workers::{self, ExecutionMode},
 };
 
 type Result<T> = std::result::Result<T, Box<dyn Error>>;
 
-const V0_AUTH_OP: &str = "AuthorizationOperation";
+pub(crate) const V0_AUTH_OP: &str = "AuthorizationOperation";
 #[cfg(feature = "partial-eval")]
-const V0_AUTH_PARTIAL_OP: &str = "AuthorizationPartialOperation";
-const V0_VALIDATE_OP: &str = "ValidateOperation";
-const V0_VALIDATE_ENTITIES: &str = "ValidateEntities";
-
-fn build_err_obj(env: &JNIEnv<'_>, err: &str) -> jstring {
-    env.new_string(
-        serde_json::to_string(&Answer::fail_bad_request(vec![format!(
-            "Failed {} Java string",
-            err
-        )]))
-        .expect("could not serialise response"),
-    )
-    .expect("error creating Java string")
-    .into_raw()
+pub(crate) const V0_AUTH_PARTIAL_OP: &str = "AuthorizationPartialOperation";
+pub(crate) const V0_VALIDATE_OP: &str = "ValidateOperation";
+pub(crate) const V0_VALIDATE_ENTITIES: &str = "ValidateEntities";
+pub(crate) const V0_PREPARED_AUTH_OP: &str = "PreparedAuthorizationOperation";
+pub(crate) const V0_PREPARED_VALIDATE_OP: &str = "PreparedValidateOperation";
+pub(crate) const V0_BATCH_AUTH_OP: &str = "BatchAuthorizationOperation";
+
+fn build_err_obj(env: &JNIEnv<'_>, err: &str) -> jbyteArray {
+    let answer = Answer::fail_bad_request(vec![format!("Failed {} Java string", err)]);
+    new_response(env, serde_json::to_string(&answer).expect("could not serialise response"))
+}
+
+/// Hand a response back to Java as UTF-8 bytes, which Jackson reads without first decoding them
+/// into a `String`
+fn new_response(env: &JNIEnv<'_>, response: String) -> jbyteArray {
+    match env.byte_array_from_slice(response.as_bytes()) {
+        Ok(r) => r.into_raw(),
+        _ => env
+            .byte_array_from_slice(
+                serde_json::to_string(&Answer::fail_internally(
+                    "Failed creating Java byte array".to_string(),
+                ))
+                .expect("could not serialise response")
+                .as_bytes(),
+            )
+            .expect("error creating Java byte array")
+            .into_raw(),
+    }
 }
 
-fn call_cedar_in_thread(call_str: String, input_str: String) -> String {
-    call_cedar(&call_str, &input_str)
+/// Report how long the native library spent decoding and answering a call, if Java asked for it by
+/// passing an array to fill in
+fn report_timings(env: &mut JNIEnv<'_>, j_timings: &JLongArray<'_>, timings: Timings) {
+    if !j_timings.is_null() {
+        // On failure an exception is pending, which Java sees in place of the answer
+        let _ = env.set_long_array_region(j_timings, 0, &timings.to_nanos());
+    }
 }
 
-/// JNI entry point for authorization and validation requests
+/// JNI entry point for authorization and validation requests. The request and response are JSON
+/// encoded as UTF-8, which avoids converting them to and from Java's modified UTF-8 strings.
+/// Unless `j_timings` is null, the time spent decoding and answering the call is written to it.
 #[jni_fn("com.cedarpolicy.BasicAuthorizationEngine")]
 pub fn callCedarJNI(
     mut env: JNIEnv<'_>,
     _class: JClass<'_>,
     j_call: JString<'_>,
-    j_input: JString<'_>,
-) -> jstring {
+    j_input: JByteArray<'_>,
+    j_timings: JLongArray<'_>,
+) -> jbyteArray {
     let j_call_str: String = match env.get_string(&j_call) {
         Ok(call_str) => call_str.into(),
         _ => return build_err_obj(&env, "getting"),
     };
 
-    let mut j_input_str: String = match env.get_string(&j_input) {
-        Ok(s) => s.into(),
-        Err(_) => return build_err_obj(&env, "parsing"),
+    let j_input_str = match env.convert_byte_array(&j_input).map(String::from_utf8) {
+        Ok(Ok(s)) => s,
+        _ => return build_err_obj(&env, "parsing"),
+    };
+
+    let result = workers::run(move || {
+        let mut timings = Timings::default();
+        let response = call_cedar(&j_call_str, &j_input_str, &mut timings);
+        (response, timings)
+    });
+    match result {
+        Ok((response, timings)) => {
+            report_timings(&mut env, &j_timings, timings);
+            new_response(&env, response)
+        }
+        Err(e) => new_response(&env, e),
+    }
+}
+
+/// JNI entry point for authorization and validation requests whose input and output are encoded
+/// as CBOR. Calls, answers and timings are as for `callCedarJNI`.
+#[jni_fn("com.cedarpolicy.BasicAuthorizationEngine")]
+pub fn callCedarCborJNI(
+    mut env: JNIEnv<'_>,
+    _class: JClass<'_>,
+    j_call: JString<'_>,
+    j_input: JByteArray<'_>,
+    j_timings: JLongArray<'_>,
+) -> jbyteArray {
+    let j_call_str: String = match env.get_string(&j_call) {
+        Ok(call_str) => call_str.into(),
+        _ => return build_cbor_err_obj(&env, "getting"),
     };
-    j_input_str.push(' ');
 
-    let handle = thread::spawn(move || call_cedar_in_thread(j_call_str, j_input_str));
+    let j_input_bytes = match env.convert_byte_array(&j_input) {
+        Ok(bytes) => bytes,
+        Err(_) => return build_cbor_err_obj(&env, "reading"),
+    };
 
-    let result = match handle.join() {
-        Ok(s) => s,
-        Err(e) => format!("Authorization thread failed {e:?}"),
+    // As for JSON, a failed call is answered with just its error message
+    let result = workers::run(move || {
+        let mut timings = Timings::default();
+        let response = call_cedar_cbor(&j_call_str, &j_input_bytes, &mut timings);
+        (response, timings)
+    });
+    let result = match result {
+        Ok((response, timings)) => {
+            report_timings(&mut env, &j_timings, timings);
+            response
+        }
+        Err(e) => cbor::encode(&e).expect("could not serialise response"),
     };
 
-    let res = env.new_string(result);
-    match res {
+    match env.byte_array_from_slice(&result) {
         Ok(r) => r.into_raw(),
-        _ => env
-            .new_string(
-                serde_json::to_string(&Answer::fail_internally(
-                    "Failed creating Java string".to_string(),
-                ))
-                .expect("could not serialise response"),
-            )
-            .expect("error creating Java string")
-            .into_raw(),
+        // An exception is pending, which Java sees in place of the answer
+        _ => JObject::null().into_raw(),
     }
 }
 
-/// JNI entry point to get the Cedar version
-#[jni_fn("com.cedarpolicy.BasicAuthorizationEngine")]
+fn build_cbor_err_obj(env: &JNIEnv<'_>, err: &str) -> jbyteArray {
+    let answer = Answer::fail_bad_request(vec![format!("Failed {} Java input", err)]);
+    let bytes = cbor::encode(&answer).expect("could not serialise response");
+    match env.byte_array_from_slice(&bytes) {
+        Ok(r) => r.into_raw(),
+        _ => JObject::null().into_raw(),
+    }
+}
+
+/// JNI entry point to get the Cedar version, checked once when the library is loaded
+#[jni_fn("com.cedarpolicy.loader.LibraryLoader")]
 pub fn getCedarJNIVersion(env: JNIEnv<'_>) -> jstring {
     env.new_string("4.0")
         .expect("error creating Java string")
         .into_raw()
 }
 
-pub(crate) fn call_cedar(call: &str, input: &str) -> String {
+/// JNI entry point to select how calls are executed. A pool size or stack size of 0 keeps the
+/// current setting.
+#[jni_fn("com.cedarpolicy.BasicAuthorizationEngine")]
+pub fn configureExecutionJni<'a>(
+    mut env: JNIEnv<'a>,
+    _: JClass,
+    mode_jstr: JString<'a>,
+    pool_size: jint,
+    stack_size: jlong,
+) {
+    if let Err(e) = configure_execution_internal(&mut env, mode_jstr, pool_size, stack_size) {
+        jni_failed(&mut env, e.as_ref());
+    }
+}
+
+fn configure_execution_internal<'a>(
+    env: &mut JNIEnv<'a>,
+    mode_jstr: JString<'a>,
+    pool_size: jint,
+    stack_size: jlong,
+) -> Result<()> {
+    if mode_jstr.is_null() {
+        raise_npe(env)?;
+        Ok(())
+    } else {
+        let mode: ExecutionMode = String::from(env.get_string(&mode_jstr)?).parse()?;
+        workers::configure(mode, usize::try_from(pool_size)?, usize::try_from(stack_size)?);
+        Ok(())
+    }
+}
+
+/// JNI entry point to get the current execution mode
+#[jni_fn("com.cedarpolicy.BasicAuthorizationEngine")]
+pub fn getExecutionModeJni(env: JNIEnv<'_>, _class: JClass<'_>) -> jstring {
+    env.new_string(workers::mode().name())
+        .expect("error creating Java string")
+        .into_raw()
+}
+
+/// Decode a JSON call, answer it with `op` and encode the answer as JSON
+fn answer_json<C, A>(
+    input: &str,
+    timings: &mut Timings,
+    op: impl FnOnce(C) -> serde_json::Result<A>,
+) -> serde_json::Result<String>
+where
+    C: DeserializeOwned,
+    A: Serialize,
+{
+    let answer = timings.record(|| from_str::<C>(input), op)?;
+    serde_json::to_string(&answer?)
+}
+
+/// Handle a call whose input and output are JSON. How long decoding and answering the call take
+/// is recorded in `timings`.
+pub(crate) fn call_cedar(call: &str, input: &str, timings: &mut Timings) -> String {
     let result = match call {
-        V0_AUTH_OP => is_authorized_json_str(input),
+        V0_AUTH_OP => answer_json(input, timings, |call| Ok(is_authorized(call))),
         #[cfg(feature = "partial-eval")]
-        V0_AUTH_PARTIAL_OP => is_authorized_partial_json_str(input),
-        V0_VALIDATE_OP => validate_json_str(input),
-        V0_VALIDATE_ENTITIES => json_validate_entities(&input),
+        V0_AUTH_PARTIAL_OP => answer_json(input, timings, |call| Ok(is_authorized_partial(call))),
+        V0_VALIDATE_OP => answer_json(input, timings, |call| Ok(validate(call))),
+        V0_VALIDATE_ENTITIES => {
+            answer_json(input, timings, |call| Ok(validate_entity_call_answer(call)))
+        }
+        V0_PREPARED_AUTH_OP => answer_json(input, timings, |call| Ok(prepared_is_authorized(call))),
+        V0_PREPARED_VALIDATE_OP => answer_json(input, timings, |call| Ok(prepared_validate(call))),
+        V0_BATCH_AUTH_OP => answer_json(input, timings, batch_is_authorized),
         _ => {
             let ires = Answer::fail_internally(format!("unsupported operation: {}", call));
             serde_json::to_string(&ires)
@@ -131,8 +264,11 @@ pub(crate) fn call_cedar(call: &str, input: &str) -> String {
 }
 
 #[derive(Serialize, Deserialize)]
-struct ValidateEntityCall {
+pub(crate) struct ValidateEntityCall {
+    #[serde(default)]
     schema: Value,
+    #[serde(default, rename = "preparedSchema")]
+    prepared_schema: Option<jlong>,
     entities: Value,
 }
 
@@ -145,10 +281,24 @@ pub fn json_validate_entities(input: &str) -> serde_json::Result<String> {
 /// returns unit value () which is null value when serialized to json.
 pub fn validate_entities(input: &str) -> serde_json::Result<Answer> {
     let validate_entity_call = from_str::<ValidateEntityCall>(&input)?;
-    match Schema::from_json_value(validate_entity_call.schema) {
-        Err(e) => Ok(Answer::fail_bad_request(vec![e.to_string()])),
+    Ok(validate_entity_call_answer(validate_entity_call))
+}
+
+/// Validate entities against a schema, as described by a `ValidateEntityCall`
+pub(crate) fn validate_entity_call_answer(validate_entity_call: ValidateEntityCall) -> Answer {
+    let prepared = match validate_entity_call.prepared_schema.map(prepared_schema) {
+        Some(Err(e)) => return Answer::fail_bad_request(vec![e.to_string()]),
+        Some(Ok(prepared)) => Some(prepared),
+        None => None,
+    };
+    let schema = match prepared.as_deref() {
+        Some(prepared) => Ok(Cow::Borrowed(prepared.schema())),
+        None => Schema::from_json_value(validate_entity_call.schema).map(Cow::Owned),
+    };
+    match schema {
+        Err(e) => Answer::fail_bad_request(vec![e.to_string()]),
         Ok(schema) => {
-            match Entities::from_json_value(validate_entity_call.entities, Some(&schema)) {
+            match Entities::from_json_value(validate_entity_call.entities, Some(&*schema)) {
                 Err(error) => {
                     let err_message = match error {
                         EntitiesError::Serialization(err) => err.to_string(),
@@ -157,11 +307,11 @@ pub fn validate_entities(input: &str) -> serde_json::Result<Answer> {
                         EntitiesError::TransitiveClosureError(err) => err.to_string(),
                         EntitiesError::InvalidEntity(err) => err.to_string(),
                     };
-                    Ok(Answer::fail_bad_request(vec![err_message]))
+                    Answer::fail_bad_request(vec![err_message])
                 }
-                Ok(_entities) => Ok(Answer::Success {
+                Ok(_entities) => Answer::Success {
                     result: "null".to_string(),
-                }),
+                },
             }
         }
     }
@@ -238,6 +388,162 @@ fn parse_cedar_schema_internal<'a>(
     }
 }
 
+/// JNI entry point to parse a schema once and keep it resident on the native side.
+/// Returns the handle of the prepared schema.
+#[jni_fn("com.cedarpolicy.model.schema.PreparedSchema")]
+pub fn prepareSchemaJni<'a>(mut env: JNIEnv<'a>, _: JClass, schema_jstr: JString<'a>) -> jlong {
+    match prepare_schema_internal(&mut env, schema_jstr) {
+        Ok(handle) => handle,
+        Err(e) => {
+            jni_failed(&mut env, e.as_ref());
+            0
+        }
+    }
+}
+
+fn prepare_schema_internal<'a>(env: &mut JNIEnv<'a>, schema_jstr: JString<'a>) -> Result<jlong> {
+    if schema_jstr.is_null() {
+        raise_npe(env)?;
+        Ok(0)
+    } else {
+        let schema_string = String::from(env.get_string(&schema_jstr)?);
+        let schema_json: Value = serde_json::from_str(&schema_string)?;
+        let schema = PreparedSchema::parse(schema_json).map_err(into_jni_error)?;
+        Ok(SCHEMAS.insert(schema))
+    }
+}
+
+/// JNI entry point to release a prepared schema. Returns false if the handle was not live.
+#[jni_fn("com.cedarpolicy.model.schema.PreparedSchema")]
+pub fn freeSchemaJni(_env: JNIEnv<'_>, _: JClass, handle: jlong) -> jboolean {
+    SCHEMAS.remove(handle).into()
+}
+
+/// JNI entry point to build an entity store on the native side. A schema handle of 0 means the
+/// entities are not validated against a schema. Returns the handle of the entity store.
+#[jni_fn("com.cedarpolicy.model.entity.EntityStore")]
+pub fn createEntityStoreJni<'a>(
+    mut env: JNIEnv<'a>,
+    _: JClass,
+    entities_jstr: JString<'a>,
+    schema_handle: jlong,
+) -> jlong {
+    match create_entity_store_internal(&mut env, entities_jstr, schema_handle) {
+        Ok(handle) => handle,
+        Err(e) => {
+            jni_failed(&mut env, e.as_ref());
+            0
+        }
+    }
+}
+
+fn create_entity_store_internal<'a>(
+    env: &mut JNIEnv<'a>,
+    entities_jstr: JString<'a>,
+    schema_handle: jlong,
+) -> Result<jlong> {
+    if entities_jstr.is_null() {
+        raise_npe(env)?;
+        Ok(0)
+    } else {
+        let entities_string = String::from(env.get_string(&entities_jstr)?);
+        let entities_json: Value = serde_json::from_str(&entities_string)?;
+        let schema = match schema_handle {
+            0 => None,
+            handle => Some(prepared_schema(handle).map_err(into_jni_error)?),
+        };
+        let store = EntityStore::new(entities_json, schema).map_err(into_jni_error)?;
+        Ok(ENTITY_STORES.insert(store))
+    }
+}
+
+/// JNI entry point to build an entity store from a file of entities in Cedar's JSON format.
+/// Returns the handle of the store.
+#[jni_fn("com.cedarpolicy.model.entity.EntityStore")]
+pub fn loadEntityStoreJni<'a>(
+    mut env: JNIEnv<'a>,
+    _: JClass,
+    path_jstr: JString<'a>,
+    schema_handle: jlong,
+) -> jlong {
+    match load_entity_store_internal(&mut env, path_jstr, schema_handle) {
+        Ok(handle) => handle,
+        Err(e) => {
+            jni_failed(&mut env, e.as_ref());
+            0
+        }
+    }
+}
+
+fn load_entity_store_internal<'a>(
+    env: &mut JNIEnv<'a>,
+    path_jstr: JString<'a>,
+    schema_handle: jlong,
+) -> Result<jlong> {
+    if path_jstr.is_null() {
+        raise_npe(env)?;
+        return Ok(0);
+    }
+    let path = PathBuf::from(String::from(env.get_string(&path_jstr)?));
+    let schema = match schema_handle {
+        0 => None,
+        handle => Some(prepared_schema(handle).map_err(into_jni_error)?),
+    };
+    let store = EntityStore::from_file(&path, schema).map_err(into_jni_error)?;
+    Ok(ENTITY_STORES.insert(store))
+}
+
+/// JNI entry point to insert or replace entities in an entity store
+#[jni_fn("com.cedarpolicy.model.entity.EntityStore")]
+pub fn upsertEntitiesJni<'a>(
+    mut env: JNIEnv<'a>,
+    _: JClass,
+    handle: jlong,
+    entities_jstr: JString<'a>,
+) {
+    let result = update_entity_store_internal(&mut env, handle, entities_jstr, EntityStore::upsert);
+    if let Err(e) = result {
+        jni_failed(&mut env, e.as_ref());
+    }
+}
+
+/// JNI entry point to remove entities from an entity store
+#[jni_fn("com.cedarpolicy.model.entity.EntityStore")]
+pub fn removeEntitiesJni<'a>(
+    mut env: JNIEnv<'a>,
+    _: JClass,
+    handle: jlong,
+    uids_jstr: JString<'a>,
+) {
+    let result = update_entity_store_internal(&mut env, handle, uids_jstr, EntityStore::remove);
+    if let Err(e) = result {
+        jni_failed(&mut env, e.as_ref());
+    }
+}
+
+fn update_entity_store_internal<'a>(
+    env: &mut JNIEnv<'a>,
+    handle: jlong,
+    input_jstr: JString<'a>,
+    update: impl FnOnce(&EntityStore, Value) -> std::result::Result<(), miette::Report>,
+) -> Result<()> {
+    if input_jstr.is_null() {
+        raise_npe(env)?;
+        Ok(())
+    } else {
+        let input_string = String::from(env.get_string(&input_jstr)?);
+        let input_json: Value = serde_json::from_str(&input_string)?;
+        let store = entity_store(handle).map_err(into_jni_error)?;
+        update(&*store, input_json).map_err(into_jni_error)
+    }
+}
+
+/// JNI entry point to release an entity store. Returns false if the handle was not live.
+#[jni_fn("com.cedarpolicy.model.entity.EntityStore")]
+pub fn freeEntityStoreJni(_env: JNIEnv<'_>, _: JClass, handle: jlong) -> jboolean {
+    ENTITY_STORES.remove(handle).into()
+}
+
 #[jni_fn("com.cedarpolicy.model.policy.Policy")]
 pub fn parsePolicyJni<'a>(mut env: JNIEnv<'a>, _: JClass, policy_jstr: JString<'a>) -> jvalue {
     match parse_policy_internal(&mut env, policy_jstr) {
@@ -320,6 +626,38 @@ fn parse_policies_internal<'a>(
     }
 }
 
+/// JNI entry point to parse a policy file on several threads. The policies are returned in a
+/// single array, in the layout of [`bulk_parse::encode`].
+#[jni_fn("com.cedarpolicy.model.policy.PolicySet")]
+pub fn parsePoliciesParallelJni<'a>(
+    mut env: JNIEnv<'a>,
+    _: JClass,
+    policies: JByteArray<'a>,
+) -> jbyteArray {
+    match parse_policies_parallel_internal(&mut env, policies) {
+        Ok(parsed) => parsed,
+        Err(e) => {
+            jni_failed(&mut env, e.as_ref());
+            JObject::null().into_raw()
+        }
+    }
+}
+
+fn parse_policies_parallel_internal<'a>(
+    env: &mut JNIEnv<'a>,
+    policies: JByteArray<'a>,
+) -> Result<jbyteArray> {
+    if policies.is_null() {
+        raise_npe(env)?;
+        return Ok(JObject::null().into_raw());
+    }
+    let policies_string = String::from_utf8(env.convert_byte_array(&policies)?)?;
+    let parsed = bulk_parse::parse_policies(&policies_string)?;
+    Ok(env
+        .byte_array_from_slice(&bulk_parse::encode(&parsed))?
+        .into_raw())
+}
+
 fn create_java_policy_set<'a>(
     env: &mut JNIEnv<'a>,
     policies_java_hash_set: &JObject<'a>,
@@ -336,6 +674,77 @@ fn create_java_policy_set<'a>(
     .expect("Failed to create new PolicySet object")
 }
 
+/// JNI entry point to parse a policy set once and keep it resident on the native side.
+/// Returns the handle of the prepared policy set.
+#[jni_fn("com.cedarpolicy.model.policy.PreparedPolicySet")]
+pub fn preparePolicySetJni<'a>(
+    mut env: JNIEnv<'a>,
+    _: JClass,
+    policy_set_jstr: JString<'a>,
+) -> jlong {
+    match prepare_policy_set_internal(&mut env, policy_set_jstr) {
+        Ok(handle) => handle,
+        Err(e) => {
+            jni_failed(&mut env, e.as_ref());
+            0
+        }
+    }
+}
+
+fn prepare_policy_set_internal<'a>(
+    env: &mut JNIEnv<'a>,
+    policy_set_jstr: JString<'a>,
+) -> Result<jlong> {
+    if policy_set_jstr.is_null() {
+        raise_npe(env)?;
+        Ok(0)
+    } else {
+        let policy_set_string = String::from(env.get_string(&policy_set_jstr)?);
+        let policy_set_json: PolicySetJson = serde_json::from_str(&policy_set_string)?;
+        let policy_set = policy_set_json.parse().map_err(into_jni_error)?;
+        Ok(POLICY_SETS.insert(policy_set))
+    }
+}
+
+/// JNI entry point to parse a file of policies and templates once and keep it resident on the
+/// native side. Returns the handle of the prepared policy set followed by the number of static
+/// policies and of templates.
+#[jni_fn("com.cedarpolicy.model.policy.PreparedPolicySet")]
+pub fn loadPolicySetJni<'a>(mut env: JNIEnv<'a>, _: JClass, path_jstr: JString<'a>) -> jlongArray {
+    match load_policy_set_internal(&mut env, path_jstr) {
+        Ok(loaded) => loaded,
+        Err(e) => {
+            jni_failed(&mut env, e.as_ref());
+            JObject::null().into_raw()
+        }
+    }
+}
+
+fn load_policy_set_internal<'a>(
+    env: &mut JNIEnv<'a>,
+    path_jstr: JString<'a>,
+) -> Result<jlongArray> {
+    if path_jstr.is_null() {
+        raise_npe(env)?;
+        return Ok(JObject::null().into_raw());
+    }
+    let path = PathBuf::from(String::from(env.get_string(&path_jstr)?));
+    let policies_string = std::fs::read_to_string(&path)
+        .map_err(|e| format!("could not read policy file {}: {e}", path.display()))?;
+    let policy_set = PolicySet::from_str(&policies_string)?;
+    let counts = [policy_set.policies().count(), policy_set.templates().count()];
+    let handle = POLICY_SETS.insert(policy_set);
+    let loaded = env.new_long_array(3)?;
+    env.set_long_array_region(&loaded, 0, &[handle, counts[0] as jlong, counts[1] as jlong])?;
+    Ok(loaded.into_raw())
+}
+
+/// JNI entry point to release a prepared policy set. Returns false if the handle was not live.
+#[jni_fn("com.cedarpolicy.model.policy.PreparedPolicySet")]
+pub fn freePolicySetJni(_env: JNIEnv<'_>, _: JClass, handle: jlong) -> jboolean {
+    POLICY_SETS.remove(handle).into()
+}
+
 #[jni_fn("com.cedarpolicy.model.policy.Policy")]
 pub fn parsePolicyTemplateJni<'a>(
     mut env: JNIEnv<'a>,
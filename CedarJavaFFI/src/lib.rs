@@ -16,11 +16,19 @@
 
 #![forbid(unsafe_code)]
 mod answer;
+mod batch;
+mod bulk_parse;
+mod cbor;
+mod entity_store;
+mod handles;
 mod interface;
 mod jlist;
 mod jset;
 mod objects;
+mod prepared;
 mod tests;
+mod timing;
 mod utils;
+mod workers;
 
 pub use interface::*;
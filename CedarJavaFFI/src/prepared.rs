@@ -0,0 +1,351 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! Authorization against objects that have been parsed once and are kept resident
+//! on the native side, referenced from Java by handle.
+
+use std::{
+    collections::HashMap,
+    error::Error,
+    sync::{Arc, LazyLock},
+};
+
+use cedar_policy::{
+    ffi::{AuthorizationAnswer, DetailedError},
+    Authorizer, Context, Entities, EntityUid, Policy, PolicyId, PolicySet, Request, Response,
+    Schema, SlotId, Template, ValidationMode, Validator,
+};
+use jni::sys::jlong;
+use miette::{miette, Report};
+use serde::Deserialize;
+use serde_json::{json, Value};
+
+use crate::{entity_store::entity_store, handles::Registry};
+
+/// Policy sets prepared by `com.cedarpolicy.model.policy.PreparedPolicySet`
+pub static POLICY_SETS: LazyLock<Registry<PolicySet>> = LazyLock::new(Registry::new);
+
+/// Schemas prepared by `com.cedarpolicy.model.schema.PreparedSchema`
+pub static SCHEMAS: LazyLock<Registry<PreparedSchema>> = LazyLock::new(Registry::new);
+
+/// A parsed schema together with the validator built from it
+pub struct PreparedSchema {
+    schema: Schema,
+    validator: Validator,
+}
+
+impl PreparedSchema {
+    /// Parse a schema in either the JSON format (an object) or the Cedar format (a string)
+    pub fn parse(schema: Value) -> Result<Self, Report> {
+        let schema = parse_schema(schema)?;
+        Ok(Self {
+            validator: Validator::new(schema.clone()),
+            schema,
+        })
+    }
+
+    /// The parsed schema
+    pub fn schema(&self) -> &Schema {
+        &self.schema
+    }
+}
+
+/// Look up a prepared schema by handle
+pub fn prepared_schema(handle: jlong) -> Result<Arc<PreparedSchema>, Report> {
+    SCHEMAS
+        .get(handle)
+        .ok_or_else(|| miette!("no prepared schema with handle {handle}"))
+}
+
+/// Look up a prepared policy set by handle
+fn prepared_policy_set(handle: jlong) -> Result<Arc<PolicySet>, Report> {
+    POLICY_SETS
+        .get(handle)
+        .ok_or_else(|| miette!("no prepared policy set with handle {handle}"))
+}
+
+/// Policies given either by the handle of a prepared policy set or inline
+#[derive(Debug, Deserialize)]
+#[serde(untagged)]
+pub enum PolicySetRef {
+    Handle(jlong),
+    Inline(PolicySetJson),
+}
+
+impl PolicySetRef {
+    fn resolve(self) -> Result<Arc<PolicySet>, Report> {
+        match self {
+            Self::Handle(handle) => prepared_policy_set(handle),
+            Self::Inline(policy_set) => Ok(Arc::new(policy_set.parse()?)),
+        }
+    }
+}
+
+/// Entities given either by the handle of an entity store or inline
+#[derive(Debug, Deserialize)]
+#[serde(untagged)]
+pub enum EntitiesRef {
+    Handle(jlong),
+    Inline(Value),
+}
+
+impl EntitiesRef {
+    /// Inline entities are parsed with the schema of the request, while the entities in a
+    /// store were already parsed with the schema of the store
+    fn resolve(self, schema: Option<&Schema>) -> Result<Arc<Entities>, Report> {
+        match self {
+            Self::Handle(handle) => Ok(entity_store(handle)?.snapshot()),
+            Self::Inline(entities) => Ok(Arc::new(Entities::from_json_value(entities, schema)?)),
+        }
+    }
+}
+
+/// Resolve the schema of a request, preferring a prepared schema over an inline one
+fn resolve_schema(
+    schema: Option<Value>,
+    prepared: Option<jlong>,
+) -> Result<Option<Arc<PreparedSchema>>, Report> {
+    match (prepared, schema) {
+        (Some(handle), _) => prepared_schema(handle).map(Some),
+        (None, Some(Value::Null)) | (None, None) => Ok(None),
+        (None, Some(schema)) => PreparedSchema::parse(schema).map(|s| Some(Arc::new(s))),
+    }
+}
+
+/// A policy set in the JSON format produced by `PolicySetSerializer`
+#[derive(Debug, Deserialize)]
+#[serde(rename_all = "camelCase")]
+pub struct PolicySetJson {
+    #[serde(default)]
+    static_policies: HashMap<String, String>,
+    #[serde(default)]
+    templates: HashMap<String, String>,
+    #[serde(default)]
+    template_links: Vec<TemplateLinkJson>,
+}
+
+/// A template link in the JSON format produced by `TemplateLinkSerializer`
+#[derive(Debug, Deserialize)]
+#[serde(rename_all = "camelCase")]
+struct TemplateLinkJson {
+    template_id: String,
+    new_id: String,
+    values: HashMap<String, Value>,
+}
+
+impl PolicySetJson {
+    /// Parse every policy, template and link into a Rust `PolicySet`
+    pub fn parse(self) -> Result<PolicySet, Report> {
+        let mut policy_set = PolicySet::new();
+        for (id, src) in self.static_policies {
+            policy_set.add(Policy::parse(Some(PolicyId::new(id)), src)?)?;
+        }
+        for (id, src) in self.templates {
+            policy_set.add_template(Template::parse(Some(PolicyId::new(id)), src)?)?;
+        }
+        for link in self.template_links {
+            let mut values = HashMap::new();
+            for (slot, euid) in link.values {
+                values.insert(parse_slot(&slot)?, EntityUid::from_json(euid)?);
+            }
+            policy_set.link(
+                PolicyId::new(link.template_id),
+                PolicyId::new(link.new_id),
+                values,
+            )?;
+        }
+        Ok(policy_set)
+    }
+}
+
+fn parse_slot(slot: &str) -> Result<SlotId, Report> {
+    match slot {
+        "?principal" => Ok(SlotId::principal()),
+        "?resource" => Ok(SlotId::resource()),
+        _ => Err(miette!("invalid template slot `{slot}`")),
+    }
+}
+
+/// Parse a schema in either the JSON format (an object) or the Cedar format (a string)
+pub fn parse_schema(schema: Value) -> Result<Schema, Report> {
+    match schema {
+        Value::String(text) => Ok(Schema::from_cedarschema_str(&text)?.0),
+        json => Ok(Schema::from_json_value(json)?),
+    }
+}
+
+/// Convert an error for reporting as a Java `InternalException`
+pub fn into_jni_error(report: Report) -> Box<dyn Error> {
+    Box::<dyn Error + Send + Sync>::from(report)
+}
+
+/// The principal, action, resource and context of an authorization request
+#[derive(Debug, Deserialize)]
+#[serde(rename_all = "camelCase")]
+pub struct RequestJson {
+    principal: Value,
+    action: Value,
+    resource: Value,
+    #[serde(default)]
+    context: Option<Value>,
+    #[serde(default = "constant_true")]
+    validate_request: bool,
+}
+
+fn constant_true() -> bool {
+    true
+}
+
+impl RequestJson {
+    /// Parse the request, using the schema (if any) for the context and for request validation
+    pub fn parse(self, schema: Option<&Schema>) -> Result<Request, Report> {
+        let principal = EntityUid::from_json(self.principal)?;
+        let action = EntityUid::from_json(self.action)?;
+        let resource = EntityUid::from_json(self.resource)?;
+        let context = match self.context {
+            Some(json) => Context::from_json_value(json, schema.map(|s| (s, &action)))?,
+            None => Context::empty(),
+        };
+        Ok(Request::new(
+            principal,
+            action,
+            resource,
+            context,
+            schema.filter(|_| self.validate_request),
+        )?)
+    }
+}
+
+/// The policies, entities and schema shared by one or more authorization requests
+#[derive(Debug, Deserialize)]
+#[serde(rename_all = "camelCase")]
+pub struct SharedInputs {
+    #[serde(default)]
+    schema: Option<Value>,
+    #[serde(default)]
+    prepared_schema: Option<jlong>,
+    policies: PolicySetRef,
+    entities: EntitiesRef,
+}
+
+/// Parsed (or looked up) policies, entities and schema
+pub struct ResolvedInputs {
+    pub schema: Option<Arc<PreparedSchema>>,
+    pub policies: Arc<PolicySet>,
+    pub entities: Arc<Entities>,
+}
+
+impl SharedInputs {
+    /// Parse the inline inputs and look up the prepared ones
+    pub fn resolve(self) -> Result<ResolvedInputs, Report> {
+        let policies = self.policies.resolve()?;
+        let schema = resolve_schema(self.schema, self.prepared_schema)?;
+        let entities = self.entities.resolve(schema.as_deref().map(PreparedSchema::schema))?;
+        Ok(ResolvedInputs {
+            schema,
+            policies,
+            entities,
+        })
+    }
+}
+
+impl ResolvedInputs {
+    /// Answer a single request against these inputs
+    pub fn is_authorized(
+        &self,
+        authorizer: &Authorizer,
+        request: RequestJson,
+    ) -> Result<Response, Report> {
+        let request = request.parse(self.schema.as_deref().map(PreparedSchema::schema))?;
+        Ok(authorizer.is_authorized(&request, &self.policies, &self.entities))
+    }
+}
+
+/// Convert the outcome of a request to the answer format used by `is_authorized_json_str`
+pub fn authorization_answer(result: Result<Response, Report>) -> AuthorizationAnswer {
+    match result {
+        Ok(response) => AuthorizationAnswer::Success {
+            response: response.into(),
+            warnings: vec![],
+        },
+        Err(e) => AuthorizationAnswer::Failure {
+            errors: vec![DetailedError::from(e)],
+            warnings: vec![],
+        },
+    }
+}
+
+/// An authorization request whose policies, schema or entities refer to prepared objects
+#[derive(Debug, Deserialize)]
+pub struct PreparedAuthorizationCall {
+    #[serde(flatten)]
+    request: RequestJson,
+    #[serde(flatten)]
+    inputs: SharedInputs,
+}
+
+/// Answer an authorization request against prepared objects. The answer has the same
+/// format as `is_authorized_json_str`, so Java decodes it as an `AuthorizationResponse`.
+pub fn prepared_is_authorized(call: PreparedAuthorizationCall) -> AuthorizationAnswer {
+    let result = call
+        .inputs
+        .resolve()
+        .and_then(|inputs| inputs.is_authorized(&Authorizer::new(), call.request));
+    authorization_answer(result)
+}
+
+/// A validation request against a prepared schema
+#[derive(Debug, Deserialize)]
+#[serde(rename_all = "camelCase")]
+pub struct PreparedValidationCall {
+    prepared_schema: jlong,
+    policies: PolicySetRef,
+}
+
+fn validation_error_json(policy_id: &PolicyId, error: DetailedError) -> Value {
+    json!({ "policyId": policy_id.to_string(), "error": error })
+}
+
+/// Validate policies against a prepared schema. The answer has the same format as
+/// `validate_json_str`, so Java decodes it as a `ValidationResponse`.
+pub fn prepared_validate(call: PreparedValidationCall) -> Value {
+    let resolved = prepared_schema(call.prepared_schema)
+        .and_then(|schema| call.policies.resolve().map(|policies| (schema, policies)));
+    match resolved {
+        Ok((schema, policies)) => {
+            let result = schema.validator.validate(&policies, ValidationMode::default());
+            let validation_errors: Vec<Value> = result
+                .validation_errors()
+                .map(|e| validation_error_json(e.policy_id(), DetailedError::from(e)))
+                .collect();
+            let validation_warnings: Vec<Value> = result
+                .validation_warnings()
+                .map(|w| validation_error_json(w.policy_id(), DetailedError::from(w)))
+                .collect();
+            json!({
+                "type": "success",
+                "validationErrors": validation_errors,
+                "validationWarnings": validation_warnings,
+                "otherWarnings": []
+            })
+        }
+        Err(e) => json!({
+            "type": "failure",
+            "errors": [DetailedError::from(e)],
+            "warnings": []
+        }),
+    }
+}
@@ -17,12 +17,17 @@
 #![cfg(test)]
 
 use crate::answer::Answer;
-use crate::call_cedar;
+use crate::timing::Timings;
 #[cfg(feature = "partial-eval")]
 use cedar_policy::ffi::PartialAuthorizationAnswer;
 use cedar_policy::ffi::{AuthorizationAnswer, ValidationAnswer};
 use cool_asserts::assert_matches;
 
+/// Make a JSON call without looking at how long it took
+fn call_cedar(call: &str, input: &str) -> String {
+    crate::call_cedar(call, input, &mut Timings::default())
+}
+
 #[track_caller]
 fn assert_failure(result: &str) {
     let result: Answer = serde_json::from_str(result).unwrap();
@@ -180,6 +185,321 @@ mod authorization_tests {
     }
 }
 
+mod prepared_authorization_tests {
+    use super::*;
+    use crate::entity_store::{entity_store, EntityStore, ENTITY_STORES};
+    use crate::prepared::{PolicySetJson, PreparedSchema, POLICY_SETS, SCHEMAS};
+    use cedar_policy::{Decision, EntityUid};
+    use serde_json::json;
+    use std::{collections::HashSet, str::FromStr};
+
+    fn prepare_schema() -> i64 {
+        let schema = PreparedSchema::parse(json!(
+            "entity User; entity Photo; action view appliesTo { principal: User, resource: Photo };"
+        ));
+        SCHEMAS.insert(schema.unwrap())
+    }
+
+    fn prepare(policy_set: &str) -> i64 {
+        let policy_set: PolicySetJson = serde_json::from_str(policy_set).unwrap();
+        POLICY_SETS.insert(policy_set.parse().unwrap())
+    }
+
+    fn authorization_call(handle: i64) -> String {
+        format!(
+            r#"
+    {{
+        "principal" : {{ "type" : "User", "id" : "alice" }},
+        "action" : {{ "type" : "Photo", "id" : "view" }},
+        "resource" : {{ "type" : "Photo", "id" : "door" }},
+        "context" : {{}},
+        "policies" : {handle},
+        "entities" : []
+    }}
+            "#
+        )
+    }
+
+    #[test]
+    fn prepared_template_authorization_call_succeeds() {
+        let handle = prepare(
+            r#"
+        {
+            "staticPolicies" : {},
+            "templates" : {
+                "ID0": "permit(principal == ?principal, action, resource);"
+            },
+            "templateLinks" : [
+                {
+                    "templateId" : "ID0",
+                    "newId" : "ID0_User_alice",
+                    "values" : { "?principal": { "type" : "User", "id" : "alice" } }
+                }
+            ]
+        }
+            "#,
+        );
+        let result = call_cedar("PreparedAuthorizationOperation", &authorization_call(handle));
+        let result: AuthorizationAnswer = serde_json::from_str(&result).unwrap();
+        assert_matches!(result, AuthorizationAnswer::Success { response, .. } => {
+            assert_eq!(response.decision(), Decision::Allow);
+        });
+        assert!(POLICY_SETS.remove(handle));
+    }
+
+    #[test]
+    fn freed_policy_set_call_fails() {
+        let handle = prepare(
+            r#"{ "staticPolicies" : { "001": "permit(principal, action, resource);" } }"#,
+        );
+        assert!(POLICY_SETS.remove(handle));
+        assert!(!POLICY_SETS.remove(handle));
+        let result = call_cedar("PreparedAuthorizationOperation", &authorization_call(handle));
+        assert_authorization_failure(&result);
+    }
+
+    #[test]
+    fn prepared_schema_validation_call_succeeds() {
+        let schema = prepare_schema();
+        let result = call_cedar(
+            "PreparedValidateOperation",
+            &json!({
+                "preparedSchema": schema,
+                "policies": {
+                    "staticPolicies": {
+                        "p0": "permit(principal == User::\"alice\", action == Action::\"view\", resource);"
+                    }
+                }
+            })
+            .to_string(),
+        );
+        let result: ValidationAnswer = serde_json::from_str(&result).unwrap();
+        assert_matches!(result, ValidationAnswer::Success { validation_errors, .. } => {
+            assert!(validation_errors.is_empty());
+        });
+
+        let result = call_cedar(
+            "PreparedValidateOperation",
+            &json!({
+                "preparedSchema": schema,
+                "policies": {
+                    "staticPolicies": { "p0": "permit(principal == Admin::\"alice\", action, resource);" }
+                }
+            })
+            .to_string(),
+        );
+        let result: ValidationAnswer = serde_json::from_str(&result).unwrap();
+        assert_matches!(result, ValidationAnswer::Success { validation_errors, .. } => {
+            assert!(!validation_errors.is_empty());
+        });
+        assert!(SCHEMAS.remove(schema));
+    }
+
+    #[test]
+    fn prepared_schema_entity_validation_call_succeeds() {
+        let schema = prepare_schema();
+        let result = call_cedar(
+            "ValidateEntities",
+            &json!({
+                "preparedSchema": schema,
+                "entities": [{ "uid": { "type": "User", "id": "alice" }, "attrs": {}, "parents": [] }]
+            })
+            .to_string(),
+        );
+        assert_success(&result);
+
+        let result = call_cedar(
+            "ValidateEntities",
+            &json!({
+                "preparedSchema": schema,
+                "entities": [{ "uid": { "type": "Admin", "id": "alice" }, "attrs": {}, "parents": [] }]
+            })
+            .to_string(),
+        );
+        assert_failure(&result);
+        assert!(SCHEMAS.remove(schema));
+    }
+
+    #[test]
+    fn prepared_schema_authorization_call_succeeds() {
+        let schema = prepare_schema();
+        let result = call_cedar(
+            "PreparedAuthorizationOperation",
+            &json!({
+                "principal": { "type": "User", "id": "alice" },
+                "action": { "type": "Action", "id": "view" },
+                "resource": { "type": "Photo", "id": "door" },
+                "context": {},
+                "preparedSchema": schema,
+                "validateRequest": true,
+                "policies": { "staticPolicies": { "p0": "permit(principal, action, resource);" } },
+                "entities": []
+            })
+            .to_string(),
+        );
+        assert_authorization_success(&result);
+        assert!(SCHEMAS.remove(schema));
+    }
+
+    fn decision_with_store(policies: i64, store: i64) -> Decision {
+        let result = call_cedar(
+            "PreparedAuthorizationOperation",
+            &json!({
+                "principal": { "type": "User", "id": "alice" },
+                "action": { "type": "Action", "id": "view" },
+                "resource": { "type": "Photo", "id": "door" },
+                "context": {},
+                "policies": policies,
+                "entities": store
+            })
+            .to_string(),
+        );
+        let result: AuthorizationAnswer = serde_json::from_str(&result).unwrap();
+        assert_matches!(result, AuthorizationAnswer::Success { response, .. } => response.decision())
+    }
+
+    #[test]
+    fn entity_store_updates_are_visible_to_requests() {
+        let policies = prepare(
+            r#"{ "staticPolicies" : { "p0": "permit(principal in Group::\"admins\", action, resource);" } }"#,
+        );
+        let alice = json!({ "uid": { "type": "User", "id": "alice" }, "attrs": {}, "parents": [] });
+        let store = EntityStore::new(json!([alice.clone()]), None).unwrap();
+        let store = ENTITY_STORES.insert(store);
+        assert_eq!(decision_with_store(policies, store), Decision::Deny);
+
+        let alice_admin = json!([
+            { "uid": { "type": "User", "id": "alice" }, "attrs": {}, "parents": [{ "type": "Team", "id": "ops" }] },
+            { "uid": { "type": "Team", "id": "ops" }, "attrs": {}, "parents": [{ "type": "Group", "id": "admins" }] }
+        ]);
+        entity_store(store).unwrap().upsert(alice_admin).unwrap();
+        assert_eq!(decision_with_store(policies, store), Decision::Allow);
+
+        // A rejected update leaves the store as it was
+        let cycle = json!([
+            { "uid": { "type": "Group", "id": "admins" }, "attrs": {}, "parents": [{ "type": "Team", "id": "ops" }] }
+        ]);
+        assert!(entity_store(store).unwrap().upsert(cycle).is_err());
+        assert_eq!(decision_with_store(policies, store), Decision::Allow);
+
+        let ops = json!([{ "type": "Team", "id": "ops" }]);
+        entity_store(store).unwrap().remove(ops).unwrap();
+        assert_eq!(decision_with_store(policies, store), Decision::Deny);
+
+        let duplicate = json!([alice.clone(), alice]);
+        assert!(entity_store(store).unwrap().upsert(duplicate).is_err());
+        assert!(ENTITY_STORES.remove(store));
+        assert!(POLICY_SETS.remove(policies));
+    }
+
+    #[test]
+    fn entity_store_checks_cycles_through_stored_ancestors() {
+        let uid = |id: &str| EntityUid::from_str(&format!(r#"Node::"{id}""#)).unwrap();
+        let node = |id: &str, parents: &[&str]| {
+            let parents: Vec<_> = parents
+                .iter()
+                .map(|parent| json!({ "type": "Node", "id": parent }))
+                .collect();
+            json!({ "uid": { "type": "Node", "id": id }, "attrs": {}, "parents": parents })
+        };
+        let ancestors = |store: &EntityStore, id: &str| -> HashSet<EntityUid> {
+            store.snapshot().ancestors(&uid(id)).unwrap().cloned().collect()
+        };
+        // x is in b, which is in y
+        let initial = json!([node("x", &["b"]), node("b", &["y"]), node("y", &[])]);
+        let store = EntityStore::new(initial, None).unwrap();
+
+        // y in x closes the cycle through the stored ancestors of x
+        assert!(store.upsert(json!([node("y", &["x"])])).is_err());
+        assert!(ancestors(&store, "y").is_empty());
+        assert_eq!(ancestors(&store, "x"), HashSet::from([uid("b"), uid("y")]));
+
+        // Moving b out of y in the same update means there is no cycle after all
+        store.upsert(json!([node("b", &[]), node("y", &["x"])])).unwrap();
+        assert_eq!(ancestors(&store, "y"), HashSet::from([uid("x"), uid("b")]));
+        assert!(ancestors(&store, "b").is_empty());
+    }
+
+    #[test]
+    fn entity_store_from_file() {
+        let policies = prepare(
+            r#"{ "staticPolicies" : { "p0": "permit(principal in Group::\"admins\", action, resource);" } }"#,
+        );
+        let entities = json!([
+            { "uid": { "type": "User", "id": "alice" }, "attrs": {}, "parents": [{ "type": "Group", "id": "admins" }] }
+        ]);
+        let path = std::env::temp_dir().join(format!("cedar-entities-{}.json", std::process::id()));
+        std::fs::write(&path, entities.to_string()).unwrap();
+        let store = ENTITY_STORES.insert(EntityStore::from_file(&path, None).unwrap());
+        assert_eq!(decision_with_store(policies, store), Decision::Allow);
+        std::fs::remove_file(&path).unwrap();
+
+        assert!(EntityStore::from_file(&path, None).is_err());
+        assert!(ENTITY_STORES.remove(store));
+        assert!(POLICY_SETS.remove(policies));
+    }
+}
+
+mod batch_authorization_tests {
+    use super::*;
+    use cedar_policy::Decision;
+    use serde_json::{json, Value};
+
+    fn batch_call(count: usize, policy: &str) -> Vec<AuthorizationAnswer> {
+        let requests: Vec<Value> = (0..count)
+            .map(|i| {
+                json!({
+                    "principal": { "type": "User", "id": if i % 3 == 0 { "alice" } else { "bob" } },
+                    "action": { "type": "Action", "id": "view" },
+                    "resource": { "type": "Photo", "id": format!("photo{i}") },
+                    "context": {}
+                })
+            })
+            .collect();
+        let result = call_cedar(
+            "BatchAuthorizationOperation",
+            &json!({
+                "requests": requests,
+                "policies": { "staticPolicies": { "p0": policy } },
+                "entities": []
+            })
+            .to_string(),
+        );
+        serde_json::from_str(&result).unwrap()
+    }
+
+    #[test]
+    fn batch_answers_are_in_request_order() {
+        let answers = batch_call(100, r#"permit(principal == User::"alice", action, resource);"#);
+        assert_eq!(answers.len(), 100);
+        for (i, answer) in answers.into_iter().enumerate() {
+            let expected = if i % 3 == 0 {
+                Decision::Allow
+            } else {
+                Decision::Deny
+            };
+            assert_matches!(answer, AuthorizationAnswer::Success { response, .. } => {
+                assert_eq!(response.decision(), expected);
+            });
+        }
+    }
+
+    #[test]
+    fn batch_with_invalid_policies_fails_every_request() {
+        let answers = batch_call(3, "permit(principal, action, resource) when {");
+        assert_eq!(answers.len(), 3);
+        for answer in answers {
+            assert_matches!(answer, AuthorizationAnswer::Failure { .. });
+        }
+    }
+
+    #[test]
+    fn empty_batch_succeeds() {
+        let answers = batch_call(0, "permit(principal, action, resource);");
+        assert!(answers.is_empty());
+    }
+}
+
 mod validation_tests {
     use super::*;
 
@@ -657,4 +977,212 @@ mod partial_authorization_tests {
     }
 }
 
-mod parsing_tests {}
+mod cbor_tests {
+    use super::*;
+    use crate::cbor::{call_cedar_cbor, encode};
+    use serde_json::{json, Value};
+
+    /// Make the same call as JSON text and as CBOR and check that the answers agree
+    #[track_caller]
+    fn assert_same_answer(call: &str, input: Value) -> Value {
+        let from_json: Value = serde_json::from_str(&call_cedar(call, &input.to_string())).unwrap();
+        let output = call_cedar_cbor(call, &encode(&input).unwrap(), &mut Timings::default());
+        let from_cbor: Value = ciborium::from_reader(output.as_slice()).unwrap();
+        assert_eq!(from_json, from_cbor);
+        from_cbor
+    }
+
+    #[test]
+    fn authorization_answers_match_json() {
+        let answer = assert_same_answer(
+            "AuthorizationOperation",
+            json!({
+                "principal": { "type": "User", "id": "alice" },
+                "action": { "type": "Action", "id": "view" },
+                "resource": { "type": "Photo", "id": "photo" },
+                "context": { "level": 3, "tags": ["a", "b"] },
+                "policies": {
+                    "staticPolicies": {
+                        "p0": "permit(principal, action, resource) when { context.level > 2 };"
+                    }
+                },
+                "entities": []
+            }),
+        );
+        assert_authorization_success(&answer.to_string());
+    }
+
+    #[test]
+    fn validation_answers_match_json() {
+        let answer = assert_same_answer(
+            "ValidateOperation",
+            json!({
+                "schema": { "": { "entityTypes": {}, "actions": {} } },
+                "policies": { "staticPolicies": { "p0": "permit(principal, action, resource);" } }
+            }),
+        );
+        assert_validation_success(&answer.to_string());
+    }
+
+    #[test]
+    fn batch_answers_match_json() {
+        let answer = assert_same_answer(
+            "BatchAuthorizationOperation",
+            json!({
+                "requests": [{
+                    "principal": { "type": "User", "id": "alice" },
+                    "action": { "type": "Action", "id": "view" },
+                    "resource": { "type": "Photo", "id": "photo" },
+                    "context": {}
+                }],
+                "policies": { "staticPolicies": { "p0": "permit(principal, action, resource);" } },
+                "entities": []
+            }),
+        );
+        assert_eq!(answer.as_array().map(Vec::len), Some(1));
+    }
+
+    #[test]
+    fn unrecognized_call_fails() {
+        let input = encode(&json!({})).unwrap();
+        let output = call_cedar_cbor("BadOperation", &input, &mut Timings::default());
+        let answer: Answer = ciborium::from_reader(output.as_slice()).unwrap();
+        assert_matches!(answer, Answer::Failure { .. });
+    }
+}
+
+mod timing_tests {
+    use super::*;
+    use std::time::Duration;
+
+    const AUTHORIZATION_CALL: &str = r#"
+    {
+        "principal" : { "type" : "User", "id" : "alice" },
+        "action" : { "type" : "Action", "id" : "view" },
+        "resource" : { "type" : "Photo", "id" : "photo" },
+        "policies": { "staticPolicies": { "p0": "permit(principal, action, resource);" } },
+        "entities": [],
+        "context": {}
+    }
+    "#;
+
+    #[test]
+    fn json_call_records_decoding_and_evaluation() {
+        let mut timings = Timings::default();
+        let result = crate::call_cedar("AuthorizationOperation", AUTHORIZATION_CALL, &mut timings);
+        assert_authorization_success(&result);
+        assert!(timings.decoding > Duration::ZERO);
+        assert!(timings.evaluation > Duration::ZERO);
+    }
+
+    #[test]
+    fn cbor_call_records_decoding_and_evaluation() {
+        let input: serde_json::Value = serde_json::from_str(AUTHORIZATION_CALL).unwrap();
+        let input = crate::cbor::encode(&input).unwrap();
+        let mut timings = Timings::default();
+        crate::cbor::call_cedar_cbor("AuthorizationOperation", &input, &mut timings);
+        assert!(timings.decoding > Duration::ZERO);
+        assert!(timings.evaluation > Duration::ZERO);
+    }
+
+    #[test]
+    fn unrecognized_call_records_nothing() {
+        let mut timings = Timings::default();
+        crate::call_cedar("BadOperation", "", &mut timings);
+        assert_eq!(timings, Timings::default());
+    }
+
+    #[test]
+    fn nanos_are_in_java_order() {
+        let timings = Timings {
+            decoding: Duration::from_nanos(3),
+            evaluation: Duration::from_nanos(5),
+        };
+        assert_eq!(timings.to_nanos(), [3, 5]);
+    }
+}
+
+mod parsing_tests {
+    use crate::bulk_parse::{encode, parse_policies, split_policies, PolicyKind};
+    use cedar_policy::PolicySet;
+    use std::str::FromStr;
+
+    #[test]
+    fn split_skips_semicolons_in_strings_and_comments() {
+        let src = r#"
+            // first; policy
+            @id("a;b")
+            permit(principal, action, resource) when { context.s == "x;\";y" };
+            forbid(principal, action, resource); // trailing; comment
+        "#;
+        let policies = split_policies(src);
+        assert_eq!(policies.len(), 2);
+        assert!(policies[0].starts_with("@id"));
+        assert!(policies[0].ends_with("};"));
+        assert_eq!(policies[1], "forbid(principal, action, resource);");
+    }
+
+    #[test]
+    fn ids_and_kinds_match_policy_set_from_str() {
+        let mut src = String::new();
+        for i in 0..300 {
+            if i % 7 == 0 {
+                src.push_str("permit(principal == ?principal, action, resource);\n");
+            } else {
+                src.push_str(&format!("permit(principal, action, resource == R::\"{i}\");\n"));
+            }
+        }
+        let mut parsed = parse_policies(&src).unwrap();
+        parsed.sort_by(|a, b| a.id.cmp(&b.id));
+        let policy_set = PolicySet::from_str(&src).unwrap();
+        assert_eq!(parsed.len(), 300);
+        for policy in parsed {
+            let id = cedar_policy::PolicyId::new(&policy.id);
+            match policy.kind {
+                PolicyKind::Static => {
+                    assert_eq!(policy.text, policy_set.policy(&id).unwrap().to_string());
+                }
+                PolicyKind::Template => {
+                    assert_eq!(policy.text, policy_set.template(&id).unwrap().to_string());
+                }
+            }
+        }
+    }
+
+    #[test]
+    fn errors_match_policy_set_from_str() {
+        let src = concat!(
+            "permit(principal, action, resource);\n",
+            "permit(principal, action, resource) when {"
+        );
+        let expected = PolicySet::from_str(src).unwrap_err().to_string();
+        assert_eq!(parse_policies(src).unwrap_err().to_string(), expected);
+    }
+
+    #[test]
+    fn encoding_has_length_prefixed_fields() {
+        let parsed = parse_policies("permit(principal, action, resource);").unwrap();
+        let encoded = encode(&parsed);
+        let text = "permit(principal, action, resource);";
+        assert_eq!(encoded[0], PolicyKind::Static as u8);
+        assert_eq!(&encoded[1..5], &7u32.to_be_bytes());
+        assert_eq!(&encoded[5..12], b"policy0");
+        assert_eq!(&encoded[12..16], &(text.len() as u32).to_be_bytes());
+        assert_eq!(&encoded[16..], text.as_bytes());
+    }
+}
+
+mod worker_tests {
+    use crate::workers::{configure, run, ExecutionMode};
+
+    #[test]
+    fn every_mode_runs_calls() {
+        for mode in [ExecutionMode::Spawn, ExecutionMode::Pool, ExecutionMode::Inline] {
+            assert_eq!(mode.name().parse(), Ok(mode));
+            configure(mode, 2, 0);
+            assert_eq!(run(|| "done".to_string()), Ok("done".to_string()));
+            assert!(run(|| panic!("boom")).unwrap_err().contains("boom"));
+        }
+        configure(ExecutionMode::Pool, 0, 0);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! How long the native side of a call spends decoding the call and answering it, for Java
+//! callers that break the cost of a call down by stage.
+//!
+//! Decoding only turns JSON or CBOR into the call's serde types, in which policies, entities and
+//! schemas are still source text or JSON. Building Cedar's `PolicySet`, `Entities` and `Schema`
+//! from them happens inside the operation, so it is counted as part of answering the call.
+
+use std::time::{Duration, Instant};
+
+use jni::sys::jlong;
+
+/// Time spent on the steps of a call that happen in the native library
+#[derive(Debug, Default, Clone, Copy, PartialEq, Eq)]
+pub struct Timings {
+    /// Decoding the input into a typed call
+    pub decoding: Duration,
+    /// Answering the typed call, including parsing the policies, entities and schema it carries
+    pub evaluation: Duration,
+}
+
+impl Timings {
+    /// Decode a call with `decode` and answer it with `op`, recording how long each step takes
+    pub fn record<C, A, E>(
+        &mut self,
+        decode: impl FnOnce() -> Result<C, E>,
+        op: impl FnOnce(C) -> A,
+    ) -> Result<A, E> {
+        let start = Instant::now();
+        let call = decode();
+        let decoded = Instant::now();
+        self.decoding = decoded - start;
+        let answer = op(call?);
+        self.evaluation = decoded.elapsed();
+        Ok(answer)
+    }
+
+    /// The timings in nanoseconds, in the order `[decoding, evaluation]` that Java expects
+    pub fn to_nanos(self) -> [jlong; 2] {
+        [nanos(self.decoding), nanos(self.evaluation)]
+    }
+}
+
+fn nanos(duration: Duration) -> jlong {
+    jlong::try_from(duration.as_nanos()).unwrap_or(jlong::MAX)
+}
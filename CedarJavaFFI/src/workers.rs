@@ -0,0 +1,203 @@
+/*
+ * Copyright Cedar Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! Where Cedar calls run. Java threads may have small stacks, so calls are moved onto a
+//! thread (or a stack segment) that is known to be large enough for Cedar's recursion.
+
+use std::{
+    any::Any,
+    panic::{self, AssertUnwindSafe},
+    str::FromStr,
+    sync::{
+        atomic::{AtomicU8, AtomicUsize, Ordering},
+        mpsc::{self, Receiver, Sender},
+        Arc, Mutex, OnceLock, PoisonError,
+    },
+    thread,
+};
+
+/// Stack size of worker threads and of the stack segments used by inline calls
+const DEFAULT_STACK_SIZE: usize = 8 * 1024 * 1024;
+
+/// Inline calls that find less than this much stack left switch to a fresh stack segment
+const STACK_RED_ZONE: usize = 256 * 1024;
+
+/// How calls into Cedar are executed
+#[derive(Debug, Clone, Copy, PartialEq, Eq)]
+#[repr(u8)]
+pub enum ExecutionMode {
+    /// Spawn a new thread for every call
+    Spawn = 0,
+    /// Hand calls to a fixed pool of pre-spawned threads
+    Pool = 1,
+    /// Run calls on the calling thread, switching to a new stack segment if it runs low
+    Inline = 2,
+}
+
+impl ExecutionMode {
+    fn from_u8(mode: u8) -> Self {
+        match mode {
+            0 => Self::Spawn,
+            2 => Self::Inline,
+            _ => Self::Pool,
+        }
+    }
+
+    /// The name of the mode as used by `BasicAuthorizationEngine.ExecutionMode`
+    pub fn name(self) -> &'static str {
+        match self {
+            Self::Spawn => "SPAWN",
+            Self::Pool => "POOL",
+            Self::Inline => "INLINE",
+        }
+    }
+}
+
+impl FromStr for ExecutionMode {
+    type Err = String;
+
+    fn from_str(s: &str) -> Result<Self, Self::Err> {
+        match s {
+            "SPAWN" => Ok(Self::Spawn),
+            "POOL" => Ok(Self::Pool),
+            "INLINE" => Ok(Self::Inline),
+            _ => Err(format!("unknown execution mode: {s}")),
+        }
+    }
+}
+
+static MODE: AtomicU8 = AtomicU8::new(ExecutionMode::Pool as u8);
+static POOL_SIZE: AtomicUsize = AtomicUsize::new(0);
+static STACK_SIZE: AtomicUsize = AtomicUsize::new(DEFAULT_STACK_SIZE);
+static POOL: OnceLock<Pool> = OnceLock::new();
+
+/// Select how calls are executed. A pool size or stack size of 0 keeps the current setting.
+/// The pool is started on first use, so its size and stack size are fixed from then on.
+pub fn configure(mode: ExecutionMode, pool_size: usize, stack_size: usize) {
+    if pool_size > 0 {
+        POOL_SIZE.store(pool_size, Ordering::Relaxed);
+    }
+    if stack_size > 0 {
+        STACK_SIZE.store(stack_size, Ordering::Relaxed);
+    }
+    MODE.store(mode as u8, Ordering::Relaxed);
+}
+
+/// The current execution mode
+pub fn mode() -> ExecutionMode {
+    ExecutionMode::from_u8(MODE.load(Ordering::Relaxed))
+}
+
+/// The stack size used for threads that run Cedar calls
+pub fn stack_size() -> usize {
+    STACK_SIZE.load(Ordering::Relaxed)
+}
+
+/// Run `f` according to the current execution mode. A panic in `f` is returned as an error
+/// rather than unwinding into the JVM.
+pub fn run<T, F>(f: F) -> Result<T, String>
+where
+    T: Send + 'static,
+    F: FnOnce() -> T + Send + 'static,
+{
+    let stack_size = stack_size();
+    match mode() {
+        ExecutionMode::Spawn => thread::Builder::new()
+            .stack_size(stack_size)
+            .spawn(f)
+            .map_err(|e| format!("Authorization thread failed {e:?}"))?
+            .join()
+            .map_err(|e| format!("Authorization thread failed {}", panic_message(&e))),
+        ExecutionMode::Pool => POOL.get_or_init(|| Pool::new(stack_size)).run(f),
+        ExecutionMode::Inline => stacker::maybe_grow(STACK_RED_ZONE, stack_size, || catch(f)),
+    }
+}
+
+fn catch<T>(f: impl FnOnce() -> T) -> Result<T, String> {
+    panic::catch_unwind(AssertUnwindSafe(f))
+        .map_err(|e| format!("Authorization thread failed {}", panic_message(&e)))
+}
+
+fn panic_message(payload: &Box<dyn Any + Send>) -> &str {
+    if let Some(s) = payload.downcast_ref::<&str>() {
+        s
+    } else if let Some(s) = payload.downcast_ref::<String>() {
+        s
+    } else {
+        "with a panic"
+    }
+}
+
+type Job = Box<dyn FnOnce() + Send>;
+
+/// A fixed set of threads taking jobs from a shared queue
+struct Pool {
+    jobs: Mutex<Sender<Job>>,
+}
+
+impl Pool {
+    fn new(stack_size: usize) -> Self {
+        let size = match POOL_SIZE.load(Ordering::Relaxed) {
+            0 => thread::available_parallelism().map_or(4, |n| n.get()),
+            n => n,
+        };
+        let (sender, receiver) = mpsc::channel::<Job>();
+        let receiver = Arc::new(Mutex::new(receiver));
+        for i in 0..size {
+            let receiver = Arc::clone(&receiver);
+            thread::Builder::new()
+                .name(format!("cedar-worker-{i}"))
+                .stack_size(stack_size)
+                .spawn(move || work(&receiver))
+                .expect("could not spawn Cedar worker thread");
+        }
+        Self {
+            jobs: Mutex::new(sender),
+        }
+    }
+
+    fn run<T, F>(&self, f: F) -> Result<T, String>
+    where
+        T: Send + 'static,
+        F: FnOnce() -> T + Send + 'static,
+    {
+        let (result_sender, result_receiver) = mpsc::sync_channel(1);
+        let job: Job = Box::new(move || {
+            // The caller is blocked waiting for the result, so the send can only fail if the
+            // caller itself has gone away
+            let _ = result_sender.send(catch(f));
+        });
+        self.jobs
+            .lock()
+            .unwrap_or_else(PoisonError::into_inner)
+            .send(job)
+            .map_err(|_| "Cedar worker pool has shut down".to_string())?;
+        result_receiver
+            .recv()
+            .map_err(|_| "Cedar worker thread failed".to_string())?
+    }
+}
+
+fn work(jobs: &Mutex<Receiver<Job>>) {
+    loop {
+        // Only hold the lock while waiting for a job, not while running it
+        let job = jobs.lock().unwrap_or_else(PoisonError::into_inner).recv();
+        match job {
+            Ok(job) => job(),
+            Err(_) => return,
+        }
+    }
+}